@@ -0,0 +1,104 @@
+using System.Threading.Channels;
+using TransportCompany.GrpcServer;
+
+namespace grpcServer.Tests;
+
+public class NotificationHubTests
+{
+    private const int Sender = 2;
+    private const int Receiver = 1;
+
+    [Fact]
+    public void ReconnectReplaysWhatWasMissed()
+    {
+        var hub = new NotificationHub();
+        Publish(hub, Sender, 3);
+
+        var queued = Drain(hub.Subscribe(Receiver, hub.Epoch, 1));
+
+        Assert.Equal(new long[] { 2, 3 }, queued.Select(n => n.Sequence));
+        Assert.DoesNotContain(queued, n => n.ResyncRequired);
+    }
+
+    [Fact]
+    public void OwnNotificationsAreNotReplayed()
+    {
+        var hub = new NotificationHub();
+        Publish(hub, Receiver, 2);
+        Publish(hub, Sender, 1);
+
+        var queued = Drain(hub.Subscribe(Receiver, hub.Epoch, 0));
+
+        Assert.Equal(3, Assert.Single(queued).Sequence);
+    }
+
+    [Fact]
+    public void FreshLoginQueuesNothing()
+    {
+        var hub = new NotificationHub();
+        Publish(hub, Sender, 3);
+
+        Assert.Empty(Drain(hub.Subscribe(Receiver, 0, 0)));
+    }
+
+    [Fact]
+    public void PositionFromAnotherEpochRequiresResync()
+    {
+        var hub = new NotificationHub();
+        Publish(hub, Sender, 3);
+
+        AssertResync(hub, Drain(hub.Subscribe(Receiver, hub.Epoch - 1, 1)));
+    }
+
+    [Fact]
+    public void PositionOlderThanTheReplayBufferRequiresResync()
+    {
+        var hub = new NotificationHub();
+        Publish(hub, Sender, 5000);
+
+        AssertResync(hub, Drain(hub.Subscribe(Receiver, hub.Epoch, 1)));
+    }
+
+    [Fact]
+    public void MoreMissedThanTheQueueHoldsRequiresResync()
+    {
+        var hub = new NotificationHub();
+        Publish(hub, Sender, 2000);                     // still in the replay buffer, but too many for one queue
+
+        AssertResync(hub, Drain(hub.Subscribe(Receiver, hub.Epoch, 0)));
+    }
+
+    [Fact]
+    public void ChangesSinceAPositionAreToldOnlyWhileTheyAreAllKept()
+    {
+        var hub = new NotificationHub();
+        Publish(hub, Sender, 3);
+
+        Assert.True(hub.TryGetChangesSince(hub.Epoch, 1, out var sequence, out var changes));
+        Assert.Equal(3, sequence);
+        Assert.Equal(new long[] { 2, 3 }, changes.Select(n => n.Sequence));
+        Assert.False(hub.TryGetChangesSince(0, 0, out _, out _));
+        Assert.False(hub.TryGetChangesSince(hub.Epoch + 1, 1, out _, out _));
+    }
+
+    private static void Publish(NotificationHub hub, int fromEmployeeId, int count)
+    {
+        for (var i = 0; i < count; i++)
+            hub.Publish(fromEmployeeId, new NotifySeatsReservedReply { TripId = 1, AvailableSeats = 10 });
+    }
+
+    private static List<NotifySeatsReservedReply> Drain(ChannelReader<NotifySeatsReservedReply> reader)
+    {
+        var queued = new List<NotifySeatsReservedReply>();
+        while (reader.TryRead(out var notification))
+            queued.Add(notification);
+        return queued;
+    }
+
+    private static void AssertResync(NotificationHub hub, List<NotifySeatsReservedReply> queued)
+    {
+        var resync = Assert.Single(queued);
+        Assert.True(resync.ResyncRequired);
+        Assert.Equal(hub.Epoch, resync.Epoch);
+    }
+}
@@ -0,0 +1,82 @@
+namespace grpcServer.Tests;
+
+public class SeatHoldRegistryTests
+{
+    private const int TripId = 7;
+    private static readonly DateTime Now = new(2025, 1, 1, 8, 0, 0, DateTimeKind.Utc);
+    private static readonly TimeSpan Lease = TimeSpan.FromSeconds(30);
+
+    [Fact]
+    public void HoldKeepsOtherOfficesOffUntilItExpires()
+    {
+        var registry = new SeatHoldRegistry();
+        registry.Hold(1, TripId, new[] { 1, 2 }, null, Lease, Now, out _);
+
+        Assert.Equal(new[] { 1, 2 }, registry.HeldByOthers(2, TripId, new[] { 1, 2, 3 }, Now.AddSeconds(29)));
+        Assert.Empty(registry.HeldByOthers(1, TripId, new[] { 1, 2 }, Now.AddSeconds(29)));
+
+        Assert.Empty(registry.HeldByOthers(2, TripId, new[] { 1, 2, 3 }, Now + Lease));
+        Assert.Empty(registry.HeldSeats(TripId, Now + Lease));
+    }
+
+    [Fact]
+    public void RemoveExpiredReturnsOnlyHoldsWhoseLeaseRanOut()
+    {
+        var registry = new SeatHoldRegistry();
+        var shortHold = registry.Hold(1, TripId, new[] { 1 }, null, TimeSpan.FromSeconds(10), Now, out _);
+        registry.Hold(2, TripId, new[] { 2 }, null, Lease, Now, out _);
+
+        var expired = registry.RemoveExpired(Now.AddSeconds(10));
+
+        Assert.Equal(shortHold!.Id, Assert.Single(expired).Id);
+        Assert.Equal(new HashSet<int> { 2 }, registry.HeldSeats(TripId, Now.AddSeconds(10)));
+        Assert.Empty(registry.RemoveExpired(Now.AddSeconds(10)));
+    }
+
+    [Fact]
+    public void RenewingExtendsTheLease()
+    {
+        var registry = new SeatHoldRegistry();
+        var hold = registry.Hold(1, TripId, new[] { 1 }, null, Lease, Now, out _);
+
+        var renewed = registry.Hold(1, TripId, new[] { 1, 2 }, hold!.Id, Lease, Now.AddSeconds(20), out var released);
+
+        Assert.Equal(hold.Id, renewed!.Id);
+        Assert.Single(released);
+        Assert.Empty(registry.RemoveExpired(Now.AddSeconds(40)));
+        Assert.Equal(new[] { 1, 2 }, registry.HeldByOthers(2, TripId, new[] { 1, 2 }, Now.AddSeconds(40)));
+    }
+
+    [Fact]
+    public void ExpiredHoldCannotBeRenewedOnceSwept()
+    {
+        var registry = new SeatHoldRegistry();
+        var hold = registry.Hold(1, TripId, new[] { 1 }, null, Lease, Now, out _);
+        registry.RemoveExpired(Now + Lease);
+
+        Assert.Null(registry.Hold(1, TripId, new[] { 1 }, hold!.Id, Lease, Now + Lease, out _));
+    }
+
+    [Fact]
+    public void ExpiredSeatCanBeHeldByAnotherOfficeBeforeTheSweep()
+    {
+        var registry = new SeatHoldRegistry();
+        var first = registry.Hold(1, TripId, new[] { 1, 2 }, null, Lease, Now, out _);
+
+        var second = registry.Hold(2, TripId, new[] { 2 }, null, Lease, Now + Lease, out var released);
+
+        Assert.NotNull(second);
+        Assert.Equal(first!.Id, Assert.Single(released).Id);
+        Assert.Equal(new[] { 2 }, registry.HeldByOthers(1, TripId, new[] { 1, 2 }, Now + Lease));
+    }
+
+    [Theory]
+    [InlineData(0, 30)]
+    [InlineData(-5, 30)]
+    [InlineData(10, 10)]
+    [InlineData(600, 120)]
+    public void LeaseIsClampedToTheAllowedRange(int asked, int expectedSeconds)
+    {
+        Assert.Equal(TimeSpan.FromSeconds(expectedSeconds), SeatHoldRegistry.LeaseFor(asked));
+    }
+}
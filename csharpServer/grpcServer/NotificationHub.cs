@@ -0,0 +1,167 @@
+using System.Threading.Channels;
+using TransportCompany.GrpcServer;
+
+namespace grpcServer;
+
+/// <summary>
+/// Fans notifications out to the connected employees. Every notification gets a sequence
+/// number and is kept in a bounded replay buffer, so a client whose stream broke can
+/// reconnect with the last number it saw and receive only what it missed. Each subscriber
+/// has its own queue, drained by its stream, so writes to one stream never overlap and a
+/// slow client does not hold up the others.
+/// </summary>
+public class NotificationHub
+{
+    private const int ReplayCapacity = 4096;
+    private const int QueueCapacity = 1024;
+
+    // Sequence numbers restart with the process; the epoch tells a client that its last
+    // sequence number belongs to an earlier run and cannot be resumed from.
+    public long Epoch { get; } = DateTimeOffset.UtcNow.ToUnixTimeMilliseconds();
+
+    private readonly object _lock = new();
+    private readonly Queue<(int FromEmployeeId, NotifySeatsReservedReply Notification)> _replay = new();
+    private readonly Dictionary<int, Channel<NotifySeatsReservedReply>> _subscribers = new();
+    private long _sequence;
+
+    /// <summary>
+    /// Opens the queue of an employee, replacing any previous one. With a position from the
+    /// current epoch the notifications after it are queued first. If they are no longer in the
+    /// replay buffer, or are more than the queue holds, a single <c>ResyncRequired</c>
+    /// notification is queued instead, so a client never misses part of them silently.
+    /// </summary>
+    public ChannelReader<NotifySeatsReservedReply> Subscribe(int employeeId, long epoch, long afterSequence)
+    {
+        var channel = Channel.CreateBounded<NotifySeatsReservedReply>(new BoundedChannelOptions(QueueCapacity)
+        {
+            SingleReader = true,
+            FullMode = BoundedChannelFullMode.Wait      // TryWrite fails when full, see Publish
+        });
+
+        lock (_lock)
+        {
+            if (_subscribers.Remove(employeeId, out var previous))
+                previous.Writer.TryComplete();
+            _subscribers[employeeId] = channel;
+
+            if (epoch == 0 && afterSequence == 0)
+                return channel.Reader;                  // fresh login, the client just loaded everything
+
+            if (!CanResumeFrom(epoch, afterSequence))
+            {
+                QueueResync(channel);
+                return channel.Reader;
+            }
+
+            var missed = _replay.Where(e => e.Notification.Sequence > afterSequence && e.FromEmployeeId != employeeId)
+                                .Select(e => e.Notification)
+                                .ToList();
+            if (missed.Count >= QueueCapacity)
+            {
+                QueueResync(channel);                   // the replay buffer holds more than the queue
+                return channel.Reader;
+            }
+            foreach (var notification in missed)
+            {
+                if (!channel.Writer.TryWrite(notification))
+                {
+                    QueueResync(channel);
+                    break;
+                }
+            }
+        }
+        return channel.Reader;
+    }
+
+    /// <summary>
+    /// The reservations published after the given position, oldest first, and the current
+    /// sequence number. Returns <c>false</c> when they cannot all be told any more: the
+    /// position is from another epoch, is 0 or is older than the replay buffer. Holds are left
+    /// out, they do not change trips.
+    /// </summary>
+    public bool TryGetChangesSince(long epoch, long afterSequence, out long sequence,
+                                   out List<NotifySeatsReservedReply> changes)
+    {
+        changes = new List<NotifySeatsReservedReply>();
+        lock (_lock)
+        {
+            sequence = _sequence;
+            if ((epoch == 0 && afterSequence == 0) || !CanResumeFrom(epoch, afterSequence))
+                return false;
+
+            foreach (var (_, notification) in _replay)
+            {
+                if (notification.Sequence > afterSequence && (notification.TripId != 0 || notification.Deltas.Count > 0))
+                    changes.Add(notification);
+            }
+        }
+        return true;
+    }
+
+    /// <summary>
+    /// Closes the queue of an employee. With <paramref name="reader"/> only that queue is
+    /// closed, so a stream that ends late does not close the queue of a newer one.
+    /// </summary>
+    public void Unsubscribe(int employeeId, ChannelReader<NotifySeatsReservedReply>? reader = null)
+    {
+        lock (_lock)
+        {
+            if (_subscribers.TryGetValue(employeeId, out var channel) && (reader == null || channel.Reader == reader))
+            {
+                _subscribers.Remove(employeeId);
+                channel.Writer.TryComplete();
+            }
+        }
+    }
+
+    /// <summary>
+    /// Numbers the notification and queues it for every employee except the sender.
+    /// </summary>
+    public void Publish(int fromEmployeeId, NotifySeatsReservedReply notification)
+    {
+        lock (_lock)
+        {
+            notification.Epoch = Epoch;
+            notification.Sequence = ++_sequence;
+            notification.SentAtUnixMillis = DateTimeOffset.UtcNow.ToUnixTimeMilliseconds();
+
+            _replay.Enqueue((fromEmployeeId, notification));
+            if (_replay.Count > ReplayCapacity)
+                _replay.Dequeue();
+
+            foreach (var (employeeId, channel) in _subscribers.ToList())
+            {
+                if (employeeId == fromEmployeeId)
+                    continue;
+                if (!channel.Writer.TryWrite(notification))
+                {
+                    // too far behind: end the stream, the client reconnects and catches up from the replay buffer
+                    _subscribers.Remove(employeeId);
+                    channel.Writer.TryComplete();
+                }
+            }
+        }
+    }
+
+    // drops what was queued so far and tells the client to reload; only before the stream reads the queue
+    private void QueueResync(Channel<NotifySeatsReservedReply> channel)
+    {
+        while (channel.Reader.TryRead(out _))
+        {
+        }
+        channel.Writer.TryWrite(new NotifySeatsReservedReply
+        {
+            Epoch = Epoch,
+            Sequence = _sequence,
+            ResyncRequired = true,
+            SentAtUnixMillis = DateTimeOffset.UtcNow.ToUnixTimeMilliseconds()
+        });
+    }
+
+    // everything after the position is still in the replay buffer; call with _lock held
+    private bool CanResumeFrom(long epoch, long afterSequence)
+    {
+        var oldest = _replay.Count > 0 ? _replay.Peek().Notification.Sequence : _sequence + 1;
+        return epoch == Epoch && afterSequence <= _sequence && afterSequence + 1 >= oldest;
+    }
+}
@@ -5,19 +5,32 @@ using Microsoft.Extensions.DependencyInjection;
 using persistance;
 using Serilog;
 using Microsoft.Extensions.Configuration;
+using System.IO.Compression;
 
 var builder = WebApplication.CreateBuilder(args);
 
+// several instances can run side by side, e.g. dotnet run -- --Port=5001
+var port = builder.Configuration.GetValue("Port", 5000);
+
 builder.WebHost.ConfigureKestrel(options =>
 {
     options.ListenLocalhost(
-        5000,
+        port,
         o => o.Protocols = 
                 Microsoft.AspNetCore.Server.Kestrel.Core.HttpProtocols.Http2
                 );
 });
 
-builder.Services.AddGrpc();
+builder.Services.AddGrpc(options =>
+{
+    // large listings are compressed for clients that accept it; small replies are exempted
+    // by ResponseCompressionInterceptor (ResponseCompression:ThresholdBytes, default 8192)
+    options.ResponseCompressionAlgorithm = builder.Configuration.GetValue("ResponseCompression:Algorithm", "gzip");
+    options.ResponseCompressionLevel = CompressionLevel.Fastest;
+    options.Interceptors.Add<ResponseCompressionInterceptor>();
+});
+// grpc.health.v1.Health, polled by clients that balance across several instances
+builder.Services.AddGrpcHealthChecks();
 
 builder.Services.AddSingleton<IClientRepository, ClientRepository>();
 builder.Services.AddSingleton<IOfficeRepository, OfficeRepository>();
@@ -26,6 +39,9 @@ builder.Services.AddSingleton<IDestinationRepository, DestinationRepository>();
 builder.Services.AddSingleton<ITripRepository, TripRepository>();
 builder.Services.AddSingleton<IReservedSeatRepository, ReservedSeatRepository>();
 builder.Services.AddSingleton<DatabaseConnection>();
+builder.Services.AddSingleton<SeatHoldRegistry>();
+builder.Services.AddSingleton<NotificationHub>();
+builder.Services.AddHostedService<SeatHoldSweeper>();
 
 var configuration = new ConfigurationBuilder()
     .SetBasePath(AppContext.BaseDirectory)
@@ -41,6 +57,7 @@ builder.Host.UseSerilog();
 var app = builder.Build();
 
 app.MapGrpcService<TransportCompanyService>();
+app.MapGrpcHealthChecksService();
 app.MapGet("/", () => "gRPC server running!");
 
 app.Run();
\ No newline at end of file
@@ -0,0 +1,43 @@
+using Google.Protobuf;
+using Grpc.Core;
+using Grpc.Core.Interceptors;
+
+namespace grpcServer;
+
+/// <summary>
+/// Leaves small responses uncompressed. The response compression configured in
+/// <c>Program.cs</c> applies to every call whose client accepts it; this interceptor turns it
+/// off for unary replies under the threshold (login, reservations, single trips), where
+/// compressing costs CPU and saves next to nothing, and for the notification stream.
+/// Large listings such as <c>GetAllTrips</c> and <c>SearchTripSeats</c> stay compressed.
+/// </summary>
+public class ResponseCompressionInterceptor : Interceptor
+{
+    private static readonly WriteOptions NoCompress = new(WriteFlags.NoCompress);
+
+    private readonly int _thresholdBytes;
+
+    public ResponseCompressionInterceptor(IConfiguration configuration)
+    {
+        _thresholdBytes = configuration.GetValue("ResponseCompression:ThresholdBytes", 8192);
+    }
+
+    public override async Task<TResponse> UnaryServerHandler<TRequest, TResponse>(
+        TRequest request, ServerCallContext context, UnaryServerMethod<TRequest, TResponse> continuation)
+    {
+        var response = await continuation(request, context);
+        // the reply is written after the handler returns, with these options
+        if (response is IMessage message && message.CalculateSize() < _thresholdBytes)
+            context.WriteOptions = NoCompress;
+        return response;
+    }
+
+    public override Task ServerStreamingServerHandler<TRequest, TResponse>(
+        TRequest request, IServerStreamWriter<TResponse> responseStream, ServerCallContext context,
+        ServerStreamingServerMethod<TRequest, TResponse> continuation)
+    {
+        // notifications are a few hundred bytes each
+        context.WriteOptions = NoCompress;
+        return continuation(request, responseStream, context);
+    }
+}
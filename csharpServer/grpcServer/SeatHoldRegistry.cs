@@ -0,0 +1,179 @@
+namespace grpcServer;
+
+/// <summary>
+/// Short-lived, in-memory holds on free seats, placed by an office while a customer is at the
+/// counter. A hold keeps other offices from reserving or holding the same seats until it is
+/// released, used by a reservation or left to expire. Expired holds are ignored right away
+/// and removed by <see cref="SeatHoldSweeper"/>, which also tells the other offices.
+/// </summary>
+public class SeatHoldRegistry
+{
+    public static readonly TimeSpan DefaultLease = TimeSpan.FromSeconds(30);
+    public static readonly TimeSpan MaxLease = TimeSpan.FromMinutes(2);
+
+    public sealed record SeatHold(string Id, int EmployeeId, int TripId, IReadOnlyList<int> SeatNumbers, DateTime ExpiresAt);
+
+    private readonly object _lock = new();
+    private readonly Dictionary<string, SeatHold> _holds = new();
+    private readonly Dictionary<(int TripId, int SeatNumber), string> _holdIdBySeat = new();
+
+    /// <summary>
+    /// Clamps the lease asked for by a client to the allowed range.
+    /// </summary>
+    public static TimeSpan LeaseFor(int leaseSeconds)
+    {
+        if (leaseSeconds <= 0)
+            return DefaultLease;
+        var lease = TimeSpan.FromSeconds(leaseSeconds);
+        return lease > MaxLease ? MaxLease : lease;
+    }
+
+    /// <summary>
+    /// The seats among <paramref name="seatNumbers"/> held by an employee other than
+    /// <paramref name="employeeId"/>.
+    /// </summary>
+    public List<int> HeldByOthers(int employeeId, int tripId, IEnumerable<int> seatNumbers, DateTime now)
+    {
+        lock (_lock)
+        {
+            var held = new List<int>();
+            foreach (var seatNumber in seatNumbers)
+            {
+                if (_holdIdBySeat.TryGetValue((tripId, seatNumber), out var holdId)
+                    && _holds[holdId] is var hold
+                    && hold.EmployeeId != employeeId
+                    && hold.ExpiresAt > now)
+                {
+                    held.Add(seatNumber);
+                }
+            }
+            return held;
+        }
+    }
+
+    /// <summary>
+    /// All seats of a trip that are currently held, by anyone.
+    /// </summary>
+    public HashSet<int> HeldSeats(int tripId, DateTime now)
+    {
+        lock (_lock)
+        {
+            return _holdIdBySeat
+                .Where(e => e.Key.TripId == tripId && _holds[e.Value].ExpiresAt > now)
+                .Select(e => e.Key.SeatNumber)
+                .ToHashSet();
+        }
+    }
+
+    /// <summary>
+    /// Places a new hold, or renews the one with <paramref name="holdId"/> and replaces its
+    /// seats. The caller must have checked that no seat is reserved or held by someone else.
+    /// </summary>
+    /// <returns>The hold, or <c>null</c> when <paramref name="holdId"/> is unknown (expired) or belongs to another employee.</returns>
+    public SeatHold? Hold(int employeeId, int tripId, IReadOnlyList<int> seatNumbers, string? holdId, TimeSpan lease,
+                          DateTime now, out List<SeatHold> released)
+    {
+        lock (_lock)
+        {
+            released = new List<SeatHold>();
+            if (!string.IsNullOrEmpty(holdId))
+            {
+                if (!_holds.TryGetValue(holdId, out var existing) || existing.EmployeeId != employeeId)
+                    return null;
+                Remove(existing);
+                released.Add(existing);
+            }
+
+            var hold = new SeatHold(string.IsNullOrEmpty(holdId) ? Guid.NewGuid().ToString("N") : holdId,
+                                    employeeId, tripId, seatNumbers, now + lease);
+            _holds[hold.Id] = hold;
+            foreach (var seatNumber in seatNumbers)
+            {
+                // an expired hold of someone else may still own the seat until the sweeper runs
+                if (_holdIdBySeat.TryGetValue((tripId, seatNumber), out var previousId) && previousId != hold.Id)
+                {
+                    var previous = _holds[previousId];
+                    Remove(previous);
+                    released.Add(previous);
+                }
+                _holdIdBySeat[(tripId, seatNumber)] = hold.Id;
+            }
+            return hold;
+        }
+    }
+
+    /// <summary>
+    /// Releases a hold of the given employee.
+    /// </summary>
+    /// <returns>The released hold, or <c>null</c> if there was none.</returns>
+    public SeatHold? Release(int employeeId, string holdId)
+    {
+        lock (_lock)
+        {
+            if (!_holds.TryGetValue(holdId, out var hold) || hold.EmployeeId != employeeId)
+                return null;
+            Remove(hold);
+            return hold;
+        }
+    }
+
+    /// <summary>
+    /// Drops the employee's holds on seats that were just reserved; the rest of each hold stays.
+    /// </summary>
+    public void ReleaseReserved(int employeeId, int tripId, IEnumerable<int> seatNumbers)
+    {
+        lock (_lock)
+        {
+            foreach (var seatNumber in seatNumbers)
+            {
+                if (_holdIdBySeat.TryGetValue((tripId, seatNumber), out var holdId)
+                    && _holds[holdId].EmployeeId == employeeId)
+                {
+                    _holdIdBySeat.Remove((tripId, seatNumber));
+                    var hold = _holds[holdId];
+                    var remaining = hold.SeatNumbers.Where(n => n != seatNumber).ToList();
+                    if (remaining.Count == 0)
+                        _holds.Remove(holdId);
+                    else
+                        _holds[holdId] = hold with { SeatNumbers = remaining };
+                }
+            }
+        }
+    }
+
+    /// <summary>
+    /// Releases every hold of an employee, e.g. at logout.
+    /// </summary>
+    public List<SeatHold> ReleaseAll(int employeeId)
+    {
+        lock (_lock)
+        {
+            var holds = _holds.Values.Where(h => h.EmployeeId == employeeId).ToList();
+            holds.ForEach(Remove);
+            return holds;
+        }
+    }
+
+    /// <summary>
+    /// Removes and returns the holds whose lease ran out.
+    /// </summary>
+    public List<SeatHold> RemoveExpired(DateTime now)
+    {
+        lock (_lock)
+        {
+            var expired = _holds.Values.Where(h => h.ExpiresAt <= now).ToList();
+            expired.ForEach(Remove);
+            return expired;
+        }
+    }
+
+    private void Remove(SeatHold hold)
+    {
+        _holds.Remove(hold.Id);
+        foreach (var seatNumber in hold.SeatNumbers)
+        {
+            if (_holdIdBySeat.TryGetValue((hold.TripId, seatNumber), out var holdId) && holdId == hold.Id)
+                _holdIdBySeat.Remove((hold.TripId, seatNumber));
+        }
+    }
+}
@@ -0,0 +1,46 @@
+using Microsoft.Extensions.Hosting;
+using Microsoft.Extensions.Logging;
+using TransportCompany.GrpcServer;
+
+namespace grpcServer;
+
+/// <summary>
+/// Removes expired seat holds once a second and tells every connected office that the seats
+/// are free again, so holds end even when the client that placed them went away.
+/// </summary>
+public class SeatHoldSweeper : BackgroundService
+{
+    private static readonly TimeSpan Interval = TimeSpan.FromSeconds(1);
+
+    private readonly SeatHoldRegistry _holds;
+    private readonly NotificationHub _notifications;
+    private readonly ILogger<SeatHoldSweeper> _logger;
+
+    public SeatHoldSweeper(SeatHoldRegistry holds, NotificationHub notifications, ILogger<SeatHoldSweeper> logger)
+    {
+        _holds = holds;
+        _notifications = notifications;
+        _logger = logger;
+    }
+
+    protected override async Task ExecuteAsync(CancellationToken stoppingToken)
+    {
+        using var timer = new PeriodicTimer(Interval);
+        while (await timer.WaitForNextTickAsync(stoppingToken))
+        {
+            var expired = _holds.RemoveExpired(DateTime.UtcNow);
+            if (expired.Count == 0)
+                continue;
+
+            _logger.LogInformation("{Count} seat hold(s) expired", expired.Count);
+            var notification = new NotifySeatsReservedReply();
+            foreach (var hold in expired)
+            {
+                var delta = new SeatsHeldDelta { TripId = hold.TripId, Held = false };
+                delta.SeatNumbers.AddRange(hold.SeatNumbers);
+                notification.Holds.Add(delta);
+            }
+            _notifications.Publish(0, notification);
+        }
+    }
+}
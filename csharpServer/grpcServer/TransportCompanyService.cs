@@ -1,4 +1,5 @@
 using System.Collections.Concurrent;
+using Google.Protobuf;
 using Grpc.Core;
 using TransportCompany.GrpcServer;
 using model;
@@ -17,11 +18,22 @@ public class TransportCompanyService : TransportCompany.GrpcServer.TransportComp
     private readonly IEmployeeRepository _employeeRepository;
     private readonly ITripRepository _tripRepository;
     private readonly IReservedSeatRepository _reservedSeatRepository;
+    private readonly SeatHoldRegistry _seatHolds;
+    private readonly NotificationHub _notifications;
     private readonly ILogger<TransportCompanyService> _logger;
 
-    private static readonly ConcurrentDictionary<int, bool> LoggedInEmployees = new();
+    private const int DefaultTripsPageSize = 100;
+    private const int MaxTripsPageSize = 1000;
+
+    private const int SeatsPerTrip = 18;
 
-    private static readonly ConcurrentDictionary<int, IServerStreamWriter<NotifySeatsReservedReply>> EmployeeStreams = new();
+    private static readonly DateOnly UnixEpoch = new(1970, 1, 1);
+
+    // Serializes seat writes against combined trip + seat reads, so a reader never sees a
+    // trip whose seat count does not match its seat map.
+    private static readonly object SeatsLock = new();
+
+    private static readonly ConcurrentDictionary<int, bool> LoggedInEmployees = new();
 
     /// <summary>
     /// Creates the service instance and wires in all required dependencies.
@@ -30,18 +42,24 @@ public class TransportCompanyService : TransportCompany.GrpcServer.TransportComp
     /// <param name="employeeRepository">Data-access layer for <see cref="Employee"/> records.</param>
     /// <param name="tripRepository">Data-access layer for <see cref="Trip"/> records.</param>
     /// <param name="reservedSeatRepository">Data-access layer for <see cref="ReservedSeat"/> records.</param>
+    /// <param name="seatHolds">In-memory seat holds shared by all calls.</param>
+    /// <param name="notifications">Numbered notification queues of the connected employees.</param>
     /// <param name="logger">Structured logger injected by ASP-NET host.</param>
     public TransportCompanyService(
         IClientRepository clientRepository,
         IEmployeeRepository employeeRepository, 
         ITripRepository tripRepository,
         IReservedSeatRepository reservedSeatRepository,
+        SeatHoldRegistry seatHolds,
+        NotificationHub notifications,
         ILogger<TransportCompanyService> logger)
     {
         _clientRepository = clientRepository;
         _employeeRepository = employeeRepository;
         _tripRepository = tripRepository;
         _reservedSeatRepository = reservedSeatRepository;
+        _seatHolds = seatHolds;
+        _notifications = notifications;
         _logger = logger;
     }  
 
@@ -95,9 +113,13 @@ public class TransportCompanyService : TransportCompany.GrpcServer.TransportComp
     public override Task<LogoutReply> Logout(LogoutRequest request, ServerCallContext context)
     {
         LoggedInEmployees.TryRemove(request.EmployeeId, out _);
-        EmployeeStreams.TryRemove(request.EmployeeId, out _);
+        _notifications.Unsubscribe(request.EmployeeId);
         _logger.LogInformation($"Logout pentru employeeId={request.EmployeeId}");
 
+        var released = _seatHolds.ReleaseAll(request.EmployeeId);
+        if (released.Count > 0)
+            _notifications.Publish(request.EmployeeId, HoldsNotification(released, held: false));
+
         return Task.FromResult(new LogoutReply
         {
             Success = true,
@@ -114,46 +136,69 @@ public class TransportCompanyService : TransportCompany.GrpcServer.TransportComp
         var reply = new TripsReply();
         foreach (var trip in trips)
         {
-            var protoTrip = new TransportCompany.GrpcServer.TripDTO
-            {
-                Id = trip.Id,
-                Destination = trip.Destination.Name,
-                Date = trip.DepartureDate.ToString("yyyy-MM-dd"),
-                Time = trip.DepartureTime.ToString(@"HH\:mm"),
-                AvailableSeats = trip.AvailableSeats ?? 0
-            };
-            reply.Trips.Add(protoTrip);
+            reply.Trips.Add(ToTripDto(trip));
         }
         return Task.FromResult(reply);
     }
 
     /// <summary>
-    /// Gets details for a single trip identified by destination, date and time.
+    /// Returns one page of trips ordered by id, filtered by destination prefix, date range and
+    /// free seats. The page token is the id of the last trip sent, so paging stays stable while
+    /// reservations change the seat counts.
     /// </summary>
-    public override Task<GetTripReply> GetTrip(GetTripRequest request, ServerCallContext context)
+    public override Task<GetTripsReply> GetTrips(GetTripsRequest request, ServerCallContext context)
     {
-        if (!DateOnly.TryParse(request.Date, out var date))
+        var afterId = 0;
+        if (request.PageToken.Length > 0 && !int.TryParse(request.PageToken, out afterId))
+            throw new RpcException(new Status(StatusCode.InvalidArgument, "Invalid page token"));
+        if (request.DateFrom.Length > 0 && !DateOnly.TryParse(request.DateFrom, out _))
             throw new RpcException(new Status(StatusCode.InvalidArgument, "Invalid date format"));
-        if (!TimeOnly.TryParse(request.Time, out var time))
-            throw new RpcException(new Status(StatusCode.InvalidArgument, "Invalid time format"));
+        if (request.DateTo.Length > 0 && !DateOnly.TryParse(request.DateTo, out _))
+            throw new RpcException(new Status(StatusCode.InvalidArgument, "Invalid date format"));
+
+        var pageSize = request.PageSize <= 0 ? DefaultTripsPageSize : Math.Min(request.PageSize, MaxTripsPageSize);
+
+        // one extra row tells whether another page follows
+        var trips = _tripRepository.FindPage(
+            request.DestinationPrefix.Length > 0 ? request.DestinationPrefix : null,
+            request.DateFrom.Length > 0 ? request.DateFrom : null,
+            request.DateTo.Length > 0 ? request.DateTo : null,
+            request.MinAvailableSeats,
+            afterId,
+            pageSize + 1).ToList();
 
-        var trip = _tripRepository.FindByDestinationAndDateAndTime(request.Destination, request.Date, request.Time);
+        var reply = new GetTripsReply();
+        foreach (var trip in trips.Take(pageSize))
+        {
+            var tripDto = ToTripDto(trip);
+            if (request.ReadMask != null && request.ReadMask.Paths.Count > 0)
+            {
+                var masked = new TripDTO();
+                request.ReadMask.Merge(tripDto, masked);
+                tripDto = masked;
+            }
+            reply.Trips.Add(tripDto);
+        }
+        if (trips.Count > pageSize)
+            reply.NextPageToken = trips[pageSize - 1].Id.ToString();
+
+        return Task.FromResult(reply);
+    }
+
+    /// <summary>
+    /// Gets details for a single trip identified by id, or by destination, date and time when
+    /// no id is sent.
+    /// </summary>
+    public override Task<GetTripReply> GetTrip(GetTripRequest request, ServerCallContext context)
+    {
+        var trip = FindTrip(request.TripId, request.Destination, request.Date, request.Time);
         _logger.LogInformation("Trip found:");
         _logger.LogInformation(trip?.ToString());
 
         if (trip == null)
             return Task.FromResult(new GetTripReply());
 
-        var tripDto = new TripDTO
-        {
-            Id = trip.Id,
-            Destination = trip.Destination.Name,
-            Date = trip.DepartureDate.ToString("yyyy-MM-dd"),
-            Time = trip.DepartureTime.ToString(@"HH\:mm"),
-            AvailableSeats = trip.AvailableSeats ?? 0
-        };
-
-        return Task.FromResult(new GetTripReply { Trip = tripDto });
+        return Task.FromResult(new GetTripReply { Trip = ToTripDto(trip) });
     }
 
     /// <summary>
@@ -161,37 +206,125 @@ public class TransportCompanyService : TransportCompany.GrpcServer.TransportComp
     /// </summary>
     public override Task<SearchTripSeatsReply> SearchTripSeats(SearchTripSeatsRequest request, ServerCallContext context)
     {
-        if (!DateOnly.TryParse(request.Date, out var date))
-            throw new RpcException(new Status(StatusCode.InvalidArgument, "Invalid date format"));
-        if (!TimeOnly.TryParse(request.Time, out var time))
-            throw new RpcException(new Status(StatusCode.InvalidArgument, "Invalid time format"));
-
         if (_reservedSeatRepository == null)
             throw new NotSupportedException("ReservedSeatRepository not available");
 
-        var reservedSeats = _reservedSeatRepository.FindByTripDestinationDateTime(
-            request.Destination, request.Date, request.Time);
+        var reservedSeats = FindReservedSeats(request.TripId, request.Destination, request.Date, request.Time);
 
         var reply = new SearchTripSeatsReply();
+        // holds are kept by trip id; without reservations to read it from, look the trip up
+        var tripId = request.TripId > 0
+            ? request.TripId
+            : reservedSeats.FirstOrDefault()?.Trip?.Id
+              ?? FindTrip(0, request.Destination, request.Date, request.Time)?.Id
+              ?? 0;
+        var heldSeats = _seatHolds.HeldSeats(tripId, DateTime.UtcNow);
+        if (request.CompactSeats)
+            reply.SeatMap = BuildCompactSeatMap(reservedSeats, heldSeats);
+        else
+            reply.Seats.AddRange(BuildSeatMap(reservedSeats, heldSeats));
+
+        return Task.FromResult(reply);
+    }
+
+    /// <summary>
+    /// Returns the trip and its seat map in a single call. Both are read under the seats lock,
+    /// so a reservation cannot land between the two reads.
+    /// </summary>
+    public override Task<GetTripWithSeatsReply> GetTripWithSeats(GetTripRequest request, ServerCallContext context)
+    {
+        var reply = new GetTripWithSeatsReply();
+        lock (SeatsLock)
+        {
+            var trip = FindTrip(request.TripId, request.Destination, request.Date, request.Time);
+            if (trip == null)
+                return Task.FromResult(reply);
+
+            // the trip is known now, so the seats are looked up by its primary key
+            var reservedSeats = _reservedSeatRepository.FindByTripId(trip.Id);
+
+            reply.Trip = ToTripDto(trip);
+            var heldSeats = _seatHolds.HeldSeats(trip.Id, DateTime.UtcNow);
+            if (request.CompactSeats)
+                reply.SeatMap = BuildCompactSeatMap(reservedSeats, heldSeats);
+            else
+                reply.Seats.AddRange(BuildSeatMap(reservedSeats, heldSeats));
+        }
+
+        return Task.FromResult(reply);
+    }
+
+    /// <summary>
+    /// Returns what changed since the position the client last synced at: the current state of
+    /// every trip that had seats reserved, or the ids of those that no longer exist, and the
+    /// reservations themselves in order. The reply size follows the number of changes, not the
+    /// size of the catalog. When the changes are no longer kept the client is told to reload.
+    /// </summary>
+    /// <remarks>
+    /// Changes come from the notification replay buffer, so trips added to the database
+    /// outside this server only show up on a full load.
+    /// </remarks>
+    public override Task<GetTripChangesReply> GetTripChanges(GetTripChangesRequest request, ServerCallContext context)
+    {
+        var reply = new GetTripChangesReply { Epoch = _notifications.Epoch };
+        if (!_notifications.TryGetChangesSince(request.Epoch, request.SinceSequence, out var sequence, out var changes))
+        {
+            reply.Sequence = sequence;
+            reply.SnapshotRequired = true;
+            return Task.FromResult(reply);
+        }
+        reply.Sequence = sequence;
 
-        for (int seat = 1; seat <= 18; seat++)
+        var changedTripIds = new SortedSet<int>();
+        foreach (var notification in changes)
         {
-            string clientName = reservedSeats.FirstOrDefault(s => s.SeatNumber == seat)?.Client?.Name ?? "-";
-            reply.Seats.Add(new SeatDTO
+            if (notification.TripId != 0)
             {
-                SeatNumber = seat,
-                ClientName = clientName
-            });
+                var delta = new SeatsReservedDelta
+                {
+                    TripId = notification.TripId,
+                    ClientName = notification.ClientName,
+                    AvailableSeats = notification.AvailableSeats,
+                    Version = notification.Version
+                };
+                delta.SeatNumbers.AddRange(notification.SeatNumbers);
+                reply.SeatChanges.Add(delta);
+                changedTripIds.Add(notification.TripId);
+            }
+            foreach (var delta in notification.Deltas)
+            {
+                reply.SeatChanges.Add(delta);
+                changedTripIds.Add(delta.TripId);
+            }
         }
 
+        foreach (var tripId in changedTripIds)
+        {
+            var trip = _tripRepository.FindById(tripId);
+            if (trip == null)
+                reply.RemovedTripIds.Add(tripId);
+            else
+                reply.Trips.Add(ToTripDto(trip));
+        }
         return Task.FromResult(reply);
     }
 
     /// <summary>
     /// Persists a batch of seat reservations and notifies all other online employees via server-streaming.
     /// </summary>
-    public override async Task<ReserveSeatsReply> ReserveSeats(ReserveSeatsRequest request, ServerCallContext context)
+    /// <remarks>
+    /// Clients that send the trip version they read answer seat conflicts with a
+    /// <see cref="ReservationConflict"/> listing the lost seats and the current seat map; older
+    /// clients still get a <c>FailedPrecondition</c> status. Seats held by another office count
+    /// as taken; the employee's own holds on the reserved seats end with the reservation.
+    /// </remarks>
+    public override Task<ReserveSeatsReply> ReserveSeats(ReserveSeatsRequest request, ServerCallContext context)
     {
+        if (request.SeatNumbers.Count == 0
+            || request.SeatNumbers.Any(n => n < 1 || n > SeatsPerTrip)
+            || request.SeatNumbers.Distinct().Count() != request.SeatNumbers.Count)
+            throw new RpcException(new Status(StatusCode.InvalidArgument, "Invalid seat number"));
+
         var client = _clientRepository.FindByName(request.ClientName);
         if (client == null)
         {
@@ -199,78 +332,415 @@ public class TransportCompanyService : TransportCompany.GrpcServer.TransportComp
             client = _clientRepository.Save(client);
         }
 
-        var trip = _tripRepository.FindById(request.Trip.Id);
-        if (trip == null)
-            throw new RpcException(new Status(StatusCode.NotFound, "Trip not found"));
-
         var employee = _employeeRepository.FindById(request.EmployeeId);
         if (employee == null)
             throw new RpcException(new Status(StatusCode.NotFound, "Employee not found"));
-        
-        if (!_reservedSeatRepository.AreSeatsAvailable(trip.Id, request.SeatNumbers))
-        {
-            throw new RpcException(
-                new Status(
-                    StatusCode.FailedPrecondition,
-                    "Some seats are already reserved."
-                ),
-                "Some seats are already reserved.");
-        }
 
-        foreach (var seatNumber in request.SeatNumbers)
+        Trip? trip;
+        lock (SeatsLock)
         {
-            var reservedSeat = new ReservedSeat
+            trip = _tripRepository.FindById(request.TripId > 0 ? request.TripId : request.Trip.Id);
+            if (trip == null)
+                throw new RpcException(new Status(StatusCode.NotFound, "Trip not found"));
+
+            if (!_reservedSeatRepository.AreSeatsAvailable(trip.Id, request.SeatNumbers)
+                || _seatHolds.HeldByOthers(employee.Id, trip.Id, request.SeatNumbers, DateTime.UtcNow).Count > 0)
+            {
+                if (request.HasExpectedVersion)
+                    return Task.FromResult(BuildConflictReply(trip, request.SeatNumbers, employee.Id));
+
+                throw new RpcException(
+                    new Status(
+                        StatusCode.FailedPrecondition,
+                        "Some seats are already reserved."
+                    ),
+                    "Some seats are already reserved.");
+            }
+
+            foreach (var seatNumber in request.SeatNumbers)
             {
-                Trip = trip,
-                Employee = employee,
-                SeatNumber = seatNumber,
-                Client = client!
+                var reservedSeat = new ReservedSeat
+                {
+                    Trip = trip,
+                    Employee = employee,
+                    SeatNumber = seatNumber,
+                    Client = client!
+                };
+                _reservedSeatRepository.Save(reservedSeat);
+            }
+
+            trip.AvailableSeats = (trip.AvailableSeats ?? 0) - request.SeatNumbers.Count;
+            trip.Version += request.SeatNumbers.Count;
+            _seatHolds.ReleaseReserved(employee.Id, trip.Id, request.SeatNumbers);
+
+            var notification = new NotifySeatsReservedReply
+            {
+                TripId = trip.Id,
+                ClientName = client!.Name,
+                AvailableSeats = trip.AvailableSeats ?? 0,
+                Version = trip.Version
             };
-            _reservedSeatRepository.Save(reservedSeat);
+            notification.SeatNumbers.AddRange(request.SeatNumbers);
+
+            // still under the lock: sequence numbers follow the trip versions (Publish never blocks)
+            _notifications.Publish(employee.Id, notification);
         }
 
-        trip.AvailableSeats = (trip.AvailableSeats ?? 0) - request.SeatNumbers.Count;
+        var reply = new ReserveSeatsReply
+        {
+            Success = true,
+            Message = $"Reserved {request.SeatNumbers.Count} seat(s) for {client!.Name} on trip {trip.Id}",
+            Version = trip.Version
+        };
+
+        return Task.FromResult(reply);
+    }
+
+    /// <summary>
+    /// Applies several reservations in one call, each item on its own: an item whose seats are
+    /// taken fails without affecting the others. All applied items are broadcast together as a
+    /// single notification carrying one delta per item.
+    /// </summary>
+    public override Task<ReserveSeatsBatchReply> ReserveSeatsBatch(ReserveSeatsBatchRequest request, ServerCallContext context)
+    {
+        var employee = _employeeRepository.FindById(request.EmployeeId);
+        if (employee == null)
+            throw new RpcException(new Status(StatusCode.NotFound, "Employee not found"));
 
-        foreach (var entry in EmployeeStreams)
+        var reply = new ReserveSeatsBatchReply();
+        var notification = new NotifySeatsReservedReply();
+        lock (SeatsLock)
         {
-            if (entry.Key != employee.Id)
+            foreach (var item in request.Items)
             {
-                try
+                var trip = _tripRepository.FindById(item.TripId);
+                if (trip == null)
+                {
+                    reply.Results.Add(new ReservationItemResult { Success = false, Message = "Trip not found" });
+                    continue;
+                }
+
+                // [3,3] would save the seat twice and count it twice; an empty item would publish an empty delta
+                if (item.SeatNumbers.Count == 0 || item.SeatNumbers.Distinct().Count() != item.SeatNumbers.Count)
+                {
+                    reply.Results.Add(new ReservationItemResult
+                    {
+                        Success = false,
+                        Message = "Each seat number must be given exactly once.",
+                        AvailableSeats = trip.AvailableSeats ?? 0
+                    });
+                    continue;
+                }
+
+                if (item.SeatNumbers.Any(n => n < 1 || n > SeatsPerTrip)
+                    || !_reservedSeatRepository.AreSeatsAvailable(trip.Id, item.SeatNumbers)
+                    || _seatHolds.HeldByOthers(employee.Id, trip.Id, item.SeatNumbers, DateTime.UtcNow).Count > 0)
                 {
-                    await entry.Value.WriteAsync(new NotifySeatsReservedReply());
+                    reply.Results.Add(new ReservationItemResult
+                    {
+                        Success = false,
+                        Message = "Some seats are already reserved.",
+                        AvailableSeats = trip.AvailableSeats ?? 0
+                    });
+                    continue;
                 }
-                catch
+
+                var client = _clientRepository.FindByName(item.ClientName)
+                             ?? _clientRepository.Save(new Client { Name = item.ClientName });
+
+                foreach (var seatNumber in item.SeatNumbers)
                 {
-                    EmployeeStreams.TryRemove(entry.Key, out _);
+                    _reservedSeatRepository.Save(new ReservedSeat
+                    {
+                        Trip = trip,
+                        Employee = employee,
+                        SeatNumber = seatNumber,
+                        Client = client!
+                    });
                 }
+
+                _seatHolds.ReleaseReserved(employee.Id, trip.Id, item.SeatNumbers);
+                var availableSeats = (trip.AvailableSeats ?? 0) - item.SeatNumbers.Count;
+                var delta = new SeatsReservedDelta
+                {
+                    TripId = trip.Id,
+                    ClientName = client!.Name,
+                    AvailableSeats = availableSeats,
+                    Version = trip.Version + item.SeatNumbers.Count
+                };
+                delta.SeatNumbers.AddRange(item.SeatNumbers);
+                notification.Deltas.Add(delta);
+
+                reply.Results.Add(new ReservationItemResult
+                {
+                    Success = true,
+                    Message = $"Reserved {item.SeatNumbers.Count} seat(s) for {client.Name} on trip {trip.Id}",
+                    AvailableSeats = availableSeats
+                });
             }
+
+            // still under the lock: sequence numbers follow the trip versions (Publish never blocks)
+            if (notification.Deltas.Count > 0)
+                _notifications.Publish(employee.Id, notification);
         }
 
-        var reply = new ReserveSeatsReply
+        return Task.FromResult(reply);
+    }
+
+    /// <summary>
+    /// Holds free seats of a trip for the calling employee for a limited time, or renews an
+    /// existing hold. Other offices see the seats as held in their seat maps and cannot reserve
+    /// or hold them until the hold is released, used or expires.
+    /// </summary>
+    public override Task<HoldSeatsReply> HoldSeats(HoldSeatsRequest request, ServerCallContext context)
+    {
+        var lease = SeatHoldRegistry.LeaseFor(request.LeaseSeconds);
+        var seatNumbers = request.SeatNumbers.Distinct().ToList();
+        if (seatNumbers.Any(n => n < 1 || n > SeatsPerTrip))
+            throw new RpcException(new Status(StatusCode.InvalidArgument, "Invalid seat number"));
+
+        SeatHoldRegistry.SeatHold? hold;
+        List<SeatHoldRegistry.SeatHold> released;
+        lock (SeatsLock)
+        {
+            var trip = _tripRepository.FindById(request.TripId);
+            if (trip == null)
+                throw new RpcException(new Status(StatusCode.NotFound, "Trip not found"));
+
+            if (!_reservedSeatRepository.AreSeatsAvailable(trip.Id, seatNumbers)
+                || _seatHolds.HeldByOthers(request.EmployeeId, trip.Id, seatNumbers, DateTime.UtcNow).Count > 0)
+            {
+                return Task.FromResult(new HoldSeatsReply
+                {
+                    Success = false,
+                    Conflict = BuildConflict(trip, seatNumbers, request.EmployeeId)
+                });
+            }
+
+            hold = _seatHolds.Hold(request.EmployeeId, trip.Id, seatNumbers,
+                                   request.HoldId, lease, DateTime.UtcNow, out released);
+            if (hold == null)
+                throw new RpcException(new Status(StatusCode.NotFound, "Hold expired"));
+
+            // a renewal of the same seats changes nothing the other offices can see
+            var notification = new NotifySeatsReservedReply();
+            foreach (var previous in released)
+            {
+                var freed = previous.SeatNumbers
+                    .Where(n => previous.TripId != hold.TripId || !hold.SeatNumbers.Contains(n))
+                    .ToList();
+                if (freed.Count == 0)
+                    continue;
+                var delta = new SeatsHeldDelta { TripId = previous.TripId, Held = false };
+                delta.SeatNumbers.AddRange(freed);
+                notification.Holds.Add(delta);
+            }
+            var added = hold.SeatNumbers
+                .Where(n => !released.Any(p => p.EmployeeId == hold.EmployeeId && p.TripId == hold.TripId
+                                               && p.SeatNumbers.Contains(n)))
+                .ToList();
+            if (added.Count > 0)
+            {
+                var delta = new SeatsHeldDelta { TripId = hold.TripId, Held = true };
+                delta.SeatNumbers.AddRange(added);
+                notification.Holds.Add(delta);
+            }
+            // still under the lock, like the reservations, so the events keep the order of the changes
+            if (notification.Holds.Count > 0)
+                _notifications.Publish(request.EmployeeId, notification);
+        }
+
+        return Task.FromResult(new HoldSeatsReply
         {
             Success = true,
-            Message = $"Reserved {request.SeatNumbers.Count} seat(s) for {client!.Name} on trip {trip.Id}"
-        };
+            HoldId = hold.Id,
+            LeaseSeconds = (int)lease.TotalSeconds
+        });
+    }
 
-        return reply;
+    /// <summary>
+    /// Releases a hold before it expires, e.g. when the reservation form is closed.
+    /// </summary>
+    public override Task<ReleaseSeatsReply> ReleaseSeats(ReleaseSeatsRequest request, ServerCallContext context)
+    {
+        var hold = _seatHolds.Release(request.EmployeeId, request.HoldId);
+        if (hold != null)
+            _notifications.Publish(request.EmployeeId, HoldsNotification(new[] { hold }, held: false));
+
+        return Task.FromResult(new ReleaseSeatsReply { Success = hold != null });
     }
 
     /// <summary>
     /// Long-lived streaming RPC – every employee keeps this open to receive <see cref="NotifySeatsReservedReply"/> events.
+    /// Each event carries the trip id, the reserved seat numbers, the client and the new seat count,
+    /// so clients can patch their view instead of reloading it.
+    /// Events are numbered; a client that reconnects with the epoch and sequence number of the
+    /// last event it saw first receives the events it missed, or <c>ResyncRequired</c> when
+    /// they are no longer kept and it has to reload.
     /// </summary>
     public override async Task NotifySeatsReserved(NotifySeatsReservedRequest request, IServerStreamWriter<NotifySeatsReservedReply> responseStream, ServerCallContext context)
     {
-        EmployeeStreams[request.EmployeeId] = responseStream; 
+        var queue = _notifications.Subscribe(request.EmployeeId, request.Epoch, request.AfterSequence);
         try
         {
-            while (!context.CancellationToken.IsCancellationRequested)
+            // headers right away, so the client knows the stream is up before the first event
+            await context.WriteResponseHeadersAsync(new Metadata());
+            await foreach (var notification in queue.ReadAllAsync(context.CancellationToken))
             {
-                await Task.Delay(1000);
+                await responseStream.WriteAsync(notification);
             }
         }
+        catch (OperationCanceledException)
+        {
+            // the client went away
+        }
         finally
         {
-            EmployeeStreams.TryRemove(request.EmployeeId, out _);
+            _notifications.Unsubscribe(request.EmployeeId, queue);
+        }
+    }
+
+    /// <summary>
+    /// Looks a trip up by primary key when the client sent one; otherwise falls back to the
+    /// destination, date and time strings, which are validated first.
+    /// </summary>
+    private Trip? FindTrip(int tripId, string destination, string date, string time)
+    {
+        if (tripId > 0)
+            return _tripRepository.FindById(tripId);
+
+        ValidateDateAndTime(date, time);
+        return _tripRepository.FindByDestinationAndDateAndTime(destination, date, time);
+    }
+
+    private List<ReservedSeat> FindReservedSeats(int tripId, string destination, string date, string time)
+    {
+        if (tripId > 0)
+            return _reservedSeatRepository.FindByTripId(tripId);
+
+        ValidateDateAndTime(date, time);
+        return _reservedSeatRepository.FindByTripDestinationDateTime(destination, date, time);
+    }
+
+    private static void ValidateDateAndTime(string date, string time)
+    {
+        if (!DateOnly.TryParse(date, out _))
+            throw new RpcException(new Status(StatusCode.InvalidArgument, "Invalid date format"));
+        if (!TimeOnly.TryParse(time, out _))
+            throw new RpcException(new Status(StatusCode.InvalidArgument, "Invalid time format"));
+    }
+
+    /// <summary>
+    /// Answers a reservation whose seats were taken meanwhile with the seats that were lost and
+    /// the current state of the trip. Must be called under <see cref="SeatsLock"/>.
+    /// </summary>
+    private ReserveSeatsReply BuildConflictReply(Trip trip, IEnumerable<int> requestedSeats, int employeeId)
+    {
+        return new ReserveSeatsReply
+        {
+            Success = false,
+            Message = "Some seats are already reserved.",
+            Version = trip.Version,
+            Conflict = BuildConflict(trip, requestedSeats, employeeId)
+        };
+    }
+
+    /// <summary>
+    /// The requested seats that are reserved or held by another employee, with the current trip
+    /// and seat map. Must be called under <see cref="SeatsLock"/>.
+    /// </summary>
+    private ReservationConflict BuildConflict(Trip trip, IEnumerable<int> requestedSeats, int employeeId)
+    {
+        var now = DateTime.UtcNow;
+        var reservedSeats = _reservedSeatRepository.FindByTripId(trip.Id);
+        var taken = reservedSeats
+            .Where(s => s.SeatNumber.HasValue)
+            .Select(s => s.SeatNumber!.Value)
+            .ToHashSet();
+        var requested = requestedSeats.ToList();
+        taken.UnionWith(_seatHolds.HeldByOthers(employeeId, trip.Id, requested, now));
+
+        var conflict = new ReservationConflict { Trip = ToTripDto(trip) };
+        conflict.LostSeats.AddRange(requested.Where(taken.Contains));
+        conflict.Seats.AddRange(BuildSeatMap(reservedSeats, _seatHolds.HeldSeats(trip.Id, now)));
+        return conflict;
+    }
+
+    private static NotifySeatsReservedReply HoldsNotification(IEnumerable<SeatHoldRegistry.SeatHold> holds, bool held)
+    {
+        var notification = new NotifySeatsReservedReply();
+        foreach (var hold in holds)
+        {
+            var delta = new SeatsHeldDelta { TripId = hold.TripId, Held = held };
+            delta.SeatNumbers.AddRange(hold.SeatNumbers);
+            notification.Holds.Add(delta);
         }
+        return notification;
+    }
+
+    private static IEnumerable<SeatDTO> BuildSeatMap(IEnumerable<ReservedSeat> reservedSeats, ISet<int> heldSeats)
+    {
+        var clientsBySeat = reservedSeats
+            .Where(s => s.SeatNumber.HasValue)
+            .GroupBy(s => s.SeatNumber!.Value)
+            .ToDictionary(g => g.Key, g => g.First().Client?.Name);
+
+        for (int seat = 1; seat <= SeatsPerTrip; seat++)
+        {
+            clientsBySeat.TryGetValue(seat, out var clientName);
+            yield return new SeatDTO
+            {
+                SeatNumber = seat,
+                ClientName = clientName ?? "-",
+                Held = clientName == null && heldSeats.Contains(seat)
+            };
+        }
+    }
+
+    /// <summary>
+    /// The same seat map as <see cref="BuildSeatMap"/> as two bitsets and the names of the
+    /// clients of the reserved seats: a few bytes per trip instead of a message per seat.
+    /// </summary>
+    private static SeatMapDTO BuildCompactSeatMap(IEnumerable<ReservedSeat> reservedSeats, ISet<int> heldSeats)
+    {
+        var clientsBySeat = reservedSeats
+            .Where(s => s.SeatNumber is >= 1 and <= SeatsPerTrip)
+            .GroupBy(s => s.SeatNumber!.Value)
+            .ToDictionary(g => g.Key, g => g.First().Client?.Name ?? "");
+
+        var reserved = new byte[(SeatsPerTrip + 7) / 8];
+        var held = new byte[reserved.Length];
+        var map = new SeatMapDTO { SeatCount = SeatsPerTrip };
+        for (int seat = 1; seat <= SeatsPerTrip; seat++)
+        {
+            var bit = (byte)(1 << ((seat - 1) % 8));
+            if (clientsBySeat.TryGetValue(seat, out var clientName))
+            {
+                reserved[(seat - 1) / 8] |= bit;
+                map.ClientNames.Add(clientName);    // in seat order, one per reserved bit
+            }
+            else if (heldSeats.Contains(seat))
+            {
+                held[(seat - 1) / 8] |= bit;
+            }
+        }
+        map.Reserved = ByteString.CopyFrom(reserved);
+        map.Held = ByteString.CopyFrom(held);
+        return map;
+    }
+
+    private static TripDTO ToTripDto(Trip trip)
+    {
+        return new TripDTO
+        {
+            Id = trip.Id,
+            Destination = trip.Destination.Name,
+            Date = trip.DepartureDate.ToString("yyyy-MM-dd"),
+            Time = trip.DepartureTime.ToString(@"HH\:mm"),
+            DepartureEpochDay = trip.DepartureDate.DayNumber - UnixEpoch.DayNumber,
+            DepartureSecondOfDay = (int)(trip.DepartureTime.Ticks / TimeSpan.TicksPerSecond),
+            AvailableSeats = trip.AvailableSeats ?? 0,
+            Version = trip.Version
+        };
     }
 }
\ No newline at end of file
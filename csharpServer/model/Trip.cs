@@ -13,6 +13,12 @@ public class Trip : Entity<int>
     public TimeOnly DepartureTime { get; set; }
     public int? AvailableSeats { get; set; }
 
+    /// <summary>
+    /// Changes every time seats of the trip are reserved. Reservations are never removed, so
+    /// the number of reserved seats serves as the version.
+    /// </summary>
+    public long Version { get; set; }
+
     public Trip() { }
 
     public Trip(int id, Destination destination, DateOnly departureDate, TimeOnly departureTime, int? availableSeats) : base(id)
@@ -6,5 +6,6 @@ namespace persistance;
 public interface IReservedSeatRepository : IRepository<int, ReservedSeat>
 {
     List<ReservedSeat> FindByTripDestinationDateTime(string destination, string dateString, string timeString);
+    List<ReservedSeat> FindByTripId(int tripId);
     bool AreSeatsAvailable(int tripId, IEnumerable<int> seatNumbers);
 }
\ No newline at end of file
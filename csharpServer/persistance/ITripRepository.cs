@@ -16,5 +16,17 @@ public interface ITripRepository : IRepository<int, Trip>
     
     Trip FindByDestinationAndDateAndTime(string destination, string dateString, string timeString);
 
+    /// <summary>
+    /// Returns up to <paramref name="limit"/> trips with an id greater than <paramref name="afterId"/>,
+    /// ordered by id, that match all the given filters. Null filters are ignored.
+    /// </summary>
+    /// <param name="destinationPrefix">Start of the destination name.</param>
+    /// <param name="dateFrom">First departure date (yyyy-MM-dd), inclusive.</param>
+    /// <param name="dateTo">Last departure date (yyyy-MM-dd), inclusive.</param>
+    /// <param name="minAvailableSeats">Minimum number of free seats.</param>
+    /// <param name="afterId">Id of the last trip of the previous page, 0 for the first page.</param>
+    /// <param name="limit">Maximum number of trips returned.</param>
+    IEnumerable<Trip> FindPage(string? destinationPrefix, string? dateFrom, string? dateTo, int minAvailableSeats, int afterId, int limit);
+
 
 }
\ No newline at end of file
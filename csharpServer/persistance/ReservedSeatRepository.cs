@@ -168,6 +168,49 @@ namespace persistance
             return reservedSeats;
         }
 
+        public List<ReservedSeat> FindByTripId(int tripId)
+        {
+            _logger.LogInformation("Find ReservedSeat by trip id: {TripId}", tripId);
+            var reservedSeats = new List<ReservedSeat>();
+            const string query = @"
+        SELECT rs.id, rs.seat_number, 
+               t.id as trip_id, t.departure_date, t.departure_time, t.available_seats, 
+               d.id as destination_id, d.name as destination_name,
+               e.id as employee_id, e.username as employee_name, e.username as employee_username, e.password as employee_password,
+               c.id as client_id, c.name as client_name
+        FROM ReservedSeats rs
+        JOIN Trip t ON rs.trip_id = t.id
+        JOIN Destination d ON t.destination_id = d.id
+        LEFT JOIN Employee e ON rs.employee_id = e.id
+        LEFT JOIN Client c ON rs.client_id = c.id
+        WHERE t.id = @trip_id";
+            try
+            {
+                using (var connection = jdbc.GetConnection())
+                using (var command = new SqliteCommand(query, (SqliteConnection)connection))
+                {
+                    command.Parameters.AddWithValue("@trip_id", tripId);
+                    connection.Open();
+                    using (var reader = command.ExecuteReader())
+                    {
+                        while (reader.Read())
+                        {
+                            var reservedSeat = ReadReservedSeatWithAll(reader);
+                            if (reservedSeat != null)
+                            {
+                                reservedSeats.Add(reservedSeat);
+                            }
+                        }
+                    }
+                }
+            }
+            catch (SqliteException e)
+            {
+                _logger.LogError(e, "Database error while finding ReservedSeat by trip id: {TripId}", tripId);
+            }
+            return reservedSeats;
+        }
+
         public bool AreSeatsAvailable(int tripId, IEnumerable<int> seatNumbers)
         {
             const string query = "SELECT seat_number FROM ReservedSeats WHERE trip_id = @trip_id AND seat_number IN ({0})";
@@ -17,6 +17,7 @@ namespace persistance
             _logger.LogInformation("Find Trip by ID: {Id}", id);
             const string query = @"SELECT t.id, t.departure_date, t.departure_time, 
                 t.available_seats - IFNULL((SELECT COUNT(*) FROM ReservedSeats rs WHERE rs.trip_id = t.id), 0) AS available_seats, 
+                IFNULL((SELECT COUNT(*) FROM ReservedSeats rs WHERE rs.trip_id = t.id), 0) AS reserved_seats, 
                 d.id as destination_id, d.name as destination_name
                 FROM Trip t JOIN Destination d ON t.destination_id = d.id WHERE t.id = @id";
             try
@@ -49,6 +50,7 @@ namespace persistance
             var trips = new List<Trip>();
             const string query = @"SELECT t.id, t.departure_date, t.departure_time, 
                 t.available_seats - IFNULL((SELECT COUNT(*) FROM ReservedSeats rs WHERE rs.trip_id = t.id), 0) AS available_seats, 
+                IFNULL((SELECT COUNT(*) FROM ReservedSeats rs WHERE rs.trip_id = t.id), 0) AS reserved_seats, 
                 d.id as destination_id, d.name as destination_name
                 FROM Trip t JOIN Destination d ON t.destination_id = d.id";
             try
@@ -83,6 +85,7 @@ namespace persistance
             var trips = new List<Trip>();
             const string query = @"SELECT t.id, t.departure_date, t.departure_time, 
                 t.available_seats - IFNULL((SELECT COUNT(*) FROM ReservedSeats rs WHERE rs.trip_id = t.id), 0) AS available_seats, 
+                IFNULL((SELECT COUNT(*) FROM ReservedSeats rs WHERE rs.trip_id = t.id), 0) AS reserved_seats, 
                 d.id as destination_id, d.name as destination_name
                 FROM Trip t JOIN Destination d ON t.destination_id = d.id WHERE t.destination_id = @destination_id";
             try
@@ -118,6 +121,7 @@ namespace persistance
             var trips = new List<Trip>();
             const string query = @"SELECT t.id, t.departure_date, t.departure_time, 
                 t.available_seats - IFNULL((SELECT COUNT(*) FROM ReservedSeats rs WHERE rs.trip_id = t.id), 0) AS available_seats, 
+                IFNULL((SELECT COUNT(*) FROM ReservedSeats rs WHERE rs.trip_id = t.id), 0) AS reserved_seats, 
                 d.id as destination_id, d.name as destination_name
                 FROM Trip t JOIN Destination d ON t.destination_id = d.id WHERE t.departure_date = @departure_date";
             try
@@ -255,6 +259,7 @@ namespace persistance
             var trips = new List<Trip>();
             const string query = @"SELECT t.id, t.departure_date, t.departure_time, 
                 t.available_seats - IFNULL((SELECT COUNT(*) FROM ReservedSeats rs WHERE rs.trip_id = t.id), 0) AS available_seats, 
+                IFNULL((SELECT COUNT(*) FROM ReservedSeats rs WHERE rs.trip_id = t.id), 0) AS reserved_seats, 
                 d.id as destination_id, d.name as destination_name
                 FROM Trip t JOIN Destination d ON t.destination_id = d.id WHERE d.name = @name";
 
@@ -292,6 +297,7 @@ namespace persistance
 
             const string query = @"
         SELECT t.id, t.departure_date, t.departure_time, t.available_seats - IFNULL((SELECT COUNT(*) FROM ReservedSeats rs WHERE rs.trip_id = t.id), 0) AS available_seats, 
+                IFNULL((SELECT COUNT(*) FROM ReservedSeats rs WHERE rs.trip_id = t.id), 0) AS reserved_seats, 
         d.id as destination_id, d.name as destination_name
         FROM Trip t
         JOIN Destination d ON t.destination_id = d.id
@@ -328,6 +334,61 @@ namespace persistance
             return null;
         }
 
+        public IEnumerable<Trip> FindPage(string? destinationPrefix, string? dateFrom, string? dateTo, int minAvailableSeats, int afterId, int limit)
+        {
+            _logger.LogInformation("Find Trips page: prefix={Prefix}, from={From}, to={To}, minSeats={MinSeats}, afterId={AfterId}, limit={Limit}",
+                destinationPrefix, dateFrom, dateTo, minAvailableSeats, afterId, limit);
+
+            var trips = new List<Trip>();
+            const string query = @"
+        SELECT * FROM (
+            SELECT t.id, t.departure_date, t.departure_time, 
+                t.available_seats - IFNULL((SELECT COUNT(*) FROM ReservedSeats rs WHERE rs.trip_id = t.id), 0) AS available_seats, 
+                IFNULL((SELECT COUNT(*) FROM ReservedSeats rs WHERE rs.trip_id = t.id), 0) AS reserved_seats, 
+                d.id as destination_id, d.name as destination_name
+            FROM Trip t
+            JOIN Destination d ON t.destination_id = d.id
+            WHERE t.id > @after_id
+              AND (@prefix IS NULL OR d.name LIKE @prefix || '%')
+              AND (@date_from IS NULL OR t.departure_date >= @date_from)
+              AND (@date_to IS NULL OR t.departure_date <= @date_to))
+        WHERE available_seats >= @min_seats
+        ORDER BY id
+        LIMIT @limit";
+
+            try
+            {
+                using (var connection = jdbc.GetConnection())
+                using (var command = new SqliteCommand(query, (SqliteConnection)connection))
+                {
+                    command.Parameters.AddWithValue("@after_id", afterId);
+                    command.Parameters.AddWithValue("@prefix", (object?)destinationPrefix ?? DBNull.Value);
+                    command.Parameters.AddWithValue("@date_from", (object?)dateFrom ?? DBNull.Value);
+                    command.Parameters.AddWithValue("@date_to", (object?)dateTo ?? DBNull.Value);
+                    command.Parameters.AddWithValue("@min_seats", minAvailableSeats);
+                    command.Parameters.AddWithValue("@limit", limit);
+                    connection.Open();
+                    using (var reader = command.ExecuteReader())
+                    {
+                        while (reader.Read())
+                        {
+                            var trip = ReadTripWithDestination(reader);
+                            if (trip != null)
+                            {
+                                trips.Add(trip);
+                            }
+                        }
+                    }
+                }
+            }
+            catch (SqliteException e)
+            {
+                _logger.LogError(e, "Database error while finding Trips page after ID {AfterId}", afterId);
+            }
+
+            return trips;
+        }
+
         private Trip? ReadTripWithDestination(SqliteDataReader reader)
         {
             try
@@ -338,8 +399,9 @@ namespace persistance
                 var departureDate = DateOnly.FromDateTime(reader.GetDateTime(reader.GetOrdinal("departure_date")));
                 var departureTime = TimeOnly.FromTimeSpan(reader.GetDateTime(reader.GetOrdinal("departure_time")).TimeOfDay);
                 var availableSeats = reader.GetInt32(reader.GetOrdinal("available_seats"));
+                var reservedSeats = reader.GetInt64(reader.GetOrdinal("reserved_seats"));
                 var destination = new Destination(destinationId, destinationName);
-                return new Trip(id, destination, departureDate, departureTime, availableSeats);
+                return new Trip(id, destination, departureDate, departureTime, availableSeats) { Version = reservedSeats };
             }
             catch (SqliteException e)
             {
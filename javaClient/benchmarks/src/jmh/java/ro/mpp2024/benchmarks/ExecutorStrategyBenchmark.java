@@ -0,0 +1,90 @@
+package ro.mpp2024.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import ro.mpp2024.AsyncServicesAdapter;
+import ro.mpp2024.GrpcServicesProxy;
+import ro.mpp2024.IAsyncServices;
+import ro.mpp2024.proto.TransportCompanyGrpc;
+import ro.mpp2024.utils.CallStats;
+import ro.mpp2024.utils.ExecutorStrategy;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code concurrency} seat-map requests issued at once through {@link AsyncServicesAdapter}
+ * and one {@link GrpcServicesProxy}, as the view does, with the services and the channel's
+ * callbacks on the given {@link ExecutorStrategy}. The time is for the whole burst; the peak
+ * number of live threads and the latency of the requests (from the start of their burst to
+ * their reply) are printed after every iteration. Run with {@code -Pjmh.profilers=gc} for the memory allocated per burst; each platform
+ * thread also reserves a stack outside the heap ({@code -Xss}, 1 MiB by default).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExecutorStrategyBenchmark {
+    private static final int POOL_SIZE = 16;
+
+    @Param({"1000"})
+    public int concurrency;
+
+    @Param({"VIRTUAL", "POOL", "DIRECT"})
+    public ExecutorStrategy strategy;
+
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private StandInServer server;
+    private ExecutorService servicesExecutor;
+    private ExecutorService callbackExecutor;
+    private IAsyncServices services;
+    private CallStats requests;
+    private int tripCount;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        StandInTransportCompany service = new StandInTransportCompany(2000, 18);
+        tripCount = service.getTrips().size();
+        server = StandInServer.start(service, StandInServer.Transport.LOOPBACK);
+        servicesExecutor = strategy.newExecutor("services", POOL_SIZE);
+        callbackExecutor = strategy.newExecutor("grpc-callback", POOL_SIZE);
+        GrpcServicesProxy proxy = new GrpcServicesProxy(TransportCompanyGrpc.newBlockingStub(server.newChannel(callbackExecutor)));
+        services = new AsyncServicesAdapter(proxy, servicesExecutor);
+    }
+
+    @Setup(Level.Iteration)
+    public void startIteration() {
+        requests = new CallStats("SearchTripSeats");
+        threads.resetPeakThreadCount();
+    }
+
+    @TearDown(Level.Iteration)
+    public void endIteration() {
+        System.out.printf("%n[threads] %s: peak %d live threads; request p50 %.2f ms, p99 %.2f ms, max %.2f ms%n",
+                          strategy, threads.getPeakThreadCount(), requests.getP50Millis(), requests.getP99Millis(),
+                          requests.getMaxMillis());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        servicesExecutor.shutdownNow();
+        callbackExecutor.shutdownNow();
+        server.close();
+    }
+
+    @Benchmark
+    public void burst() {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[concurrency];
+        long start = System.nanoTime();
+        for (int i = 0; i < concurrency; i++) {
+            futures[i] = services.searchTripSeatsById(1 + i % tripCount)
+                                 .whenComplete((seats, error) -> requests.record(System.nanoTime() - start));
+        }
+        CompletableFuture.allOf(futures).join();
+    }
+}
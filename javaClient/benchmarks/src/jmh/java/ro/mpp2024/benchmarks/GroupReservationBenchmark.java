@@ -0,0 +1,152 @@
+package ro.mpp2024.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import ro.mpp2024.Employee;
+import ro.mpp2024.GrpcServicesProxy;
+import ro.mpp2024.IObserver;
+import ro.mpp2024.ReservationRequest;
+import ro.mpp2024.ReservationResult;
+import ro.mpp2024.SeatsReservedEvent;
+import ro.mpp2024.ServicesException;
+import ro.mpp2024.Trip;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A group booking of {@code groupSize} seats spread over several trips, made either as one
+ * <code>reserveSeats</code> call per trip or as a single <code>reserveSeatsBatch</code>.
+ * An operation ends when every other office received every delta of the group.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GroupReservationBenchmark {
+    private static final int SEATS_PER_TRIP = 18;
+
+    @Param({"IN_PROCESS", "LOOPBACK"})
+    public StandInServer.Transport transport;
+
+    @Param({"2", "8"})
+    public int groupSize;
+
+    @Param({"10"})
+    public int subscribers;
+
+    private StandInTransportCompany service;
+    private StandInServer server;
+    private GrpcServicesProxy reserver;
+    private Employee employee;
+    private final List<GrpcServicesProxy> others = new ArrayList<>();
+    private final List<Employee> otherEmployees = new ArrayList<>();
+
+    private volatile CountDownLatch delivered;
+    private FreeSeatCursor freeSeats;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, ServicesException {
+        service = new StandInTransportCompany(10000, SEATS_PER_TRIP);
+        server = StandInServer.start(service, transport);
+        freeSeats = new FreeSeatCursor(service, SEATS_PER_TRIP);
+
+        reserver = server.newProxy();
+        employee = reserver.login("reserver", "", () -> { });
+
+        IObserver countDown = new IObserver() {
+            @Override
+            public void seatsReserved() {
+            }
+
+            @Override
+            public void seatsReserved(SeatsReservedEvent event) {
+                delivered.countDown();
+            }
+
+            @Override
+            public void seatsReserved(List<SeatsReservedEvent> events) {
+                CountDownLatch latch = delivered;
+                for (int i = 0; i < events.size(); i++) {
+                    latch.countDown();
+                }
+            }
+        };
+        for (int i = 0; i < subscribers; i++) {
+            GrpcServicesProxy proxy = server.newProxy();
+            otherEmployees.add(proxy.login("office-" + i, "", countDown));
+            others.add(proxy);
+        }
+        // login() returns before the notification streams reach the server
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (service.openStreams() < subscribers + 1) {
+            if (System.nanoTime() > deadline)
+                throw new IllegalStateException("Notification streams did not open");
+            Thread.onSpinWait();
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void resetCatalog() {
+        freeSeats.reset();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException, ServicesException {
+        reserver.logout(employee);
+        for (int i = 0; i < others.size(); i++) {
+            others.get(i).logout(otherEmployees.get(i));
+        }
+        server.close();
+    }
+
+    @Benchmark
+    public void sequential() throws ServicesException, InterruptedException, TimeoutException {
+        CountDownLatch latch = expectDeltas();
+        for (ReservationRequest reservation : nextGroup()) {
+            reserver.reserveSeats(reservation.getClientName(), reservation.getSeatNumbers(),
+                                  reservation.getTrip(), employee);
+        }
+        await(latch);
+    }
+
+    @Benchmark
+    public List<ReservationResult> batch() throws ServicesException, InterruptedException, TimeoutException {
+        CountDownLatch latch = expectDeltas();
+        List<ReservationResult> results = reserver.reserveSeatsBatch(nextGroup(), employee);
+        await(latch);
+        return results;
+    }
+
+    private CountDownLatch expectDeltas() {
+        CountDownLatch latch = new CountDownLatch(subscribers * groupSize);
+        delivered = latch;
+        return latch;
+    }
+
+    private void await(CountDownLatch latch) throws InterruptedException, TimeoutException {
+        if (!latch.await(10, TimeUnit.SECONDS))
+            throw new TimeoutException(latch.getCount() + " deltas were not delivered");
+    }
+
+    /**
+     * One seat on each of {@code groupSize} different trips, like a round trip with stopovers.
+     */
+    private List<ReservationRequest> nextGroup() {
+        List<ReservationRequest> group = new ArrayList<>(groupSize);
+        Trip previous = null;
+        while (group.size() < groupSize) {
+            Trip trip = freeSeats.next();
+            if (trip == previous)
+                continue;
+            group.add(new ReservationRequest("Group Client", trip, List.of(freeSeats.seatNumber())));
+            previous = trip;
+        }
+        return group;
+    }
+}
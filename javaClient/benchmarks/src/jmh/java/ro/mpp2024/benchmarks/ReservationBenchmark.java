@@ -0,0 +1,114 @@
+package ro.mpp2024.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import ro.mpp2024.Employee;
+import ro.mpp2024.GrpcServicesProxy;
+import ro.mpp2024.IObserver;
+import ro.mpp2024.SeatsReservedEvent;
+import ro.mpp2024.ServicesException;
+import ro.mpp2024.Trip;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * <code>reserveSeats</code> as seen by the office making the reservation, and the time until
+ * every other logged-in office received the resulting notification. Each operation reserves
+ * one free seat; the catalog is reset before every iteration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReservationBenchmark {
+    private static final int SEATS_PER_TRIP = 18;
+
+    @Param({"IN_PROCESS", "LOOPBACK"})
+    public StandInServer.Transport transport;
+
+    @Param({"1", "10", "50"})
+    public int subscribers;
+
+    @Param({"10000"})
+    public int catalogSize;
+
+    private StandInTransportCompany service;
+    private StandInServer server;
+    private GrpcServicesProxy reserver;
+    private Employee employee;
+    private final List<GrpcServicesProxy> others = new ArrayList<>();
+    private final List<Employee> otherEmployees = new ArrayList<>();
+
+    private volatile CountDownLatch delivered;
+    private FreeSeatCursor freeSeats;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, ServicesException {
+        service = new StandInTransportCompany(catalogSize, SEATS_PER_TRIP);
+        server = StandInServer.start(service, transport);
+        freeSeats = new FreeSeatCursor(service, SEATS_PER_TRIP);
+
+        reserver = server.newProxy();
+        employee = reserver.login("reserver", "", () -> { });
+
+        IObserver countDown = new IObserver() {
+            @Override
+            public void seatsReserved() {
+            }
+
+            @Override
+            public void seatsReserved(SeatsReservedEvent event) {
+                delivered.countDown();
+            }
+        };
+        for (int i = 0; i < subscribers; i++) {
+            GrpcServicesProxy proxy = server.newProxy();
+            otherEmployees.add(proxy.login("office-" + i, "", countDown));
+            others.add(proxy);
+        }
+        // login() returns before the notification streams reach the server
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (service.openStreams() < subscribers + 1) {
+            if (System.nanoTime() > deadline)
+                throw new IllegalStateException("Notification streams did not open");
+            Thread.onSpinWait();
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void resetCatalog() {
+        freeSeats.reset();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException, ServicesException {
+        reserver.logout(employee);
+        for (int i = 0; i < others.size(); i++) {
+            others.get(i).logout(otherEmployees.get(i));
+        }
+        server.close();
+    }
+
+    @Benchmark
+    public void reserveSeats() throws ServicesException {
+        delivered = new CountDownLatch(subscribers);
+        Trip trip = freeSeats.next();
+        reserver.reserveSeats("Bench Client", List.of(freeSeats.seatNumber()), trip, employee);
+    }
+
+    @Benchmark
+    public void reserveSeatsAndFanOut() throws ServicesException, InterruptedException, TimeoutException {
+        CountDownLatch latch = new CountDownLatch(subscribers);
+        delivered = latch;
+        Trip trip = freeSeats.next();
+        reserver.reserveSeats("Bench Client", List.of(freeSeats.seatNumber()), trip, employee);
+        if (!latch.await(10, TimeUnit.SECONDS))
+            throw new TimeoutException(latch.getCount() + " of " + subscribers + " notifications missing");
+    }
+}
@@ -0,0 +1,73 @@
+package ro.mpp2024.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import ro.mpp2024.GrpcServicesProxy;
+import ro.mpp2024.Seat;
+import ro.mpp2024.ServicesException;
+import ro.mpp2024.Trip;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <code>GetAllTrips</code> and <code>SearchTripSeats</code> through {@link GrpcServicesProxy}
+ * over HTTP/2 on localhost, with response compression off ({@code -1}) or on for replies of
+ * at least {@code compressionThreshold} bytes. Localhost has no bandwidth limit, so the
+ * times show the CPU cost of gzip on both ends; the bytes each reply puts on the wire, and
+ * what that means on a slow link, are printed at the start of every trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseCompressionBenchmark {
+    private static final double VPN_LINK_MBITS = 10;
+
+    @Param({"10000", "100000"})
+    public int catalogSize;
+
+    @Param({"-1", "8192"})
+    public int compressionThreshold;
+
+    private StandInServer server;
+    private GrpcServicesProxy proxy;
+    private int tripId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, ServicesException {
+        StandInTransportCompany service = new StandInTransportCompany(catalogSize, 18);
+        server = StandInServer.start(service, StandInServer.Transport.LOOPBACK, compressionThreshold);
+        proxy = server.newProxy();
+        tripId = service.getTrips().get(0).getId();
+
+        long before = server.outboundWireBytes();
+        proxy.getAllTrips();
+        long listing = server.outboundWireBytes() - before;
+        before = server.outboundWireBytes();
+        proxy.searchTripSeatsById(tripId);
+        long seats = server.outboundWireBytes() - before;
+        System.out.printf("%n[wire] catalog=%d trips, threshold=%d: GetAllTrips %d of %d bytes (%.0f ms at %.0f Mbit/s), "
+                                  + "SearchTripSeats %d bytes%n",
+                          catalogSize, compressionThreshold, listing, service.allTripsReply().getSerializedSize(),
+                          listing * 8 / (VPN_LINK_MBITS * 1000), VPN_LINK_MBITS, seats);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        server.close();
+    }
+
+    @Benchmark
+    public List<Trip> fullDump() throws ServicesException {
+        return proxy.getAllTrips();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<Seat> seats() throws ServicesException {
+        return proxy.searchTripSeatsById(tripId);
+    }
+}
@@ -0,0 +1,93 @@
+package ro.mpp2024.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import ro.mpp2024.Seat;
+import ro.mpp2024.SeatMap;
+import ro.mpp2024.proto.SeatDTO;
+import ro.mpp2024.proto.SeatMapDTO;
+import ro.mpp2024.proto.SearchTripSeatsReply;
+import ro.mpp2024.utils.DTOUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decodes the seat maps of a whole catalog into what the client caches, the way the proxy
+ * does for every <code>SearchTripSeats</code> reply. {@code LIST} is one {@link SeatDTO} per
+ * seat turned into one {@link Seat} per seat; {@code COMPACT} is a {@link SeatMapDTO} turned
+ * into a {@link SeatMap}. The reply bytes and the heap kept for the decoded maps are printed
+ * at the start of every trial; run with {@code -Pjmh.profilers=gc} for the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SeatMapBenchmark {
+    @Param({"5000"})
+    public int tripCount;
+
+    @Param({"18", "60"})
+    public int seatsPerTrip;
+
+    @Param({"LIST", "COMPACT"})
+    public String encoding;
+
+    private List<SearchTripSeatsReply> replies;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        StandInTransportCompany service = new StandInTransportCompany(tripCount, seatsPerTrip);
+        replies = new ArrayList<>(tripCount);
+        long bytes = 0;
+        for (int tripId = 1; tripId <= tripCount; tripId++) {
+            SearchTripSeatsReply reply = encoding.equals("LIST")
+                    ? SearchTripSeatsReply.newBuilder().addAllSeats(service.seatMap(tripId)).build()
+                    : SearchTripSeatsReply.newBuilder().setSeatMap(service.compactSeatMap(tripId)).build();
+            replies.add(reply);
+            bytes += reply.getSerializedSize();
+        }
+
+        long before = usedHeap();
+        List<List<Seat>> cached = decodeAll();
+        long retained = usedHeap() - before;
+        System.out.printf("%n[seats] %s, %d seats: %d bytes per reply, about %d bytes of heap per cached map (%d maps)%n",
+                          encoding, seatsPerTrip, bytes / tripCount, retained / tripCount, cached.size());
+    }
+
+    @Benchmark
+    public void decode(Blackhole bh) {
+        for (SearchTripSeatsReply reply : replies) {
+            bh.consume(decode(reply));
+        }
+    }
+
+    private List<List<Seat>> decodeAll() {
+        List<List<Seat>> decoded = new ArrayList<>(replies.size());
+        for (SearchTripSeatsReply reply : replies) {
+            decoded.add(decode(reply));
+        }
+        return decoded;
+    }
+
+    private static List<Seat> decode(SearchTripSeatsReply reply) {
+        if (reply.hasSeatMap())
+            return DTOUtils.convertSeatMapDTOToSeatMap(reply.getSeatMap());
+        List<Seat> seats = new ArrayList<>(reply.getSeatsCount());
+        for (SeatDTO dto : reply.getSeatsList()) {
+            seats.add(new Seat(dto.getSeatNumber(), dto.getClientName(), dto.getHeld()));
+        }
+        return List.copyOf(seats);                  // ca în cache-ul de dinainte
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,47 @@
+package ro.mpp2024.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import ro.mpp2024.Employee;
+import ro.mpp2024.GrpcServicesProxy;
+import ro.mpp2024.IObserver;
+import ro.mpp2024.ServicesException;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A whole employee session as the client opens it: new channel, <code>login</code> (which
+ * also opens the notification stream) and <code>logout</code> (which shuts the channel down).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SessionBenchmark {
+    private static final IObserver IGNORE = () -> { };
+
+    @Param({"IN_PROCESS", "LOOPBACK"})
+    public StandInServer.Transport transport;
+
+    private StandInServer server;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        server = StandInServer.start(new StandInTransportCompany(100, 18), transport);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        server.close();
+    }
+
+    @Benchmark
+    public Employee loginLogout() throws ServicesException {
+        GrpcServicesProxy proxy = server.newProxy();
+        Employee employee = proxy.login("bench", "bench", IGNORE);
+        proxy.logout(employee);
+        return employee;
+    }
+}
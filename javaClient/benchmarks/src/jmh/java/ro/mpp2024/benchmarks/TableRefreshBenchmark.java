@@ -0,0 +1,123 @@
+package ro.mpp2024.benchmarks;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import org.openjdk.jmh.annotations.*;
+import ro.mpp2024.Destination;
+import ro.mpp2024.Trip;
+import ro.mpp2024.utils.KeyedObservableList;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One refresh of a trips table of {@code tripCount} rows in which {@code changedTrips} trips
+ * have new seat counts. {@code REPLACE} puts the new list in the table's items, as the view did;
+ * {@code MERGE} merges it into a {@link KeyedObservableList} by trip id. Each refresh gets new
+ * {@link Trip} objects, as decoded from a reply. A listener stands in for the table: how many
+ * rows it is told about, which is what the table has to lay out again, is printed at the end
+ * of every trial. No UI toolkit runs, so the table's own work per row is not in the times.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TableRefreshBenchmark {
+    private static final int REPLIES = 8;
+
+    @Param({"50000"})
+    public int tripCount;
+
+    @Param({"10", "1000"})
+    public int changedTrips;
+
+    @Param({"REPLACE", "MERGE"})
+    public String mode;
+
+    private List<List<Trip>> replies;
+    private ObservableList<Trip> items;
+    private KeyedObservableList<Integer, Trip> keyed;
+    private long refreshes;
+    private long reportedRows;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        replies = new ArrayList<>(REPLIES);
+        for (int reply = 0; reply < REPLIES; reply++) {
+            List<Trip> trips = catalog(0);
+            for (int i = 0; i < changedTrips; i++) {
+                Trip trip = trips.get(random.nextInt(tripCount));
+                trip.setAvailableSeats(trip.getAvailableSeats() - 1 - reply);
+                trip.setVersion(trip.getVersion() + 1 + reply);
+            }
+            replies.add(trips);
+        }
+
+        ListChangeListener<Trip> table = change -> {
+            while (change.next()) {
+                reportedRows += change.wasUpdated()
+                        ? change.getTo() - change.getFrom()
+                        : Math.max(change.getRemovedSize(), change.getAddedSize());
+            }
+        };
+        if (mode.equals("MERGE")) {
+            keyed = KeyedObservableList.ofTrips();
+            keyed.merge(catalog(0));
+            keyed.addListener(table);
+        } else {
+            items = FXCollections.observableArrayList(catalog(0));
+            items.addListener(table);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.printf("%n[rows] %s, %d changed of %d: %d rows reported to the table per refresh%n",
+                          mode, changedTrips, tripCount, refreshes == 0 ? 0 : reportedRows / refreshes);
+    }
+
+    @Benchmark
+    public int refresh() {
+        List<Trip> reply = copy(replies.get(next++ % REPLIES));
+        refreshes++;
+        if (keyed != null) {
+            keyed.merge(reply);
+            return keyed.size();
+        }
+        items.setAll(reply);
+        return items.size();
+    }
+
+    private List<Trip> catalog(int seatsTaken) {
+        List<Trip> trips = new ArrayList<>(tripCount);
+        for (int id = 1; id <= tripCount; id++) {
+            Trip trip = new Trip(id, new Destination(1 + id % 20, "Destination " + (1 + id % 20)),
+                                 StandInTransportCompany.FIRST_DATE.plusDays(id / StandInTransportCompany.TRIPS_PER_DAY),
+                                 LocalTime.of(6, 0).plusMinutes(15L * (id % StandInTransportCompany.TRIPS_PER_DAY)),
+                                 60 - seatsTaken);
+            trip.setVersion((long) seatsTaken);
+            trips.add(trip);
+        }
+        return trips;
+    }
+
+    // obiecte noi la fiecare reîmprospătare, ca după decodarea unui răspuns
+    private static List<Trip> copy(List<Trip> trips) {
+        List<Trip> copies = new ArrayList<>(trips.size());
+        for (Trip trip : trips) {
+            Trip copy = new Trip(trip.getId(), trip.getDestination(), trip.getDepartureDate(), trip.getDepartureTime(),
+                                 trip.getAvailableSeats());
+            copy.setVersion(trip.getVersion());
+            copies.add(copy);
+        }
+        return copies;
+    }
+}
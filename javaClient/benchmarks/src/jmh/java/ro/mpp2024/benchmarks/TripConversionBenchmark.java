@@ -0,0 +1,66 @@
+package ro.mpp2024.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import ro.mpp2024.Destination;
+import ro.mpp2024.Trip;
+import ro.mpp2024.proto.TripDTO;
+import ro.mpp2024.utils.DTOUtils;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Converts a full listing of {@link TripDTO}s into {@link Trip}s, the way the proxy does for
+ * every reply. {@code legacy} is the old converter (string parsing, one {@link Destination}
+ * per trip); {@code current} is {@link DTOUtils#convertTripDTOToTrip} on DTOs with and
+ * without the epoch-day/second-of-day fields. Run with {@code -Pjmh.profilers=gc} to see
+ * the allocation rate per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TripConversionBenchmark {
+    @Param({"100000"})
+    public int tripCount;
+
+    @Param({"STRINGS", "BINARY"})
+    public String encoding;
+
+    private List<TripDTO> dtos;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<TripDTO> trips = new StandInTransportCompany(tripCount, 18).getTrips();
+        dtos = new ArrayList<>(trips.size());
+        for (TripDTO trip : trips) {
+            dtos.add(encoding.equals("STRINGS")
+                     ? trip.toBuilder().clearDepartureEpochDay().clearDepartureSecondOfDay().build()
+                     : trip);
+        }
+    }
+
+    @Benchmark
+    public void legacy(Blackhole bh) {
+        for (TripDTO dto : dtos) {
+            bh.consume(new Trip(dto.getId(),
+                                new Destination(null, dto.getDestination()),
+                                LocalDate.parse(dto.getDate()),
+                                LocalTime.parse(dto.getTime()),
+                                dto.getAvailableSeats()));
+        }
+    }
+
+    @Benchmark
+    public void current(Blackhole bh) {
+        for (TripDTO dto : dtos) {
+            bh.consume(DTOUtils.convertTripDTOToTrip(dto));
+        }
+    }
+}
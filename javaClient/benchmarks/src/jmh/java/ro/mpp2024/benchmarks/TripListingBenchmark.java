@@ -0,0 +1,66 @@
+package ro.mpp2024.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import ro.mpp2024.GrpcServicesProxy;
+import ro.mpp2024.ServicesException;
+import ro.mpp2024.Trip;
+import ro.mpp2024.TripPage;
+import ro.mpp2024.TripQuery;
+import ro.mpp2024.proto.GetTripsReply;
+import ro.mpp2024.proto.GetTripsRequest;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full <code>GetAllTrips</code> dump against the first page of the paginated
+ * <code>GetTrips</code> listing, over real HTTP/2 on localhost. The payload sizes of both
+ * replies are printed at the start of every trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TripListingBenchmark {
+    @Param({"10000", "100000"})
+    public int catalogSize;
+
+    @Param({"100"})
+    public int pageSize;
+
+    private StandInServer server;
+    private GrpcServicesProxy proxy;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        StandInTransportCompany service = new StandInTransportCompany(catalogSize, 18);
+        server = StandInServer.start(service, StandInServer.Transport.LOOPBACK);
+        proxy = server.newProxy();
+
+        GetTripsReply.Builder page = GetTripsReply.newBuilder()
+                .addAllTrips(service.getTrips().subList(0, Math.min(pageSize, catalogSize)))
+                .setNextPageToken(String.valueOf(pageSize));
+        System.out.printf("%n[payload] catalog=%d trips: GetAllTrips=%d bytes, GetTrips(pageSize=%d)=%d bytes + %d bytes request%n",
+                          catalogSize, service.allTripsReply().getSerializedSize(), pageSize,
+                          page.build().getSerializedSize(),
+                          GetTripsRequest.newBuilder().setPageSize(pageSize).build().getSerializedSize());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        server.close();
+    }
+
+    @Benchmark
+    public List<Trip> fullDump() throws ServicesException {
+        return proxy.getAllTrips();
+    }
+
+    @Benchmark
+    public TripPage firstPage() throws ServicesException {
+        return proxy.getTrips(TripQuery.all(pageSize));
+    }
+}
@@ -0,0 +1,97 @@
+package ro.mpp2024.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import ro.mpp2024.Destination;
+import ro.mpp2024.Trip;
+import ro.mpp2024.utils.TripFilter;
+import ro.mpp2024.utils.TripSearchIndex;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Queries the {@link TripSearchIndex} the way the search fields do on every keystroke, over a
+ * catalog of {@code catalogSize} trips to about a hundred destinations: a destination prefix,
+ * a departure date, an hour, all of them with a seat threshold, and the completions of a
+ * prefix. Each query returns at most the rows the trips table shows; the time to build the
+ * index and the rows each query finds are printed at the start of every trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TripSearchBenchmark {
+    private static final String[] DISTRICTS = {"", " Nord", " Sud", " Est", " Vest", " Gara", " Aeroport"};
+    private static final int LIMIT = 1000;
+
+    @Param({"100000"})
+    public int catalogSize;
+
+    private TripSearchIndex index;
+    private TripFilter prefix;
+    private TripFilter date;
+    private TripFilter hour;
+    private TripFilter combined;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<Trip> catalog = catalog(catalogSize);
+        long started = System.nanoTime();
+        index = TripSearchIndex.build(catalog);
+        long buildMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+        LocalDate day = StandInTransportCompany.FIRST_DATE.plusDays(catalogSize / StandInTransportCompany.TRIPS_PER_DAY / 2);
+        prefix = new TripFilter("cl", null, null, null, null, 0);
+        date = new TripFilter(null, day, day, null, null, 0);
+        hour = new TripFilter(null, null, null, LocalTime.of(8, 0), LocalTime.of(8, 59), 0);
+        combined = new TripFilter("b", day.minusDays(30), day.plusDays(30), LocalTime.of(8, 0), LocalTime.of(8, 59), 10);
+        System.out.printf("%n[search] %d trips indexed in %d ms; rows: prefix %d, date %d, hour %d, combined %d, "
+                                  + "completions of \"b\": %s%n",
+                          index.size(), buildMillis, prefix().size(), date().size(), hour().size(), combined().size(),
+                          completions());
+    }
+
+    @Benchmark
+    public List<Trip> prefix() {
+        return index.search(prefix, LIMIT);
+    }
+
+    @Benchmark
+    public List<Trip> date() {
+        return index.search(date, LIMIT);
+    }
+
+    @Benchmark
+    public List<Trip> hour() {
+        return index.search(hour, LIMIT);
+    }
+
+    @Benchmark
+    public List<Trip> combined() {
+        return index.search(combined, LIMIT);
+    }
+
+    @Benchmark
+    public List<String> completions() {
+        return index.destinations("b", 10);
+    }
+
+    private static List<Trip> catalog(int size) {
+        List<Trip> trips = new ArrayList<>(size);
+        int destinationCount = StandInTransportCompany.DESTINATIONS.length * DISTRICTS.length;
+        for (int i = 0; i < size; i++) {
+            int destination = i % destinationCount;
+            String name = StandInTransportCompany.DESTINATIONS[destination / DISTRICTS.length]
+                    + DISTRICTS[destination % DISTRICTS.length];
+            LocalDate day = StandInTransportCompany.FIRST_DATE.plusDays(i / StandInTransportCompany.TRIPS_PER_DAY);
+            LocalTime time = LocalTime.of(6, 0).plusMinutes(20L * (i % StandInTransportCompany.TRIPS_PER_DAY));
+            trips.add(new Trip(i + 1, new Destination(destination + 1, name), day, time, i % 19));
+        }
+        return trips;
+    }
+}
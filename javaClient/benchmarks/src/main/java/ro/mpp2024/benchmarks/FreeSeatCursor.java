@@ -0,0 +1,58 @@
+package ro.mpp2024.benchmarks;
+
+import ro.mpp2024.Trip;
+import ro.mpp2024.utils.DTOUtils;
+
+import java.util.List;
+
+/**
+ * Walks over the seats that are free in the seeded catalog of a {@link StandInTransportCompany},
+ * so reservation benchmarks never hit a taken seat. When every seat was handed out the
+ * reservations are reset and the walk starts over.
+ */
+public class FreeSeatCursor {
+    private final StandInTransportCompany service;
+    private final List<Trip> trips;
+    private final int seatsPerTrip;
+    private int tripIndex;
+    private int seatNumber;
+
+    public FreeSeatCursor(StandInTransportCompany service, int seatsPerTrip) {
+        this.service = service;
+        this.trips = service.getTrips().stream().map(DTOUtils::convertTripDTOToTrip).toList();
+        this.seatsPerTrip = seatsPerTrip;
+    }
+
+    /**
+     * Resets the reservations and starts from the first trip again.
+     */
+    public void reset() {
+        service.resetReservations();
+        tripIndex = 0;
+        seatNumber = 0;
+    }
+
+    /**
+     * Moves to the next free seat and returns its trip; the seat is {@link #seatNumber()}.
+     * The seeded trip at index i has its first i % (seatsPerTrip + 1) seats taken.
+     */
+    public Trip next() {
+        while (true) {
+            if (tripIndex == trips.size()) {
+                reset();                            // rar: catalogul s-a umplut în mijlocul unei iteraţii
+            }
+            if (seatNumber == 0)
+                seatNumber = tripIndex % (seatsPerTrip + 1);
+            if (seatNumber < seatsPerTrip) {
+                seatNumber++;
+                return trips.get(tripIndex);
+            }
+            tripIndex++;
+            seatNumber = 0;
+        }
+    }
+
+    public int seatNumber() {
+        return seatNumber;
+    }
+}
@@ -0,0 +1,171 @@
+package ro.mpp2024.benchmarks;
+
+import com.google.protobuf.MessageLite;
+import io.grpc.BindableService;
+import io.grpc.ForwardingServerCall;
+import io.grpc.Grpc;
+import io.grpc.InsecureChannelCredentials;
+import io.grpc.InsecureServerCredentials;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.Metadata;
+import io.grpc.Server;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.ServerInterceptors;
+import io.grpc.ServerStreamTracer;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import ro.mpp2024.GrpcServicesProxy;
+import ro.mpp2024.proto.TransportCompanyGrpc;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs a stand-in service inside the benchmark JVM and hands out client channels to it.
+ */
+public class StandInServer implements AutoCloseable {
+    // the full catalog of a big benchmark does not fit in gRPC's default 4 MiB limit
+    private static final int MAX_MESSAGE_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * {@link #IN_PROCESS} hands the protobuf objects over without serializing them;
+     * {@link #LOOPBACK} goes through HTTP/2 on localhost, so payload size counts.
+     */
+    public enum Transport { IN_PROCESS, LOOPBACK }
+
+    private final Server server;
+    private final Transport transport;
+    private final String inProcessName;
+    private final List<ManagedChannel> channels = new CopyOnWriteArrayList<>();
+    private final LongAdder outboundWireBytes;
+
+    private StandInServer(Server server, Transport transport, String inProcessName, LongAdder outboundWireBytes) {
+        this.server = server;
+        this.transport = transport;
+        this.inProcessName = inProcessName;
+        this.outboundWireBytes = outboundWireBytes;
+    }
+
+    public static StandInServer start(BindableService service, Transport transport) throws IOException {
+        return start(service, transport, -1);
+    }
+
+    /**
+     * Like {@link #start(BindableService, Transport)}, but gzips the replies of at least
+     * {@code compressionThresholdBytes} (serialized) for clients that accept gzip, the way the
+     * real server does. A negative threshold turns compression off; the in-process transport
+     * never compresses.
+     */
+    public static StandInServer start(BindableService service, Transport transport,
+                                      int compressionThresholdBytes) throws IOException {
+        String inProcessName = InProcessServerBuilder.generateName();
+        LongAdder outboundWireBytes = new LongAdder();
+        var definition = compressionThresholdBytes < 0
+                ? service.bindService()
+                : ServerInterceptors.intercept(service, new ResponseCompression(compressionThresholdBytes));
+        Server server = transport == Transport.IN_PROCESS
+                ? InProcessServerBuilder.forName(inProcessName)
+                                        .addService(definition)
+                                        .build()
+                : Grpc.newServerBuilderForPort(0, InsecureServerCredentials.create())
+                      .addService(definition)
+                      .addStreamTracerFactory(new ServerStreamTracer.Factory() {
+                          @Override
+                          public ServerStreamTracer newServerStreamTracer(String fullMethodName, Metadata headers) {
+                              return new ServerStreamTracer() {
+                                  @Override
+                                  public void outboundWireSize(long bytes) {
+                                      outboundWireBytes.add(bytes);
+                                  }
+                              };
+                          }
+                      })
+                      .maxInboundMessageSize(MAX_MESSAGE_SIZE)
+                      .build();
+        return new StandInServer(server.start(), transport, inProcessName, outboundWireBytes);
+    }
+
+    /**
+     * The localhost port of a {@link Transport#LOOPBACK} server, for clients that build their
+     * own channel (e.g. with {@link ro.mpp2024.utils.ChannelSettings}).
+     */
+    public int port() {
+        return server.getPort();
+    }
+
+    /**
+     * Reply bytes put on the wire so far (after compression, before HTTP/2 framing); only
+     * counted on {@link Transport#LOOPBACK}.
+     */
+    public long outboundWireBytes() {
+        return outboundWireBytes.sum();
+    }
+
+    /**
+     * A new client channel; it is shut down together with the server unless the client
+     * shuts it down first (e.g. {@link GrpcServicesProxy#logout}).
+     */
+    public ManagedChannel newChannel() {
+        return newChannel(null);
+    }
+
+    /**
+     * Like {@link #newChannel()}, with the channel's callbacks run on {@code callbackExecutor}
+     * ({@code null} keeps gRPC's default cached pool).
+     */
+    public ManagedChannel newChannel(Executor callbackExecutor) {
+        channels.removeIf(ManagedChannel::isShutdown);
+        ManagedChannelBuilder<?> builder = transport == Transport.IN_PROCESS
+                ? InProcessChannelBuilder.forName(inProcessName)
+                : Grpc.newChannelBuilderForAddress("localhost", server.getPort(), InsecureChannelCredentials.create())
+                      .maxInboundMessageSize(MAX_MESSAGE_SIZE);
+        if (callbackExecutor != null)
+            builder.executor(callbackExecutor);
+        ManagedChannel channel = builder.build();
+        channels.add(channel);
+        return channel;
+    }
+
+    public GrpcServicesProxy newProxy() {
+        return new GrpcServicesProxy(TransportCompanyGrpc.newBlockingStub(newChannel()));
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        for (ManagedChannel channel : channels) {
+            channel.shutdownNow();
+        }
+        server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    private static final class ResponseCompression implements ServerInterceptor {
+        private final int thresholdBytes;
+
+        private ResponseCompression(int thresholdBytes) {
+            this.thresholdBytes = thresholdBytes;
+        }
+
+        @Override
+        public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call, Metadata headers,
+                                                                     ServerCallHandler<ReqT, RespT> next) {
+            // the encoding goes in the headers, before the size of the reply is known;
+            // each message then says whether it is compressed
+            call.setCompression("gzip");
+            return next.startCall(new ForwardingServerCall.SimpleForwardingServerCall<>(call) {
+                @Override
+                public void sendMessage(RespT message) {
+                    super.setMessageCompression(message instanceof MessageLite lite
+                                                && lite.getSerializedSize() >= thresholdBytes);
+                    super.sendMessage(message);
+                }
+            }, headers);
+        }
+    }
+}
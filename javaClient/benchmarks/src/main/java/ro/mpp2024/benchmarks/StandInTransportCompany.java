@@ -0,0 +1,408 @@
+package ro.mpp2024.benchmarks;
+
+import com.google.protobuf.ByteString;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import ro.mpp2024.proto.*;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory stand-in for the C# <code>TransportCompanyService</code>, seeded with a generated
+ * trip catalog. It answers like the real server so the client stack can be measured without
+ * a database behind it. Login accepts any password (no bcrypt), and reservations are
+ * broadcast to every other logged-in employee, like the real server does.
+ */
+public class StandInTransportCompany extends TransportCompanyGrpc.TransportCompanyImplBase {
+    static final String[] DESTINATIONS = {
+            "Bucuresti", "Cluj-Napoca", "Timisoara", "Iasi", "Constanta", "Brasov", "Sibiu",
+            "Oradea", "Craiova", "Galati", "Ploiesti", "Arad", "Pitesti", "Baia Mare", "Suceava"
+    };
+    static final LocalDate FIRST_DATE = LocalDate.of(2025, 1, 1);
+    static final int TRIPS_PER_DAY = 48;
+
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
+    private final List<TripDTO> initialTrips;
+    private final List<TripDTO> trips;                     // seat counts change; writes hold the lock
+    private final Map<String, Integer> indexesByKey = new HashMap<>();
+    private final String[][] seatClients;                  // [index trip][număr loc - 1], null = liber
+    private final int seatsPerTrip;
+    private volatile boolean compactSeats = true;
+
+    private final Map<String, Integer> employeeIds = new ConcurrentHashMap<>();
+    private final AtomicInteger nextEmployeeId = new AtomicInteger(1);
+    private final Map<Integer, Boolean> loggedIn = new ConcurrentHashMap<>();
+    private final Map<Integer, StreamObserver<NotifySeatsReservedReply>> streams = new ConcurrentHashMap<>();
+    private final long epoch = System.currentTimeMillis();
+    private long sequence;                                 // ultima notificare trimisă; scrisă sub broadcastLock
+    private final Object broadcastLock = new Object();
+
+    public StandInTransportCompany(int tripCount, int seatsPerTrip) {
+        this.seatsPerTrip = seatsPerTrip;
+        this.initialTrips = new ArrayList<>(tripCount);
+        this.seatClients = new String[tripCount][seatsPerTrip];
+        for (int i = 0; i < tripCount; i++) {
+            int reserved = initiallyReserved(i);
+            LocalDate date = FIRST_DATE.plusDays(i / TRIPS_PER_DAY);
+            LocalTime time = LocalTime.of(6, 0).plusMinutes(20L * (i % TRIPS_PER_DAY));
+            TripDTO trip = TripDTO.newBuilder()
+                                  .setId(i + 1)                   // id-urile încep de la 1, ca în baza de date
+                                  .setDestination(DESTINATIONS[i % DESTINATIONS.length])
+                                  .setDate(date.toString())
+                                  .setTime(time.toString())
+                                  .setDepartureEpochDay(date.toEpochDay())
+                                  .setDepartureSecondOfDay(time.toSecondOfDay())
+                                  .setAvailableSeats(seatsPerTrip - reserved)
+                                  .setVersion(reserved)           // ca pe server: numărul de locuri rezervate
+                                  .build();
+            initialTrips.add(trip);
+            indexesByKey.put(key(trip.getDestination(), trip.getDate(), trip.getTime()), i);
+        }
+        this.trips = new ArrayList<>(initialTrips);
+        resetReservations();
+    }
+
+    private int initiallyReserved(int tripIndex) {
+        return tripIndex % (seatsPerTrip + 1);
+    }
+
+    /**
+     * Drops every reservation made since construction, so benchmarks that reserve seats
+     * can start each iteration from the seeded catalog again.
+     */
+    public synchronized void resetReservations() {
+        for (int i = 0; i < seatClients.length; i++) {
+            int reserved = initiallyReserved(i);
+            for (int seat = 0; seat < seatsPerTrip; seat++) {
+                seatClients[i][seat] = seat < reserved ? "Client " + (seat + 1) : null;
+            }
+            trips.set(i, initialTrips.get(i));
+        }
+    }
+
+    private static String key(String destination, String date, String time) {
+        return destination + '|' + date + '|' + time;
+    }
+
+    private TripDTO find(int tripId, String destination, String date, String time) {
+        if (tripId > 0)
+            return tripId <= trips.size() ? trips.get(tripId - 1) : null;
+        Integer index = indexesByKey.get(key(destination, date, time));
+        return index == null ? null : trips.get(index);
+    }
+
+    /**
+     * The seeded catalog, without the reservations made since.
+     */
+    public List<TripDTO> getTrips() {
+        return initialTrips;
+    }
+
+    public TripsReply allTripsReply() {
+        return TripsReply.newBuilder().addAllTrips(trips).build();
+    }
+
+    @Override
+    public void getAllTrips(AllTripsRequest request, StreamObserver<TripsReply> responseObserver) {
+        responseObserver.onNext(allTripsReply());
+        responseObserver.onCompleted();
+    }
+
+    @Override
+    public void getTrip(GetTripRequest request, StreamObserver<GetTripReply> responseObserver) {
+        GetTripReply.Builder reply = GetTripReply.newBuilder();
+        TripDTO trip = find(request.getTripId(), request.getDestination(), request.getDate(), request.getTime());
+        if (trip != null)
+            reply.setTrip(trip);
+        responseObserver.onNext(reply.build());
+        responseObserver.onCompleted();
+    }
+
+    @Override
+    public void searchTripSeats(SearchTripSeatsRequest request, StreamObserver<SearchTripSeatsReply> responseObserver) {
+        SearchTripSeatsReply.Builder reply = SearchTripSeatsReply.newBuilder();
+        TripDTO trip = find(request.getTripId(), request.getDestination(), request.getDate(), request.getTime());
+        if (trip != null && request.getCompactSeats() && compactSeats)
+            reply.setSeatMap(compactSeatMap(trip.getId()));
+        else if (trip != null)
+            reply.addAllSeats(seatMap(trip.getId()));
+        responseObserver.onNext(reply.build());
+        responseObserver.onCompleted();
+    }
+
+    @Override
+    public void getTripWithSeats(GetTripRequest request, StreamObserver<GetTripWithSeatsReply> responseObserver) {
+        GetTripWithSeatsReply.Builder reply = GetTripWithSeatsReply.newBuilder();
+        TripDTO trip = find(request.getTripId(), request.getDestination(), request.getDate(), request.getTime());
+        if (trip != null && request.getCompactSeats() && compactSeats)
+            reply.setTrip(trip).setSeatMap(compactSeatMap(trip.getId()));
+        else if (trip != null)
+            reply.setTrip(trip).addAllSeats(seatMap(trip.getId()));
+        responseObserver.onNext(reply.build());
+        responseObserver.onCompleted();
+    }
+
+    /**
+     * The full seat map of a trip, free seats marked with "-" like the real server does.
+     */
+    synchronized List<SeatDTO> seatMap(int tripId) {
+        String[] clients = seatClients[tripId - 1];
+        List<SeatDTO> seats = new ArrayList<>(seatsPerTrip);
+        for (int seat = 0; seat < seatsPerTrip; seat++) {
+            seats.add(SeatDTO.newBuilder()
+                             .setSeatNumber(seat + 1)
+                             .setClientName(clients[seat] == null ? "-" : clients[seat])
+                             .build());
+        }
+        return seats;
+    }
+
+    /**
+     * The seat map in the compact form: reserved and held bitsets plus the client names of the
+     * reserved seats, in seat order.
+     */
+    synchronized SeatMapDTO compactSeatMap(int tripId) {
+        String[] clients = seatClients[tripId - 1];
+        BitSet reserved = new BitSet(seatsPerTrip);
+        SeatMapDTO.Builder map = SeatMapDTO.newBuilder().setSeatCount(seatsPerTrip);
+        for (int seat = 0; seat < seatsPerTrip; seat++) {
+            if (clients[seat] != null) {
+                reserved.set(seat);
+                map.addClientNames(clients[seat]);
+            }
+        }
+        return map.setReserved(ByteString.copyFrom(reserved.toByteArray())).build();
+    }
+
+    /**
+     * Off, seat maps are always sent one message per seat, like servers that predate the
+     * compact form.
+     */
+    public void setCompactSeats(boolean compactSeats) {
+        this.compactSeats = compactSeats;
+    }
+
+    /**
+     * How many notification streams are open right now.
+     */
+    public int openStreams() {
+        return streams.size();
+    }
+
+    /* ======================== AUTH ======================== */
+
+    @Override
+    public void login(LoginRequest request, StreamObserver<LoginReply> responseObserver) {
+        int employeeId = employeeIds.computeIfAbsent(request.getUsername(), u -> nextEmployeeId.getAndIncrement());
+        LoginReply reply = loggedIn.putIfAbsent(employeeId, true) != null
+                ? LoginReply.newBuilder().setEmployeeId(-3).setUsername("ALREADY_LOGGED").build()
+                : LoginReply.newBuilder().setEmployeeId(employeeId).setUsername(request.getUsername()).build();
+        responseObserver.onNext(reply);
+        responseObserver.onCompleted();
+    }
+
+    @Override
+    public void logout(LogoutRequest request, StreamObserver<LogoutReply> responseObserver) {
+        loggedIn.remove(request.getEmployeeId());
+        StreamObserver<NotifySeatsReservedReply> stream = streams.remove(request.getEmployeeId());
+        if (stream != null)
+            stream.onCompleted();
+        responseObserver.onNext(LogoutReply.newBuilder().setSuccess(true).setMessage("Logged out successfully").build());
+        responseObserver.onCompleted();
+    }
+
+    /* ======================== REZERVĂRI ======================== */
+
+    @Override
+    public void reserveSeats(ReserveSeatsRequest request, StreamObserver<ReserveSeatsReply> responseObserver) {
+        int tripId = request.getTripId() > 0 ? request.getTripId() : request.getTrip().getId();
+        SeatsReservedDelta delta;
+        synchronized (this) {
+            if (tripId < 1 || tripId > trips.size()) {
+                responseObserver.onError(Status.NOT_FOUND.withDescription("Trip not found").asRuntimeException());
+                return;
+            }
+            delta = reserve(request.getClientName(), tripId, request.getSeatNumbersList());
+        }
+        if (delta == null && request.hasExpectedVersion()) {
+            responseObserver.onNext(conflictReply(tripId, request.getSeatNumbersList()));
+            responseObserver.onCompleted();
+            return;
+        }
+        if (delta == null) {
+            responseObserver.onError(Status.FAILED_PRECONDITION
+                                             .withDescription("Some seats are already reserved.")
+                                             .asRuntimeException());
+            return;
+        }
+
+        broadcast(request.getEmployeeId(), NotifySeatsReservedReply.newBuilder()
+                                                                   .setTripId(delta.getTripId())
+                                                                   .addAllSeatNumbers(delta.getSeatNumbersList())
+                                                                   .setClientName(delta.getClientName())
+                                                                   .setAvailableSeats(delta.getAvailableSeats())
+                                                                   .setVersion(delta.getVersion())
+                                                                   .build());
+
+        responseObserver.onNext(ReserveSeatsReply.newBuilder()
+                                                 .setSuccess(true)
+                                                 .setMessage("Reserved " + request.getSeatNumbersCount()
+                                                             + " seat(s) for " + request.getClientName()
+                                                             + " on trip " + tripId)
+                                                 .setVersion(delta.getVersion())
+                                                 .build());
+        responseObserver.onCompleted();
+    }
+
+    private synchronized ReserveSeatsReply conflictReply(int tripId, List<Integer> seatNumbers) {
+        String[] clients = seatClients[tripId - 1];
+        TripDTO trip = trips.get(tripId - 1);
+        ReservationConflict.Builder conflict = ReservationConflict.newBuilder()
+                                                                  .setTrip(trip)
+                                                                  .addAllSeats(seatMap(tripId));
+        for (int seatNumber : seatNumbers) {
+            if (seatNumber >= 1 && seatNumber <= seatsPerTrip && clients[seatNumber - 1] != null)
+                conflict.addLostSeats(seatNumber);
+        }
+        return ReserveSeatsReply.newBuilder()
+                                .setMessage("Some seats are already reserved.")
+                                .setVersion(trip.getVersion())
+                                .setConflict(conflict)
+                                .build();
+    }
+
+    @Override
+    public void reserveSeatsBatch(ReserveSeatsBatchRequest request,
+                                  StreamObserver<ReserveSeatsBatchReply> responseObserver) {
+        ReserveSeatsBatchReply.Builder reply = ReserveSeatsBatchReply.newBuilder();
+        NotifySeatsReservedReply.Builder notification = NotifySeatsReservedReply.newBuilder();
+        synchronized (this) {
+            for (ReservationItem item : request.getItemsList()) {
+                int tripId = item.getTripId();
+                if (tripId < 1 || tripId > trips.size()) {
+                    reply.addResults(ReservationItemResult.newBuilder().setMessage("Trip not found"));
+                    continue;
+                }
+                SeatsReservedDelta delta = reserve(item.getClientName(), tripId, item.getSeatNumbersList());
+                if (delta == null) {
+                    reply.addResults(ReservationItemResult.newBuilder()
+                                                          .setMessage("Some seats are already reserved.")
+                                                          .setAvailableSeats(trips.get(tripId - 1).getAvailableSeats()));
+                    continue;
+                }
+                notification.addDeltas(delta);
+                reply.addResults(ReservationItemResult.newBuilder()
+                                                      .setSuccess(true)
+                                                      .setMessage("Reserved " + item.getSeatNumbersCount()
+                                                                  + " seat(s) for " + item.getClientName()
+                                                                  + " on trip " + tripId)
+                                                      .setAvailableSeats(delta.getAvailableSeats()));
+            }
+        }
+        if (notification.getDeltasCount() > 0)
+            broadcast(request.getEmployeeId(), notification.build());
+
+        responseObserver.onNext(reply.build());
+        responseObserver.onCompleted();
+    }
+
+    /**
+     * Reserves the seats if all of them are free. Must hold the lock.
+     *
+     * @return the change to broadcast, or {@code null} when a seat is taken or does not exist
+     */
+    private SeatsReservedDelta reserve(String clientName, int tripId, List<Integer> seatNumbers) {
+        String[] clients = seatClients[tripId - 1];
+        for (int seatNumber : seatNumbers) {
+            if (seatNumber < 1 || seatNumber > seatsPerTrip || clients[seatNumber - 1] != null)
+                return null;
+        }
+        for (int seatNumber : seatNumbers) {
+            clients[seatNumber - 1] = clientName;
+        }
+        TripDTO trip = trips.get(tripId - 1);
+        trip = trip.toBuilder()
+                   .setAvailableSeats(trip.getAvailableSeats() - seatNumbers.size())
+                   .setVersion(trip.getVersion() + seatNumbers.size())
+                   .build();
+        trips.set(tripId - 1, trip);
+        return SeatsReservedDelta.newBuilder()
+                                 .setTripId(tripId)
+                                 .addAllSeatNumbers(seatNumbers)
+                                 .setClientName(clientName)
+                                 .setAvailableSeats(trip.getAvailableSeats())
+                                 .setVersion(trip.getVersion())
+                                 .build();
+    }
+
+    /**
+     * Sends the notification to every other open stream, stamped like the real server does:
+     * the client drops a notification whose sequence it has already seen, so the stamping and
+     * the sending happen under one lock to keep the sequence in order on every stream.
+     */
+    private void broadcast(int fromEmployeeId, NotifySeatsReservedReply notification) {
+        synchronized (broadcastLock) {
+            NotifySeatsReservedReply stamped = notification.toBuilder()
+                                                           .setEpoch(epoch)
+                                                           .setSequence(++sequence)
+                                                           .setSentAtUnixMillis(System.currentTimeMillis())
+                                                           .build();
+            for (Map.Entry<Integer, StreamObserver<NotifySeatsReservedReply>> entry : streams.entrySet()) {
+                if (entry.getKey() == fromEmployeeId)
+                    continue;
+                try {
+                    synchronized (entry.getValue()) {           // onNext nu e thread-safe
+                        entry.getValue().onNext(stamped);
+                    }
+                } catch (RuntimeException e) {
+                    streams.remove(entry.getKey());
+                }
+            }
+        }
+    }
+
+    @Override
+    public void notifySeatsReserved(NotifySeatsReservedRequest request,
+                                    StreamObserver<NotifySeatsReservedReply> responseObserver) {
+        int employeeId = request.getEmployeeId();
+        streams.put(employeeId, responseObserver);
+        ((ServerCallStreamObserver<NotifySeatsReservedReply>) responseObserver)
+                .setOnCancelHandler(() -> streams.remove(employeeId, responseObserver));
+    }
+
+    /* ======================== LISTARE ======================== */
+
+    @Override
+    public void getTrips(GetTripsRequest request, StreamObserver<GetTripsReply> responseObserver) {
+        int afterId = request.getPageToken().isEmpty() ? 0 : Integer.parseInt(request.getPageToken());
+        int pageSize = request.getPageSize() <= 0 ? DEFAULT_PAGE_SIZE : request.getPageSize();
+        String prefix = request.getDestinationPrefix().toLowerCase();
+
+        GetTripsReply.Builder reply = GetTripsReply.newBuilder();
+        for (int i = afterId; i < trips.size(); i++) {        // trip-ul cu id-ul k este la indexul k - 1
+            TripDTO trip = trips.get(i);
+            if (!trip.getDestination().toLowerCase().startsWith(prefix)
+                    || (!request.getDateFrom().isEmpty() && trip.getDate().compareTo(request.getDateFrom()) < 0)
+                    || (!request.getDateTo().isEmpty() && trip.getDate().compareTo(request.getDateTo()) > 0)
+                    || trip.getAvailableSeats() < request.getMinAvailableSeats())
+                continue;
+            if (reply.getTripsCount() == pageSize) {
+                reply.setNextPageToken(String.valueOf(reply.getTrips(pageSize - 1).getId()));
+                break;
+            }
+            reply.addTrips(trip);
+        }
+        responseObserver.onNext(reply.build());
+        responseObserver.onCompleted();
+    }
+}
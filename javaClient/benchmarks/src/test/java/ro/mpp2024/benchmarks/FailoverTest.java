@@ -0,0 +1,77 @@
+package ro.mpp2024.benchmarks;
+
+import io.grpc.ManagedChannel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import ro.mpp2024.GrpcServicesProxy;
+import ro.mpp2024.proto.TransportCompanyGrpc;
+import ro.mpp2024.utils.ChannelSettings;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A client given two server instances keeps working when one of them is stopped mid-session.
+ */
+class FailoverTest {
+    private static final int TRIPS = 100;
+
+    private StandInServer first;
+    private StandInServer second;
+    private ManagedChannel channel;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (channel != null)
+            channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        for (StandInServer server : new StandInServer[]{first, second}) {
+            if (server != null)
+                server.close();
+        }
+    }
+
+    @Test
+    void pickFirstMovesToTheOtherInstance() throws Exception {
+        GrpcServicesProxy proxy = connect("pick_first");
+        assertEquals(1, proxy.getTripById(1).getId());
+        assertTrue(first.outboundWireBytes() > 0, "pick_first should start on the first endpoint");
+
+        first.close();
+
+        long before = second.outboundWireBytes();
+        for (int tripId = 2; tripId <= 10; tripId++) {
+            assertEquals(tripId, proxy.getTripById(tripId).getId());
+        }
+        assertTrue(second.outboundWireBytes() > before, "calls should have moved to the second instance");
+    }
+
+    @Test
+    void roundRobinSpreadsCallsAndDropsTheStoppedInstance() throws Exception {
+        GrpcServicesProxy proxy = connect("round_robin");
+        for (int tripId = 1; tripId <= 20; tripId++) {
+            proxy.getTripById(tripId);
+        }
+        assertTrue(first.outboundWireBytes() > 0 && second.outboundWireBytes() > 0, "both instances should serve calls");
+
+        second.close();
+
+        for (int tripId = 1; tripId <= 20; tripId++) {
+            assertEquals(tripId, proxy.getTripById(tripId).getId());
+        }
+    }
+
+    private GrpcServicesProxy connect(String loadBalancing) throws IOException {
+        first = StandInServer.start(new StandInTransportCompany(TRIPS, 18), StandInServer.Transport.LOOPBACK);
+        second = StandInServer.start(new StandInTransportCompany(TRIPS, 18), StandInServer.Transport.LOOPBACK);
+
+        Properties props = new Properties();
+        props.setProperty("grpc.load.balancing", loadBalancing);
+        props.setProperty("grpc.deadline.ms", "2000");
+        channel = new ChannelSettings(props).newChannel(List.of("localhost:" + first.port(), "localhost:" + second.port()));
+        return new GrpcServicesProxy(TransportCompanyGrpc.newBlockingStub(channel));
+    }
+}
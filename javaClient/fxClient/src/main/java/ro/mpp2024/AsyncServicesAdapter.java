@@ -0,0 +1,151 @@
+package ro.mpp2024;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the blocking {@link IServices} calls on a background executor, so the JavaFX
+ * Application Thread only has to apply the results. Wrapping the blocking services (instead
+ * of talking to the async stub directly) keeps the {@link CachingServicesProxy} in the path.
+ */
+public class AsyncServicesAdapter implements IAsyncServices {
+    private final IServices services;
+    private final Executor executor;
+
+    public AsyncServicesAdapter(IServices services) {
+        this(services, newDefaultExecutor());
+    }
+
+    public AsyncServicesAdapter(IServices services, Executor executor) {
+        this.services = services;
+        this.executor = executor;
+    }
+
+    @Override
+    public CompletableFuture<Employee> login(String username, String password, IObserver client) {
+        return supply(() -> services.login(username, password, client));
+    }
+
+    @Override
+    public CompletableFuture<Void> logout(Employee employee) {
+        return supply(() -> {
+            services.logout(employee);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<Trip>> getAllTrips() {
+        return supply(services::getAllTrips);
+    }
+
+    @Override
+    public CompletableFuture<TripPage> getTrips(TripQuery query) {
+        return supply(() -> services.getTrips(query));
+    }
+
+    @Override
+    public CompletableFuture<List<Seat>> searchTripSeats(String destination, LocalDate date, LocalTime time) {
+        return supply(() -> services.searchTripSeats(destination, date, time));
+    }
+
+    @Override
+    public CompletableFuture<Long> reserveSeats(String clientName, List<Integer> seatNumbers, Trip trip,
+                                                Employee employee) {
+        return supply(() -> services.reserveSeats(clientName, seatNumbers, trip, employee));
+    }
+
+    @Override
+    public CompletableFuture<SeatHold> holdSeats(Trip trip, List<Integer> seatNumbers, Employee employee) {
+        return supply(() -> services.holdSeats(trip, seatNumbers, employee));
+    }
+
+    @Override
+    public CompletableFuture<SeatHold> renewHold(SeatHold hold, List<Integer> seatNumbers, Employee employee) {
+        return supply(() -> services.renewHold(hold, seatNumbers, employee));
+    }
+
+    @Override
+    public CompletableFuture<Void> releaseHold(SeatHold hold, Employee employee) {
+        return supply(() -> {
+            services.releaseHold(hold, employee);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<ReservationResult>> reserveSeatsBatch(List<ReservationRequest> reservations,
+                                                                       Employee employee) {
+        return supply(() -> services.reserveSeatsBatch(reservations, employee));
+    }
+
+    @Override
+    public CompletableFuture<Trip> getTrip(String destination, LocalDate date, LocalTime time) {
+        return supply(() -> services.getTrip(destination, date, time));
+    }
+
+    @Override
+    public CompletableFuture<TripWithSeats> getTripWithSeats(String destination, LocalDate date, LocalTime time) {
+        return supply(() -> services.getTripWithSeats(destination, date, time));
+    }
+
+    @Override
+    public CompletableFuture<Trip> getTripById(int tripId) {
+        return supply(() -> services.getTripById(tripId));
+    }
+
+    @Override
+    public CompletableFuture<List<Seat>> searchTripSeatsById(int tripId) {
+        return supply(() -> services.searchTripSeatsById(tripId));
+    }
+
+    @Override
+    public CompletableFuture<TripWithSeats> getTripWithSeatsById(int tripId) {
+        return supply(() -> services.getTripWithSeatsById(tripId));
+    }
+
+    @Override
+    public CompletableFuture<TripChanges> getTripChanges(long epoch, long sinceSequence) {
+        return supply(() -> services.getTripChanges(epoch, sinceSequence));
+    }
+
+    private <T> CompletableFuture<T> supply(ServiceCall<T> call) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(call.call());
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(new ServicesException("Service executor is shut down", e));
+        }
+        return future;
+    }
+
+    /**
+     * Daemon threads, so a pending network call never keeps the JVM alive after the UI closes.
+     */
+    private static ExecutorService newDefaultExecutor() {
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "services-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @FunctionalInterface
+    private interface ServiceCall<T> {
+        T call() throws ServicesException;
+    }
+}
@@ -0,0 +1,498 @@
+package ro.mpp2024;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caching decorator over another {@link IServices} (normally the {@link GrpcServicesProxy}).
+ * The trip list and the per-trip seat maps are kept in memory, so the refreshes the controllers
+ * do after every reservation are answered locally instead of going to the server.
+ * {@link #getTripWithSeats} is a hit only when both the trip and its seat map are cached.
+ * Seat maps are kept as {@link SeatMap}s and replaced, never changed, once cached. Readers
+ * get copies of cached trips and seat maps: the caller may keep them as table rows while the
+ * cache patches its own instances from the notification threads.
+ * <p>
+ * Each trip is cached as one instance of its own, shared by the trip list and the lookups,
+ * so a trip read again (e.g. on a page) or patched is current everywhere. Own reservations
+ * and {@link SeatsReservedEvent} deltas from other offices patch only the affected trip in
+ * place. A notification without a delta drops the cached entries so the
+ * next read goes to the server again. A {@link SeatsConflictException} replaces the cached
+ * trip and seat map with the current ones it carries.
+ */
+public class CachingServicesProxy implements IServices {
+    private static final Logger logger = LogManager.getLogger(CachingServicesProxy.class);
+
+    private final IServices delegate;
+
+    private volatile List<Trip> trips;                                      // null = not loaded yet
+    private final Map<TripKey, Trip> tripsByKey = new ConcurrentHashMap<>();
+    private final Map<TripKey, SeatMap> seatsByKey = new ConcurrentHashMap<>();
+    private final Map<Integer, TripKey> keysById = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public CachingServicesProxy(IServices delegate) {
+        this.delegate = delegate;
+    }
+
+    /* ======================== AUTH ======================== */
+
+    @Override
+    public Employee login(String username, String password, IObserver client) throws ServicesException {
+        return delegate.login(username, password, new CacheUpdatingObserver(client));
+    }
+
+    @Override
+    public void logout(Employee employee) throws ServicesException {
+        try {
+            delegate.logout(employee);
+        } finally {
+            logger.info("Trip cache stats: hits={}, misses={}, invalidations={}",
+                        getHits(), getMisses(), getInvalidations());
+            invalidateAll();
+        }
+    }
+
+    /* ======================== CRUD ======================== */
+
+    @Override
+    public List<Trip> getAllTrips() throws ServicesException {
+        synchronized (this) {
+            if (trips != null) {
+                hits.incrementAndGet();
+                return copies(trips);
+            }
+        }
+        misses.incrementAndGet();
+        List<Trip> loaded = delegate.getAllTrips();
+        synchronized (this) {
+            List<Trip> remembered = new ArrayList<>(loaded.size());
+            for (Trip trip : loaded) {
+                remembered.add(remember(TripKey.of(trip), trip));
+            }
+            trips = remembered;
+        }
+        return new ArrayList<>(loaded);
+    }
+
+    /**
+     * Pages are not cached (filters and positions vary too much), but the trips they contain
+     * are remembered, so a later {@link #getTrip} for one of them is answered locally.
+     */
+    @Override
+    public TripPage getTrips(TripQuery query) throws ServicesException {
+        TripPage page = delegate.getTrips(query);
+        synchronized (this) {
+            for (Trip trip : page.getTrips()) {
+                remember(TripKey.of(trip), trip);
+            }
+        }
+        return page;
+    }
+
+    @Override
+    public Trip getTrip(String destination, LocalDate date, LocalTime time) throws ServicesException {
+        TripKey key = new TripKey(destination, date, time);
+        synchronized (this) {
+            Trip cached = tripsByKey.get(key);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return cached.copy();
+            }
+        }
+        misses.incrementAndGet();
+        Trip loaded = delegate.getTrip(destination, date, time);
+        if (loaded != null) {
+            remember(key, loaded);
+        }
+        return loaded;
+    }
+
+    @Override
+    public TripWithSeats getTripWithSeats(String destination, LocalDate date, LocalTime time)
+            throws ServicesException {
+        TripKey key = new TripKey(destination, date, time);
+        synchronized (this) {
+            Trip cachedTrip = tripsByKey.get(key);
+            SeatMap cachedSeats = seatsByKey.get(key);
+            if (cachedTrip != null && cachedSeats != null) {
+                hits.incrementAndGet();
+                return new TripWithSeats(cachedTrip.copy(), cachedSeats.copy());
+            }
+        }
+        misses.incrementAndGet();
+        TripWithSeats loaded = delegate.getTripWithSeats(destination, date, time);
+        synchronized (this) {
+            remember(key, loaded.getTrip());
+            seatsByKey.put(key, SeatMap.of(loaded.getSeats()));
+        }
+        return loaded;
+    }
+
+    @Override
+    public Trip getTripById(int tripId) throws ServicesException {
+        synchronized (this) {
+            TripKey key = keysById.get(tripId);
+            Trip cached = key == null ? null : tripsByKey.get(key);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return cached.copy();
+            }
+        }
+        misses.incrementAndGet();
+        Trip loaded = delegate.getTripById(tripId);
+        remember(TripKey.of(loaded), loaded);
+        return loaded;
+    }
+
+    @Override
+    public List<Seat> searchTripSeatsById(int tripId) throws ServicesException {
+        TripKey key = keysById.get(tripId);
+        SeatMap cached = key == null ? null : seatsByKey.get(key);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached.copy();
+        }
+        misses.incrementAndGet();
+        List<Seat> loaded = delegate.searchTripSeatsById(tripId);
+        if (key != null) {
+            seatsByKey.put(key, SeatMap.of(loaded));
+        }
+        return loaded;
+    }
+
+    @Override
+    public TripWithSeats getTripWithSeatsById(int tripId) throws ServicesException {
+        synchronized (this) {
+            TripKey key = keysById.get(tripId);
+            Trip cachedTrip = key == null ? null : tripsByKey.get(key);
+            SeatMap cachedSeats = key == null ? null : seatsByKey.get(key);
+            if (cachedTrip != null && cachedSeats != null) {
+                hits.incrementAndGet();
+                return new TripWithSeats(cachedTrip.copy(), cachedSeats.copy());
+            }
+        }
+        misses.incrementAndGet();
+        TripWithSeats loaded = delegate.getTripWithSeatsById(tripId);
+        synchronized (this) {
+            TripKey key = TripKey.of(loaded.getTrip());
+            remember(key, loaded.getTrip());
+            seatsByKey.put(key, SeatMap.of(loaded.getSeats()));
+        }
+        return loaded;
+    }
+
+    @Override
+    public List<Seat> searchTripSeats(String destination, LocalDate date, LocalTime time) throws ServicesException {
+        TripKey key = new TripKey(destination, date, time);
+        SeatMap cached = seatsByKey.get(key);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached.copy();
+        }
+        misses.incrementAndGet();
+        List<Seat> loaded = delegate.searchTripSeats(destination, date, time);
+        seatsByKey.put(key, SeatMap.of(loaded));
+        return loaded;
+    }
+
+    /**
+     * Brings the cached trips and seat maps up to date with the changes before returning them.
+     * The reservations are replayed first and the current state of the trips is copied last,
+     * so an older event never overwrites a newer seat count. When a full load is required, or
+     * trips were removed, everything is dropped instead.
+     * Asking from position 0 only reads the current position (the answer always requires a
+     * full load), so the cache is left alone then.
+     */
+    @Override
+    public TripChanges getTripChanges(long epoch, long sinceSequence) throws ServicesException {
+        TripChanges changes = delegate.getTripChanges(epoch, sinceSequence);
+        if (epoch == 0 && sinceSequence == 0)
+            return changes;
+        if (changes.isSnapshotRequired() || !changes.getRemovedTripIds().isEmpty()) {
+            invalidateAll();
+            return changes;
+        }
+        synchronized (this) {
+            for (SeatsReservedEvent event : changes.getSeatChanges()) {
+                applyEvent(event);
+            }
+            for (Trip trip : changes.getTrips()) {          // după evenimente: starea curentă câştigă
+                TripKey key = TripKey.of(trip);
+                Trip cachedTrip = tripsByKey.get(key);
+                if (cachedTrip != null) {
+                    cachedTrip.setAvailableSeats(trip.getAvailableSeats());
+                    cachedTrip.setVersion(trip.getVersion());
+                } else {
+                    remember(key, trip);
+                    trips = null;               // lista completă nu îl conţine
+                }
+            }
+        }
+        return changes;
+    }
+
+    @Override
+    public long reserveSeats(String clientName, List<Integer> seatNumbers, Trip trip, Employee employee)
+            throws ServicesException {
+        long version;
+        try {
+            version = delegate.reserveSeats(clientName, seatNumbers, trip, employee);
+        } catch (SeatsConflictException e) {
+            rememberConflict(e);
+            throw e;
+        }
+        applyReservation(TripKey.of(trip), seatNumbers, clientName, null, version > 0 ? version : null);
+        return version;
+    }
+
+    @Override
+    public SeatHold holdSeats(Trip trip, List<Integer> seatNumbers, Employee employee) throws ServicesException {
+        try {
+            return delegate.holdSeats(trip, seatNumbers, employee);
+        } catch (SeatsConflictException e) {
+            rememberConflict(e);
+            throw e;
+        }
+    }
+
+    @Override
+    public SeatHold renewHold(SeatHold hold, List<Integer> seatNumbers, Employee employee) throws ServicesException {
+        try {
+            return delegate.renewHold(hold, seatNumbers, employee);
+        } catch (SeatsConflictException e) {
+            rememberConflict(e);
+            throw e;
+        }
+    }
+
+    @Override
+    public void releaseHold(SeatHold hold, Employee employee) throws ServicesException {
+        delegate.releaseHold(hold, employee);
+    }
+
+    @Override
+    public List<ReservationResult> reserveSeatsBatch(List<ReservationRequest> reservations, Employee employee)
+            throws ServicesException {
+        List<ReservationResult> results = delegate.reserveSeatsBatch(reservations, employee);
+        for (ReservationResult result : results) {
+            if (result.isSuccess()) {
+                ReservationRequest request = result.getRequest();
+                applyReservation(TripKey.of(request.getTrip()), request.getSeatNumbers(),
+                                 request.getClientName(), result.getAvailableSeats(), null);
+            }
+        }
+        return results;
+    }
+
+    /* ======================== NOTIFICĂRI ======================== */
+
+    @Override
+    public void subscribeToUpdates(int employeeId, IObserver observer) {
+        delegate.subscribeToUpdates(employeeId, new CacheUpdatingObserver(observer));
+    }
+
+    /* ======================== CACHE ======================== */
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getInvalidations() {
+        return invalidations.get();
+    }
+
+    private static List<Trip> copies(List<Trip> cached) {
+        List<Trip> copies = new ArrayList<>(cached.size());
+        for (Trip trip : cached) {
+            copies.add(trip.copy());
+        }
+        return copies;
+    }
+
+    /**
+     * Drops every cached trip and seat map.
+     */
+    public synchronized void invalidateAll() {
+        int dropped = tripsByKey.size() + seatsByKey.size() + (trips == null ? 0 : 1);
+        trips = null;
+        tripsByKey.clear();
+        seatsByKey.clear();
+        keysById.clear();
+        invalidations.addAndGet(dropped);
+    }
+
+    /**
+     * A conflict carries the current trip and seat map, so the cache can take them over.
+     */
+    private synchronized void rememberConflict(SeatsConflictException conflict) {
+        TripWithSeats current = conflict.getCurrent();
+        TripKey key = TripKey.of(current.getTrip());
+        remember(key, current.getTrip());
+        seatsByKey.put(key, SeatMap.of(current.getSeats()));
+    }
+
+    /**
+     * Marks seats of a cached seat map as held or free; reserved seats are left alone.
+     */
+    private synchronized void applyHeld(SeatsHeldEvent event) {
+        TripKey key = keysById.get(event.getTripId());
+        SeatMap cachedSeats = key == null ? null : seatsByKey.get(key);
+        if (cachedSeats == null)
+            return;
+        SeatMap patched = cachedSeats.copy();            // cititorii pot copia harta cache-uită oricând
+        patched.hold(event.getSeatNumbers(), event.isHeld());
+        seatsByKey.put(key, patched);
+    }
+
+    /**
+     * Caches a trip read from the server. A trip already cached is brought up to date in
+     * place, so the cached trip list sees the change; a new one is cached as a copy, so the
+     * object handed to the caller is never changed by the cache.
+     *
+     * @return the cached instance
+     */
+    private synchronized Trip remember(TripKey key, Trip trip) {
+        Trip cached = tripsByKey.get(key);
+        if (cached != null) {
+            cached.setAvailableSeats(trip.getAvailableSeats());
+            cached.setVersion(trip.getVersion());
+        } else {
+            cached = trip.copy();
+            tripsByKey.put(key, cached);
+        }
+        if (trip.getId() != null) {
+            keysById.put(trip.getId(), key);
+        }
+        return cached;
+    }
+
+    /**
+     * Applies a reservation delta received from the server. A trip unknown to the cache is
+     * skipped; only seat maps cached without their trip (e.g. by {@link #searchTripSeats}) may
+     * belong to it, so just those are dropped.
+     */
+    private void applyEvent(SeatsReservedEvent event) {
+        TripKey key = keysById.get(event.getTripId());
+        if (key == null) {
+            dropUnmappedSeats();
+            return;
+        }
+        applyReservation(key, event.getSeatNumbers(), event.getClientName(), event.getAvailableSeats(),
+                         event.getVersion() > 0 ? event.getVersion() : null);
+    }
+
+    private synchronized void dropUnmappedSeats() {
+        if (seatsByKey.isEmpty())
+            return;
+        Set<TripKey> mapped = new HashSet<>(keysById.values());
+        int before = seatsByKey.size();
+        seatsByKey.keySet().removeIf(key -> !mapped.contains(key));
+        invalidations.addAndGet(before - seatsByKey.size());
+    }
+
+    /**
+     * Patches the cached trip and seat map after a reservation, so they stay usable without
+     * another round trip. Entries that are not cached are left alone, and so is a cached trip
+     * whose version is already at least the given one; the seats are reserved either way.
+     *
+     * @param availableSeats the new seat count sent by the server, or {@code null} to
+     *                       derive it from the number of reserved seats
+     * @param version        the new trip version sent by the server, or {@code null} to
+     *                       derive it the same way (the version counts reserved seats)
+     */
+    private synchronized void applyReservation(TripKey key, List<Integer> seatNumbers, String clientName,
+                                               Integer availableSeats, Long version) {
+        Trip cachedTrip = tripsByKey.get(key);
+        if (cachedTrip != null && version != null && cachedTrip.getVersion() != null
+                && version <= cachedTrip.getVersion()) {
+            cachedTrip = null;                  // o schimbare mai nouă a ajuns deja în cache
+        }
+        if (cachedTrip != null) {
+            if (availableSeats != null) {
+                cachedTrip.setAvailableSeats(availableSeats);
+            } else if (cachedTrip.getAvailableSeats() != null) {
+                cachedTrip.setAvailableSeats(cachedTrip.getAvailableSeats() - seatNumbers.size());
+            }
+            if (version != null) {
+                cachedTrip.setVersion(version);
+            } else if (cachedTrip.getVersion() != null) {
+                cachedTrip.setVersion(cachedTrip.getVersion() + seatNumbers.size());
+            }
+        }
+
+        SeatMap cachedSeats = seatsByKey.get(key);
+        if (cachedSeats != null) {
+            SeatMap patched = cachedSeats.copy();
+            patched.reserve(seatNumbers, clientName);
+            seatsByKey.put(key, patched);
+        }
+    }
+
+    /**
+     * Updates the cache before forwarding notifications to the real observer: deltas patch
+     * the affected trip, plain notifications drop everything.
+     */
+    private class CacheUpdatingObserver implements IObserver {
+        private final IObserver observer;
+
+        private CacheUpdatingObserver(IObserver observer) {
+            this.observer = observer;
+        }
+
+        @Override
+        public void seatsReserved() throws ServicesException {
+            invalidateAll();
+            observer.seatsReserved();
+        }
+
+        @Override
+        public void seatsReserved(SeatsReservedEvent event) throws ServicesException {
+            applyEvent(event);
+            observer.seatsReserved(event);
+        }
+
+        @Override
+        public void seatsReserved(List<SeatsReservedEvent> events) throws ServicesException {
+            for (SeatsReservedEvent event : events) {
+                applyEvent(event);
+            }
+            observer.seatsReserved(events);
+        }
+
+        @Override
+        public void seatsHeld(List<SeatsHeldEvent> events) throws ServicesException {
+            for (SeatsHeldEvent event : events) {
+                applyHeld(event);
+            }
+            observer.seatsHeld(events);
+        }
+
+        @Override
+        public void streamHealthChanged(StreamHealth health) {
+            observer.streamHealthChanged(health);
+        }
+    }
+
+    private record TripKey(String destination, LocalDate date, LocalTime time) {
+        static TripKey of(Trip trip) {
+            return new TripKey(trip.getDestination().getName(), trip.getDepartureDate(), trip.getDepartureTime());
+        }
+    }
+}
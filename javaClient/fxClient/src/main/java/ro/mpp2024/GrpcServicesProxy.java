@@ -1,14 +1,17 @@
 package ro.mpp2024;
 
+import com.google.common.util.concurrent.MoreExecutors;
 import io.grpc.ManagedChannel;
-import io.grpc.stub.StreamObserver;
 import ro.mpp2024.proto.*;
 import ro.mpp2024.utils.DTOUtils;
+import ro.mpp2024.utils.NotificationStream;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * Thin wrapper around the gRPC stubs generated from <code>transport-company.proto</code>.
@@ -25,7 +28,10 @@ public class GrpcServicesProxy implements IServices {
     private final TransportCompanyGrpc.TransportCompanyBlockingStub grpcStub;
     private final TransportCompanyGrpc.TransportCompanyStub asyncStub;
 
-    private StreamObserver<NotifySeatsReservedReply> notifyStream;          // pentru logout
+    private NotificationStream notifyStream;                                // pentru logout
+    private Duration initialReconnectBackoff = Duration.ofMillis(500);
+    private Duration maxReconnectBackoff = Duration.ofSeconds(30);
+    private Executor notificationExecutor = MoreExecutors.directExecutor();
 
     public GrpcServicesProxy(TransportCompanyGrpc.TransportCompanyBlockingStub grpcStub) {
         this.grpcStub = grpcStub;
@@ -33,6 +39,23 @@ public class GrpcServicesProxy implements IServices {
         this.asyncStub = TransportCompanyGrpc.newStub(channel);
     }
 
+    /**
+     * Bounds of the exponential backoff used when the notification stream has to reconnect.
+     */
+    public void setReconnectBackoff(Duration initial, Duration max) {
+        this.initialReconnectBackoff = initial;
+        this.maxReconnectBackoff = max;
+    }
+
+    /**
+     * Runs the observer's notification callbacks on the executor instead of the gRPC thread
+     * that received them, one at a time and in the order they arrived. By default they run
+     * on the gRPC thread.
+     */
+    public void setNotificationExecutor(Executor executor) {
+        this.notificationExecutor = MoreExecutors.newSequentialExecutor(executor);
+    }
+
     /* ======================== AUTH ======================== */
 
     @Override
@@ -64,15 +87,15 @@ public class GrpcServicesProxy implements IServices {
 
     @Override
     public void logout(Employee employee) throws ServicesException {
+        if (notifyStream != null) {
+            notifyStream.close();              // opreşte fluxul înainte ca serverul să-l închidă
+            notifyStream = null;
+        }
         try {
             grpcStub.logout(LogoutRequest.newBuilder()
                                          .setEmployeeId(employee.getId())
                                          .build());
         } finally {
-            if (notifyStream != null) {
-                notifyStream.onCompleted();    // opreşte fluxul
-                notifyStream = null;
-            }
             channel.shutdownNow();             // eliberează resursele
         }
     }
@@ -93,16 +116,47 @@ public class GrpcServicesProxy implements IServices {
         }
     }
 
+    @Override
+    public TripPage getTrips(TripQuery query) throws ServicesException {
+        try {
+            GetTripsRequest.Builder request = GetTripsRequest.newBuilder()
+                    .setMinAvailableSeats(query.getMinAvailableSeats())
+                    .setPageSize(query.getPageSize());
+            if (query.getDestinationPrefix() != null)
+                request.setDestinationPrefix(query.getDestinationPrefix());
+            if (query.getDateFrom() != null)
+                request.setDateFrom(query.getDateFrom().toString());
+            if (query.getDateTo() != null)
+                request.setDateTo(query.getDateTo().toString());
+            if (query.getPageToken() != null)
+                request.setPageToken(query.getPageToken());
+
+            GetTripsReply response = grpcStub.getTrips(request.build());
+            List<Trip> trips = new ArrayList<>(response.getTripsCount());
+            for (TripDTO tripDTO : response.getTripsList()) {
+                trips.add(DTOUtils.convertTripDTOToTrip(tripDTO));
+            }
+            String next = response.getNextPageToken();
+            return new TripPage(trips, next.isEmpty() ? null : next);
+        } catch (Exception e) {
+            throw new ServicesException("Error retrieving trips: " + e.getMessage(), e);
+        }
+    }
+
     @Override
     public Trip getTrip(String destination, LocalDate date, LocalTime time)
             throws ServicesException {
+        return getTrip(tripKeyRequest(destination, date, time));
+    }
+
+    @Override
+    public Trip getTripById(int tripId) throws ServicesException {
+        return getTrip(GetTripRequest.newBuilder().setTripId(tripId).build());
+    }
+
+    private Trip getTrip(GetTripRequest request) throws ServicesException {
         try {
-            GetTripReply response = grpcStub.getTrip(
-                    GetTripRequest.newBuilder()
-                                  .setDestination(destination)
-                                  .setDate(date.toString())
-                                  .setTime(time.toString())
-                                  .build());
+            GetTripReply response = grpcStub.getTrip(request);
 
             if (!response.hasTrip())
                 throw new ServicesException("Trip not found");
@@ -113,41 +167,136 @@ public class GrpcServicesProxy implements IServices {
         }
     }
 
+    @Override
+    public TripWithSeats getTripWithSeats(String destination, LocalDate date, LocalTime time)
+            throws ServicesException {
+        return getTripWithSeats(tripKeyRequest(destination, date, time));
+    }
+
+    @Override
+    public TripWithSeats getTripWithSeatsById(int tripId) throws ServicesException {
+        return getTripWithSeats(GetTripRequest.newBuilder().setTripId(tripId).build());
+    }
+
+    private TripWithSeats getTripWithSeats(GetTripRequest request) throws ServicesException {
+        try {
+            GetTripWithSeatsReply response = grpcStub.getTripWithSeats(request.toBuilder()
+                                                                              .setCompactSeats(true)
+                                                                              .build());
+
+            if (!response.hasTrip())
+                throw new ServicesException("Trip not found");
+
+            return new TripWithSeats(DTOUtils.convertTripDTOToTrip(response.getTrip()),
+                                     response.hasSeatMap()
+                                     ? DTOUtils.convertSeatMapDTOToSeatMap(response.getSeatMap())
+                                     : toSeats(response.getSeatsList()));
+        } catch (Exception e) {
+            throw new ServicesException("Error getting trip: " + e.getMessage(), e);
+        }
+    }
+
     @Override
     public List<Seat> searchTripSeats(String destination, LocalDate date, LocalTime time)
             throws ServicesException {
+        return searchTripSeats(SearchTripSeatsRequest.newBuilder()
+                                                     .setDestination(destination)
+                                                     .setDate(date.toString())
+                                                     .setTime(time.toString())
+                                                     .build());
+    }
+
+    @Override
+    public List<Seat> searchTripSeatsById(int tripId) throws ServicesException {
+        return searchTripSeats(SearchTripSeatsRequest.newBuilder().setTripId(tripId).build());
+    }
+
+    private List<Seat> searchTripSeats(SearchTripSeatsRequest request) throws ServicesException {
         try {
-            SearchTripSeatsReply response = grpcStub.searchTripSeats(
-                    SearchTripSeatsRequest.newBuilder()
-                                           .setDestination(destination)
-                                           .setDate(date.toString())
-                                           .setTime(time.toString())
-                                           .build());
-
-            List<Seat> seats = new ArrayList<>();
-            for (SeatDTO dto : response.getSeatsList()) {
-                seats.add(new Seat(dto.getSeatNumber(), dto.getClientName()));
-            }
-            return seats;
+            SearchTripSeatsReply response = grpcStub.searchTripSeats(request.toBuilder()
+                                                                            .setCompactSeats(true)
+                                                                            .build());
+            return response.hasSeatMap()                // serverele vechi trimit doar lista
+                   ? DTOUtils.convertSeatMapDTOToSeatMap(response.getSeatMap())
+                   : toSeats(response.getSeatsList());
         } catch (Exception e) {
             throw new ServicesException("Error searching trip seats: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * The trips and seats changed since a position of an earlier call; with the position
+     * 0/0, only the current position, marked as needing a full load.
+     */
+    @Override
+    public TripChanges getTripChanges(long epoch, long sinceSequence) throws ServicesException {
+        try {
+            GetTripChangesReply reply = grpcStub.getTripChanges(GetTripChangesRequest.newBuilder()
+                                                                                .setEpoch(epoch)
+                                                                                .setSinceSequence(sinceSequence)
+                                                                                .build());
+            List<Trip> trips = new ArrayList<>(reply.getTripsCount());
+            for (TripDTO tripDTO : reply.getTripsList()) {
+                trips.add(DTOUtils.convertTripDTOToTrip(tripDTO));
+            }
+            List<SeatsReservedEvent> seatChanges = new ArrayList<>(reply.getSeatChangesCount());
+            for (SeatsReservedDelta delta : reply.getSeatChangesList()) {
+                seatChanges.add(toEvent(delta));
+            }
+            return new TripChanges(reply.getEpoch(), reply.getSequence(), reply.getSnapshotRequired(),
+                                   trips, reply.getRemovedTripIdsList(), seatChanges);
+        } catch (Exception e) {
+            throw new ServicesException("Error retrieving trip changes: " + e.getMessage(), e);
+        }
+    }
+
+    private static SeatsReservedEvent toEvent(SeatsReservedDelta delta) {
+        return new SeatsReservedEvent(delta.getTripId(), delta.getSeatNumbersList(), delta.getClientName(),
+                                      delta.getAvailableSeats(), delta.getVersion());
+    }
+
+    private static GetTripRequest tripKeyRequest(String destination, LocalDate date, LocalTime time) {
+        return GetTripRequest.newBuilder()
+                             .setDestination(destination)
+                             .setDate(date.toString())
+                             .setTime(time.toString())
+                             .build();
+    }
+
+    private static SeatMap toSeats(List<SeatDTO> dtos) {
+        List<Seat> seats = new ArrayList<>(dtos.size());
+        for (SeatDTO dto : dtos) {
+            seats.add(new Seat(dto.getSeatNumber(), dto.getClientName(), dto.getHeld()));
+        }
+        return SeatMap.of(seats);
+    }
+
     @Override
-    public void reserveSeats(String clientName, List<Integer> seatNumbers,
+    public long reserveSeats(String clientName, List<Integer> seatNumbers,
                              Trip trip, Employee employee) throws ServicesException {
+        int tripId = tripId(trip);
         try {
-            ReserveSeatsReply reply = grpcStub.reserveSeats(
-                    ReserveSeatsRequest.newBuilder()
-                                       .setClientName(clientName)
-                                       .addAllSeatNumbers(seatNumbers)
-                                       .setTrip(DTOUtils.convertTripToTripDTO(trip))
-                                       .setEmployeeId(employee.getId())
-                                       .build());
+            ReserveSeatsRequest.Builder request = ReserveSeatsRequest.newBuilder()
+                                                                     .setClientName(clientName)
+                                                                     .addAllSeatNumbers(seatNumbers)
+                                                                     .setTrip(DTOUtils.convertTripToTripDTO(trip))
+                                                                     .setTripId(tripId)
+                                                                     .setEmployeeId(employee.getId());
+            if (trip.getVersion() != null)
+                request.setExpectedVersion(trip.getVersion());
+            ReserveSeatsReply reply = grpcStub.reserveSeats(request.build());
 
+            if (reply.hasConflict()) {
+                ReservationConflict conflict = reply.getConflict();
+                throw new SeatsConflictException(reply.getMessage(), conflict.getLostSeatsList(),
+                        new TripWithSeats(DTOUtils.convertTripDTOToTrip(conflict.getTrip()),
+                                          toSeats(conflict.getSeatsList())));
+            }
             if (!reply.getSuccess())
                 throw new ServicesException("Reservation failed: " + reply.getMessage());
+            return reply.getVersion();
+        } catch (ServicesException e) {
+            throw e;
         } catch (io.grpc.StatusRuntimeException e) {
             String detail = e.getStatus().getDescription();
             if (detail == null || detail.isEmpty()) detail = e.getMessage();
@@ -157,30 +306,139 @@ public class GrpcServicesProxy implements IServices {
         }
     }
 
+    /**
+     * The id of a trip that is about to be changed on the server; a trip that was never read
+     * from the server has none.
+     */
+    private static int tripId(Trip trip) throws ServicesException {
+        if (trip == null || trip.getId() == null)
+            throw new ServicesException("No trip selected: search for the trip first");
+        return trip.getId();
+    }
+
+    @Override
+    public SeatHold holdSeats(Trip trip, List<Integer> seatNumbers, Employee employee) throws ServicesException {
+        return holdSeats(trip, seatNumbers, "", employee);
+    }
+
+    @Override
+    public SeatHold renewHold(SeatHold hold, List<Integer> seatNumbers, Employee employee) throws ServicesException {
+        return holdSeats(hold.getTrip(), seatNumbers, hold.getHoldId(), employee);
+    }
+
+    private SeatHold holdSeats(Trip trip, List<Integer> seatNumbers, String holdId, Employee employee)
+            throws ServicesException {
+        try {
+            HoldSeatsReply reply = grpcStub.holdSeats(HoldSeatsRequest.newBuilder()
+                                                                      .setEmployeeId(employee.getId())
+                                                                      .setTripId(tripId(trip))
+                                                                      .addAllSeatNumbers(seatNumbers)
+                                                                      .setHoldId(holdId)
+                                                                      .build());
+            if (!reply.getSuccess()) {
+                ReservationConflict conflict = reply.getConflict();
+                throw new SeatsConflictException("Some seats are already reserved or held.", conflict.getLostSeatsList(),
+                        new TripWithSeats(DTOUtils.convertTripDTOToTrip(conflict.getTrip()),
+                                          toSeats(conflict.getSeatsList())));
+            }
+            return new SeatHold(reply.getHoldId(), trip, seatNumbers, Duration.ofSeconds(reply.getLeaseSeconds()));
+        } catch (io.grpc.StatusRuntimeException e) {
+            String detail = e.getStatus().getDescription();
+            if (detail == null || detail.isEmpty()) detail = e.getMessage();
+            throw new ServicesException(detail, e);
+        }
+    }
+
+    @Override
+    public void releaseHold(SeatHold hold, Employee employee) throws ServicesException {
+        try {
+            grpcStub.releaseSeats(ReleaseSeatsRequest.newBuilder()
+                                                     .setEmployeeId(employee.getId())
+                                                     .setHoldId(hold.getHoldId())
+                                                     .build());
+        } catch (io.grpc.StatusRuntimeException e) {
+            throw new ServicesException("Error releasing seats: " + e.getStatus().getDescription(), e);
+        }
+    }
+
+    @Override
+    public List<ReservationResult> reserveSeatsBatch(List<ReservationRequest> reservations, Employee employee)
+            throws ServicesException {
+        ReserveSeatsBatchRequest.Builder request = ReserveSeatsBatchRequest.newBuilder()
+                                                                           .setEmployeeId(employee.getId());
+        for (ReservationRequest reservation : reservations) {
+            request.addItems(ReservationItem.newBuilder()
+                                            .setClientName(reservation.getClientName())
+                                            .setTripId(tripId(reservation.getTrip()))
+                                            .addAllSeatNumbers(reservation.getSeatNumbers()));
+        }
+        try {
+            ReserveSeatsBatchReply reply = grpcStub.reserveSeatsBatch(request.build());
+            if (reply.getResultsCount() != reservations.size())
+                throw new ServicesException("Expected " + reservations.size() + " reservation results, got "
+                                            + reply.getResultsCount());
+            List<ReservationResult> results = new ArrayList<>(reservations.size());
+            for (int i = 0; i < reservations.size(); i++) {
+                ReservationItemResult result = reply.getResults(i);
+                results.add(new ReservationResult(reservations.get(i), result.getSuccess(),
+                                                  result.getMessage(), result.getAvailableSeats()));
+            }
+            return results;
+        } catch (io.grpc.StatusRuntimeException e) {
+            String detail = e.getStatus().getDescription();
+            if (detail == null || detail.isEmpty()) detail = e.getMessage();
+            throw new ServicesException(detail, e);
+        }
+    }
+
     /* ======================== NOTIFICĂRI ======================== */
 
     @Override
     public void subscribeToUpdates(int employeeId, IObserver observer) {
+        if (notifyStream != null)
+            notifyStream.close();
+        Executor executor = notificationExecutor;
+        notifyStream = new NotificationStream(asyncStub, employeeId,
+                                              reply -> executor.execute(() -> dispatch(reply, observer)),
+                                              health -> executor.execute(() -> observer.streamHealthChanged(health)),
+                                              initialReconnectBackoff, maxReconnectBackoff);
+        notifyStream.open();
+    }
 
-        NotifySeatsReservedRequest request = NotifySeatsReservedRequest
-                .newBuilder()
-                .setEmployeeId(employeeId)
-                .build();
-
-        // Create the stream observer and save it
-        notifyStream = new StreamObserver<NotifySeatsReservedReply>() {
-            @Override
-            public void onNext(NotifySeatsReservedReply value) {
-                try {
-                    observer.seatsReserved();
-                } catch (ServicesException e) {
-                    // Log error if needed
+    private static void dispatch(NotifySeatsReservedReply value, IObserver observer) {
+        try {
+            if (value.getResyncRequired()) {
+                observer.seatsReserved();              // notificările pierdute nu mai sunt pe server
+                return;
+            }
+
+            if (value.getHoldsCount() > 0) {
+                List<SeatsHeldEvent> events = new ArrayList<>(value.getHoldsCount());
+                for (SeatsHeldDelta delta : value.getHoldsList()) {
+                    events.add(new SeatsHeldEvent(delta.getTripId(), delta.getSeatNumbersList(),
+                                                  delta.getHeld()));
                 }
+                observer.seatsHeld(events);
             }
-            @Override public void onError(Throwable t)  { /* Log error if needed */ }
-            @Override public void onCompleted()         { }
-        };
 
-        // Send the request; method is void
-        asyncStub.notifySeatsReserved(request, notifyStream);
-    }}
\ No newline at end of file
+            if (value.getDeltasCount() > 0) {
+                List<SeatsReservedEvent> events = new ArrayList<>(value.getDeltasCount());
+                for (SeatsReservedDelta delta : value.getDeltasList()) {
+                    events.add(toEvent(delta));
+                }
+                observer.seatsReserved(events);
+            } else if (value.getTripId() == 0) {
+                if (value.getHoldsCount() == 0)
+                    observer.seatsReserved();          // server vechi, fără delta
+            } else {
+                observer.seatsReserved(new SeatsReservedEvent(value.getTripId(),
+                                                              value.getSeatNumbersList(),
+                                                              value.getClientName(),
+                                                              value.getAvailableSeats(),
+                                                              value.getVersion()));
+            }
+        } catch (ServicesException e) {
+            // Log error if needed
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,288 @@
+package ro.mpp2024;
+
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import ro.mpp2024.utils.TripSnapshotStore;
+
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Decorator over the {@link GrpcServicesProxy} that keeps a {@link TripSnapshotStore} up to
+ * date and answers from it while the server cannot be reached. Every trip list, trip and seat
+ * map read from the server is saved, and {@link SeatsReservedEvent} deltas are applied to the
+ * saved copy as they arrive.
+ * <p>
+ * A read that fails with <code>UNAVAILABLE</code> or <code>DEADLINE_EXCEEDED</code> is answered
+ * from the snapshot. Login, reservations and holds are never answered locally: they throw a
+ * {@link ServerUnavailableException}, which tells the view when the snapshot was saved.
+ */
+public class SnapshotServicesProxy implements IServices {
+    private static final Logger logger = LogManager.getLogger(SnapshotServicesProxy.class);
+
+    private final IServices delegate;
+    private final TripSnapshotStore store;
+
+    public SnapshotServicesProxy(IServices delegate, TripSnapshotStore store) {
+        this.delegate = delegate;
+        this.store = store;
+    }
+
+    /* ======================== AUTH ======================== */
+
+    @Override
+    public Employee login(String username, String password, IObserver client) throws ServicesException {
+        return online("Cannot log in", () -> delegate.login(username, password, new SnapshotUpdatingObserver(client)));
+    }
+
+    @Override
+    public void logout(Employee employee) throws ServicesException {
+        delegate.logout(employee);
+    }
+
+    /* ======================== CRUD ======================== */
+
+    @Override
+    public List<Trip> getAllTrips() throws ServicesException {
+        return read(() -> {
+            List<Trip> trips = delegate.getAllTrips();
+            store.replaceTrips(trips);          // e tot catalogul: ce lipseşte a fost şters
+            return trips;
+        }, store::loadAllTrips);
+    }
+
+    @Override
+    public TripPage getTrips(TripQuery query) throws ServicesException {
+        return read(() -> {
+            TripPage page = delegate.getTrips(query);
+            store.saveTrips(page.getTrips());
+            return page;
+        }, () -> store.loadTrips(query));
+    }
+
+    @Override
+    public Trip getTrip(String destination, LocalDate date, LocalTime time) throws ServicesException {
+        return read(() -> save(delegate.getTrip(destination, date, time)),
+                    () -> stored(store.loadTrip(destination, date, time)));
+    }
+
+    @Override
+    public Trip getTripById(int tripId) throws ServicesException {
+        return read(() -> save(delegate.getTripById(tripId)),
+                    () -> stored(store.loadTrip(tripId)));
+    }
+
+    @Override
+    public TripWithSeats getTripWithSeats(String destination, LocalDate date, LocalTime time)
+            throws ServicesException {
+        return read(() -> save(delegate.getTripWithSeats(destination, date, time)),
+                    () -> storedWithSeats(stored(store.loadTrip(destination, date, time))));
+    }
+
+    @Override
+    public TripWithSeats getTripWithSeatsById(int tripId) throws ServicesException {
+        return read(() -> save(delegate.getTripWithSeatsById(tripId)),
+                    () -> storedWithSeats(stored(store.loadTrip(tripId))));
+    }
+
+    @Override
+    public List<Seat> searchTripSeats(String destination, LocalDate date, LocalTime time) throws ServicesException {
+        return read(() -> delegate.searchTripSeats(destination, date, time),
+                    () -> storedWithSeats(stored(store.loadTrip(destination, date, time))).getSeats());
+    }
+
+    @Override
+    public List<Seat> searchTripSeatsById(int tripId) throws ServicesException {
+        return read(() -> {
+            List<Seat> seats = delegate.searchTripSeatsById(tripId);
+            store.saveSeats(tripId, seats);
+            return seats;
+        }, () -> storedWithSeats(stored(store.loadTrip(tripId))).getSeats());
+    }
+
+    /**
+     * Changes are only known to the server, so this never falls back to the snapshot; what
+     * the server sends is applied to it.
+     */
+    @Override
+    public TripChanges getTripChanges(long epoch, long sinceSequence) throws ServicesException {
+        return online("Cannot sync trips", () -> {
+            TripChanges changes = delegate.getTripChanges(epoch, sinceSequence);
+            for (SeatsReservedEvent event : changes.getSeatChanges()) {
+                store.applyEvent(event);
+            }
+            store.saveTrips(changes.getTrips());        // după evenimente: starea curentă câştigă
+            store.removeTrips(changes.getRemovedTripIds());
+            return changes;
+        });
+    }
+
+    @Override
+    public long reserveSeats(String clientName, List<Integer> seatNumbers, Trip trip, Employee employee)
+            throws ServicesException {
+        return online("Cannot reserve seats", () -> delegate.reserveSeats(clientName, seatNumbers, trip, employee));
+    }
+
+    @Override
+    public List<ReservationResult> reserveSeatsBatch(List<ReservationRequest> reservations, Employee employee)
+            throws ServicesException {
+        return online("Cannot reserve seats", () -> delegate.reserveSeatsBatch(reservations, employee));
+    }
+
+    @Override
+    public SeatHold holdSeats(Trip trip, List<Integer> seatNumbers, Employee employee) throws ServicesException {
+        return online("Cannot hold seats", () -> delegate.holdSeats(trip, seatNumbers, employee));
+    }
+
+    @Override
+    public SeatHold renewHold(SeatHold hold, List<Integer> seatNumbers, Employee employee) throws ServicesException {
+        return online("Cannot hold seats", () -> delegate.renewHold(hold, seatNumbers, employee));
+    }
+
+    @Override
+    public void releaseHold(SeatHold hold, Employee employee) throws ServicesException {
+        delegate.releaseHold(hold, employee);
+    }
+
+    /* ======================== NOTIFICĂRI ======================== */
+
+    @Override
+    public void subscribeToUpdates(int employeeId, IObserver observer) {
+        delegate.subscribeToUpdates(employeeId, new SnapshotUpdatingObserver(observer));
+    }
+
+    /* ======================== SNAPSHOT ======================== */
+
+    private interface Online<T> {
+        T call() throws ServicesException;
+    }
+
+    private interface Offline<T> {
+        T load() throws SQLException, ServicesException;
+    }
+
+    private Trip save(Trip trip) {
+        if (trip != null)
+            store.saveTrips(List.of(trip));
+        return trip;
+    }
+
+    private TripWithSeats save(TripWithSeats found) {
+        store.saveTrips(List.of(found.getTrip()));
+        store.saveSeats(found.getTrip().getId(), found.getSeats());
+        return found;
+    }
+
+    private Trip stored(Optional<Trip> trip) throws ServicesException {
+        return trip.orElseThrow(() -> unavailable("Trip not in the local snapshot", null));
+    }
+
+    private TripWithSeats storedWithSeats(Trip trip) throws SQLException, ServicesException {
+        List<Seat> seats = store.loadSeats(trip.getId())
+                                .orElseThrow(() -> unavailable("Seats of this trip are not in the local snapshot", null));
+        return new TripWithSeats(trip, seats);
+    }
+
+    /**
+     * Calls the server and, if it cannot be reached, answers from the snapshot instead.
+     */
+    private <T> T read(Online<T> online, Offline<T> offline) throws ServicesException {
+        try {
+            return online.call();
+        } catch (ServicesException | StatusRuntimeException e) {
+            if (!isUnreachable(e))
+                throw e;
+            logger.warn("Server unreachable, reading the local snapshot: {}", e.getMessage());
+            try {
+                return offline.load();
+            } catch (SQLException sqlError) {
+                throw unavailable("Could not read the local snapshot: " + sqlError.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Calls the server; if it cannot be reached the call fails with a
+     * {@link ServerUnavailableException}.
+     */
+    private <T> T online(String what, Online<T> online) throws ServicesException {
+        try {
+            return online.call();
+        } catch (ServicesException | StatusRuntimeException e) {
+            if (!isUnreachable(e))
+                throw e;
+            throw unavailable(what + ": the server is unreachable", e);
+        }
+    }
+
+    private ServerUnavailableException unavailable(String message, Throwable cause) {
+        Instant savedAt = null;
+        try {
+            savedAt = store.savedAt().orElse(null);
+        } catch (SQLException e) {
+            logger.debug("Could not read the snapshot time: {}", e.getMessage());
+        }
+        return new ServerUnavailableException(message, savedAt, cause);
+    }
+
+    /**
+     * Whether the failure means the server could not be reached in time, as opposed to the
+     * server answering with an error.
+     */
+    static boolean isUnreachable(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof StatusRuntimeException status) {
+                Status.Code code = status.getStatus().getCode();
+                return code == Status.Code.UNAVAILABLE || code == Status.Code.DEADLINE_EXCEEDED;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Applies reservation deltas to the snapshot before forwarding them. Plain notifications
+     * are only forwarded: the refresh they trigger saves the new state anyway.
+     */
+    private class SnapshotUpdatingObserver implements IObserver {
+        private final IObserver observer;
+
+        private SnapshotUpdatingObserver(IObserver observer) {
+            this.observer = observer;
+        }
+
+        @Override
+        public void seatsReserved() throws ServicesException {
+            observer.seatsReserved();
+        }
+
+        @Override
+        public void seatsReserved(SeatsReservedEvent event) throws ServicesException {
+            store.applyEvent(event);
+            observer.seatsReserved(event);
+        }
+
+        @Override
+        public void seatsReserved(List<SeatsReservedEvent> events) throws ServicesException {
+            for (SeatsReservedEvent event : events) {
+                store.applyEvent(event);
+            }
+            observer.seatsReserved(events);
+        }
+
+        @Override
+        public void seatsHeld(List<SeatsHeldEvent> events) throws ServicesException {
+            observer.seatsHeld(events);
+        }
+
+        @Override
+        public void streamHealthChanged(StreamHealth health) {
+            observer.streamHealthChanged(health);
+        }
+    }
+}
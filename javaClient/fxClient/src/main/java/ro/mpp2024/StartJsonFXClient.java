@@ -13,21 +13,40 @@ import ro.mpp2024.controller.MainAppController;
 import ro.mpp2024.proto.LoginReply;
 import ro.mpp2024.proto.TransportCompanyGrpc;
 import ro.mpp2024.proto.LoginRequest;
+import ro.mpp2024.utils.ChannelSettings;
+import ro.mpp2024.utils.ClientMetrics;
+import ro.mpp2024.utils.ExecutorStrategy;
+import ro.mpp2024.utils.SeatPrefetcher;
+import ro.mpp2024.utils.TripSnapshotStore;
 
 import io.grpc.ManagedChannel;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
-
-import io.grpc.ManagedChannelBuilder;
+import java.util.concurrent.ExecutorService;
 
 
 public class StartJsonFXClient extends Application {
     private Stage primaryStage;
+    private TripSnapshotStore snapshot;
 
     private static int defaultServerPort = 5000;
     private static String defaultServer = "localhost";
+    private static long defaultRefreshWindowMillis = 150;
+    private static int defaultTripsPageSize = 100;
+    private static long defaultReconnectInitialMillis = 500;
+    private static long defaultReconnectMaxMillis = 30_000;
+    private static long defaultMetricsLogIntervalSeconds = 60;
+    private static int defaultServicesPoolSize = 16;
+    private static int defaultPrefetchConcurrency = 2;
+    private static int defaultPrefetchCacheSize = 16;
+    private static int defaultPrefetchNeighbours = 2;
+    private static Path defaultSnapshotPath = Path.of(System.getProperty("user.home"), ".transport-company", "snapshot.db");
 
     private static final Logger logger = LogManager.getLogger(StartJsonFXClient.class);
 
@@ -53,17 +72,47 @@ public class StartJsonFXClient extends Application {
             logger.error("Wrong port number {}", ex.getMessage());
             logger.debug("Using default port: {}", defaultServerPort);
         }
-        logger.info("Using server IP {}", serverIP);
-        logger.info("Using server port {}", serverPort);
+        List<String> endpoints = endpoints(clientProps);
+        if (endpoints.isEmpty()) {
+            logger.info("Using server IP {}", serverIP);
+            logger.info("Using server port {}", serverPort);
+            endpoints = List.of(serverIP + ":" + serverPort);
+        } else {
+            logger.info("Using server endpoints {}", endpoints);
+        }
 
-        ManagedChannel channel = ManagedChannelBuilder
-                .forAddress(serverIP, serverPort)
-                .usePlaintext() // pentru localhost, fără TLS
-                .build();
+        ClientMetrics metrics = new ClientMetrics(
+                Duration.ofSeconds(number(clientProps, "metrics.log.interval.s", defaultMetricsLogIntervalSeconds)),
+                Boolean.parseBoolean(clientProps.getProperty("metrics.jmx", "true")));
+        ManagedChannel channel = new ChannelSettings(clientProps).newChannel(endpoints, metrics);
         TransportCompanyGrpc.TransportCompanyBlockingStub grpcStub =
                 TransportCompanyGrpc.newBlockingStub(channel);
 
-        IServices server = new GrpcServicesProxy(grpcStub);
+        // apelurile blocante şi notificările rulează pe acelaşi executor, nu pe firele gRPC
+        ExecutorStrategy servicesStrategy = ExecutorStrategy.parse(clientProps.getProperty("services.executor"),
+                                                                   ExecutorStrategy.VIRTUAL);
+        if (servicesStrategy == ExecutorStrategy.DIRECT) {
+            // apelurile ar rula pe firul FX şi ar îngheţa fereastra
+            logger.error("services.executor=direct would run the server calls on the FX thread");
+            logger.debug("Using default executor: {}", ExecutorStrategy.VIRTUAL);
+            servicesStrategy = ExecutorStrategy.VIRTUAL;
+        }
+        ExecutorService servicesExecutor = servicesStrategy.newExecutor("services",
+                number(clientProps, "services.executor.pool.size", defaultServicesPoolSize, 1, ExecutorStrategy.MAX_POOL_SIZE));
+        GrpcServicesProxy grpcServer = new GrpcServicesProxy(grpcStub);
+        grpcServer.setNotificationExecutor(servicesExecutor);
+        grpcServer.setReconnectBackoff(
+                Duration.ofMillis(number(clientProps, "notify.reconnect.initial.ms", defaultReconnectInitialMillis)),
+                Duration.ofMillis(number(clientProps, "notify.reconnect.max.ms", defaultReconnectMaxMillis)));
+        IServices remoteServer = grpcServer;
+        String snapshotPath = clientProps.getProperty("snapshot.path", defaultSnapshotPath.toString()).trim();
+        if (!snapshotPath.isEmpty()) {
+            snapshot = TripSnapshotStore.open(Path.of(snapshotPath)).orElse(null);
+            if (snapshot != null)
+                remoteServer = new SnapshotServicesProxy(grpcServer, snapshot);
+        }
+        IServices blockingServer = new CachingServicesProxy(remoteServer);
+        IAsyncServices server = new AsyncServicesAdapter(blockingServer, servicesExecutor);
 
         logger.info("Login view start loading");
 
@@ -80,6 +129,18 @@ public class StartJsonFXClient extends Application {
         Parent mainAppRoot = mainAppLoader.load();
         MainAppController MainAppController = mainAppLoader.getController();
         MainAppController.setServer(server);
+        MainAppController.setRefreshWindow(Duration.ofMillis(refreshWindowMillis(clientProps)));
+        MainAppController.setTripsPageSize(tripsPageSize(clientProps));
+        MainAppController.setMetrics(metrics);
+        int prefetchConcurrency = number(clientProps, "seats.prefetch.concurrency", defaultPrefetchConcurrency, 0, 64);
+        if (prefetchConcurrency > 0) {
+            SeatPrefetcher seatPrefetcher = new SeatPrefetcher(server, prefetchConcurrency,
+                    number(clientProps, "seats.prefetch.cache.size", defaultPrefetchCacheSize, 1, 1024));
+            metrics.publish("SeatPrefetch", seatPrefetcher);
+            MainAppController.setSeatPrefetcher(seatPrefetcher,
+                    number(clientProps, "seats.prefetch.neighbours", defaultPrefetchNeighbours, 0, 16));
+        }
+        MainAppController.setSnapshot(snapshot);
 
         loginController.setMainAppController(MainAppController);
         loginController.setParent(mainAppRoot);
@@ -89,6 +150,73 @@ public class StartJsonFXClient extends Application {
         primaryStage.show();
     }
 
+    @Override
+    public void stop() {
+        if (snapshot != null)
+            snapshot.close();                   // scrie ce a mai rămas în coadă
+    }
+
+    private static long refreshWindowMillis(Properties clientProps) {
+        try {
+            return Long.parseLong(clientProps.getProperty("refresh.coalesce.ms",
+                                                          String.valueOf(defaultRefreshWindowMillis)));
+        } catch (NumberFormatException ex) {
+            logger.error("Wrong refresh window {}", ex.getMessage());
+            logger.debug("Using default refresh window: {} ms", defaultRefreshWindowMillis);
+            return defaultRefreshWindowMillis;
+        }
+    }
+
+    private static int tripsPageSize(Properties clientProps) {
+        try {
+            return Integer.parseInt(clientProps.getProperty("trips.page.size",
+                                                            String.valueOf(defaultTripsPageSize)));
+        } catch (NumberFormatException ex) {
+            logger.error("Wrong trips page size {}", ex.getMessage());
+            logger.debug("Using default trips page size: {}", defaultTripsPageSize);
+            return defaultTripsPageSize;
+        }
+    }
+
+    private static List<String> endpoints(Properties clientProps) {
+        List<String> endpoints = new ArrayList<>();
+        for (String endpoint : clientProps.getProperty("server.endpoints", "").split(",")) {
+            if (!endpoint.isBlank())
+                endpoints.add(endpoint.trim());
+        }
+        return endpoints;
+    }
+
+    /**
+     * An int property between min and max; a value that is not a number or is out of range is
+     * logged and the default used instead.
+     */
+    private static int number(Properties clientProps, String key, int defaultValue, int min, int max) {
+        String value = clientProps.getProperty(key);
+        if (value == null)
+            return defaultValue;
+        try {
+            int number = Integer.parseInt(value.trim());
+            if (number >= min && number <= max)
+                return number;
+            logger.error("Wrong {} {}, expected {} to {}", key, number, min, max);
+        } catch (NumberFormatException ex) {
+            logger.error("Wrong {} {}", key, ex.getMessage());
+        }
+        logger.debug("Using default {}: {}", key, defaultValue);
+        return defaultValue;
+    }
+
+    private static long number(Properties clientProps, String key, long defaultValue) {
+        try {
+            return Long.parseLong(clientProps.getProperty(key, String.valueOf(defaultValue)));
+        } catch (NumberFormatException ex) {
+            logger.error("Wrong {} {}", key, ex.getMessage());
+            logger.debug("Using default {}: {}", key, defaultValue);
+            return defaultValue;
+        }
+    }
+
     public static void main(String[] args) throws ServicesException {
         launch(args);
     }
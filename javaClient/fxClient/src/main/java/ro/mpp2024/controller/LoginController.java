@@ -1,5 +1,6 @@
 package ro.mpp2024.controller;
 
+import javafx.application.Platform;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.scene.Node;
@@ -11,12 +12,14 @@ import javafx.stage.Stage;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import ro.mpp2024.Employee;
-import ro.mpp2024.IServices;
+import ro.mpp2024.IAsyncServices;
+import ro.mpp2024.ServerUnavailableException;
 import ro.mpp2024.ServicesException;
 import ro.mpp2024.utils.AlertFactory;
+import ro.mpp2024.utils.FutureUtils;
 
 public class LoginController {
-    private IServices server;
+    private IAsyncServices server;
     private MainAppController mainAppController;
     private Employee currentEmployee;
 
@@ -33,12 +36,12 @@ public class LoginController {
 
     private Parent root;
 
-    public LoginController(IServices server) {
+    public LoginController(IAsyncServices server) {
         logger.trace("Entering LoginController constructor");
         this.server = server;
     }
 
-    public void setServer(IServices server) {
+    public void setServer(IAsyncServices server) {
         logger.trace("Entering setServer");
         this.server = server;
     }
@@ -57,26 +60,47 @@ public class LoginController {
         logger.trace("Entering handleLogin");
         String username = usernameField.getText();
         String password = passwordField.getText();
+        Node source = (Node) event.getSource();
+
+        server.login(username, password, mainAppController)
+                .whenCompleteAsync((employee, error) -> {
+                    if (error != null) {
+                        onLoginFailed(FutureUtils.unwrap(error), source);
+                        return;
+                    }
+                    currentEmployee = employee;
+                    logger.info("User {} logged in successfully", username);
+                    mainAppController.setCurrentEmployee(currentEmployee);
+                    logger.info("Current employee set to {}", currentEmployee.getUsername());
+
+                    mainAppController.loadTrips();
+                    showMainApp(source, "Main App - " + currentEmployee.getUsername());
+                }, Platform::runLater);
+    }
 
-        try {
-            currentEmployee = server.login(username, password, mainAppController);
-            logger.info("User {} logged in successfully", username);
-            mainAppController.setCurrentEmployee(currentEmployee);
-            logger.info("Current employee set to {}", currentEmployee.getUsername());
-
-            mainAppController.loadTrips();
+    private void showMainApp(Node source, String title) {
+        Stage mainAppStage = new Stage();
+        mainAppStage.setTitle(title);
+        mainAppStage.setScene(new Scene(root, 700, 800));
+        logger.info("Main app scene set");
+        mainAppStage.show();
 
-            Stage mainAppStage = new Stage();
-            mainAppStage.setTitle("Main App - " + currentEmployee.getUsername());
-            mainAppStage.setScene(new Scene(root, 700, 800));
-            logger.info("Main app scene set");
-            mainAppStage.show();
+        source.getScene().getWindow().hide();
+    }
 
-            ((Node) (event.getSource())).getScene().getWindow().hide();
-        } catch (ServicesException e) {
+    private void onLoginFailed(Throwable e, Node source) {
+        if (e instanceof ServerUnavailableException unavailable && unavailable.getSnapshotSavedAt() != null) {
+            logger.warn("Server unreachable, browsing the trips saved at {}", unavailable.getSnapshotSavedAt());
+            AlertFactory.getInstance().createAlert("Server unreachable",
+                    "Showing the trips saved on this terminal. Reservations are disabled until the server is back.")
+                    .showAndWait();
+            mainAppController.setOffline(unavailable.getSnapshotSavedAt());
+            mainAppController.loadTrips();
+            showMainApp(source, "Main App - offline");
+        } else if (e instanceof ServicesException) {
             logger.error("Login failed: {}", e.getMessage());
             AlertFactory.getInstance().createAlert("Login failed", e.getMessage()).showAndWait();
-        } catch (Exception e) {
+        } else {
             logger.error("Error during login: {}", e.getMessage());
             errorLabel.setText("An error occurred: " + e.getMessage());
         }
@@ -1,10 +1,13 @@
 package ro.mpp2024.controller;
 
+import javafx.animation.PauseTransition;
 import javafx.application.Platform;
-import javafx.collections.FXCollections;
+import javafx.beans.property.ReadOnlyStringWrapper;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
+import javafx.geometry.Orientation;
+import javafx.geometry.Side;
 import javafx.scene.Node;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
@@ -12,17 +15,74 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import ro.mpp2024.*;
 import ro.mpp2024.utils.AlertFactory;
+import ro.mpp2024.utils.ClientMetrics;
+import ro.mpp2024.utils.FutureUtils;
+import ro.mpp2024.utils.KeyedObservableList;
+import ro.mpp2024.utils.RefreshScheduler;
+import ro.mpp2024.utils.SeatHoldKeeper;
+import ro.mpp2024.utils.SeatPrefetcher;
+import ro.mpp2024.utils.TripFilter;
+import ro.mpp2024.utils.TripSearchIndex;
+import ro.mpp2024.utils.TripSnapshotStore;
 
 import java.net.URL;
+import java.sql.SQLException;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.FormatStyle;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public class MainAppController implements Initializable, IObserver {
-    private IServices server;
+    private IAsyncServices server;
     private Employee currentEmployee;
     private Trip tripToReserve;
+    private RefreshScheduler refreshScheduler;
+    private SeatHoldKeeper seatHoldKeeper;
+    private ClientMetrics metrics;
+    private TripSnapshotStore snapshot;
+    private boolean offline;
+    private final PauseTransition holdDelay = new PauseTransition(javafx.util.Duration.millis(HOLD_DELAY_MILLIS));
+    private SeatPrefetcher seatPrefetcher;
+    private int prefetchNeighbours;
+    private Trip hoveredTrip;
+    private final PauseTransition hoverDelay = new PauseTransition(javafx.util.Duration.millis(HOVER_DELAY_MILLIS));
+
+    private int tripsPageSize = DEFAULT_TRIPS_PAGE_SIZE;
+    private String nextTripsPageToken;
+    private boolean loadingTripsPage;
+    private int tripsGeneration;            // creşte la fiecare reîncărcare; paginile vechi sunt ignorate
+    private int serverTripsGeneration;      // ultima reîncărcare la care a răspuns serverul
+    private TripChanges lastChanges;        // poziţia de la care cerem modificările; null = reîncărcăm tot
+    private boolean resumeTried;            // prima încărcare porneşte de la poziţia salvată local
+    private TripSearchIndex searchIndex;    // tot catalogul, pentru filtrare; null până soseşte
+    private List<TripChanges> indexBacklog; // modificările sosite cât timp indexul se construieşte
+    private int indexGeneration;
+    private TripFilter tripFilter = NO_FILTER;
+    private boolean fillingSearchFields;    // câmpurile sunt completate din rândul selectat, nu tastate
+    private ContextMenu destinationSuggestions;
+
+    // rândurile tabelelor: reîmprospătările le îmbină după cheie în loc să le înlocuiască
+    private final KeyedObservableList<Integer, Trip> trips = KeyedObservableList.ofTrips();
+    private final KeyedObservableList<Integer, Seat> seats = KeyedObservableList.ofSeats();
+
+    private static final Duration DEFAULT_REFRESH_WINDOW = Duration.ofMillis(150);
+    private static final int DEFAULT_TRIPS_PAGE_SIZE = 100;
+    private static final double NEXT_PAGE_SCROLL_THRESHOLD = 0.9;
+    private static final int HOLD_DELAY_MILLIS = 400;    // aşteptăm să termine de tastat locurile
+    private static final int HOVER_DELAY_MILLIS = 150;   // mouse-ul doar trece peste rânduri
+    private static final TripFilter NO_FILTER = new TripFilter(null, null, null, null, null, 0);
+    private static final int FILTER_LIMIT = 1000;
+    private static final int SUGGESTION_COUNT = 10;
 
     private static final Logger logger = LogManager.getLogger(ro.mpp2024.controller.MainAppController.class);
 
@@ -50,6 +110,9 @@ public class MainAppController implements Initializable, IObserver {
     @FXML
     private TextField searchTimeField;
 
+    @FXML
+    private TextField minSeatsField;
+
     @FXML
     private TableView<Seat> seatsTable;
 
@@ -71,45 +134,553 @@ public class MainAppController implements Initializable, IObserver {
     @FXML
     private Button reserveButton;
 
+    @FXML
+    private Label connectionLabel;
+
     @Override
     public void initialize(URL location, ResourceBundle resources) {
         initTripsTable();
         initSeatsTable();
+        setRefreshWindow(DEFAULT_REFRESH_WINDOW);
 
         tripsTable.getSelectionModel().selectedItemProperty().addListener((obs, oldTrip, selectedTrip) -> {
             if (selectedTrip != null) {
-                searchDestinationField.setText(selectedTrip.getDestination().getName());
-                searchDateField.setValue(selectedTrip.getDepartureDate());
-                searchTimeField.setText(selectedTrip.getDepartureTime().toString());
+                fillingSearchFields = true;
+                try {
+                    searchDestinationField.setText(selectedTrip.getDestination().getName());
+                    searchDateField.setValue(selectedTrip.getDepartureDate());
+                    searchTimeField.setText(selectedTrip.getDepartureTime().toString());
+                } finally {
+                    fillingSearchFields = false;
+                }
+                prefetchAround(tripsTable.getSelectionModel().getSelectedIndex());
             }
         });
+        hoverDelay.setOnFinished(e -> prefetchHovered());
+        initTripFilter();
+
+        holdDelay.setOnFinished(e -> holdTypedSeats());
+        seatNumbersField.textProperty().addListener((obs, oldText, text) -> holdDelay.playFromStart());
     }
 
     public void seatsReserved() {
-        Platform.runLater(()-> {
-            loadTrips();
-            loadSeats();
+        refreshScheduler.requestRefresh();
+    }
+
+    @Override
+    public void seatsReserved(SeatsReservedEvent event) {
+        long received = System.nanoTime();
+        Platform.runLater(() -> {
+            applySeatsReserved(List.of(event));
+            recordNotificationToUi(received);
+        });
+    }
+
+    @Override
+    public void seatsReserved(List<SeatsReservedEvent> events) {
+        long received = System.nanoTime();
+        Platform.runLater(() -> {
+            applySeatsReserved(events);
+            recordNotificationToUi(received);
         });
     }
 
-    public void setServer(IServices server) {
+    @Override
+    public void seatsHeld(List<SeatsHeldEvent> events) {
+        long received = System.nanoTime();
+        Platform.runLater(() -> {
+            applySeatsHeld(events);
+            recordNotificationToUi(received);
+        });
+    }
+
+    private void recordNotificationToUi(long received) {
+        if (metrics != null)
+            metrics.recordNotificationToUi(received);
+    }
+
+    @Override
+    public void streamHealthChanged(StreamHealth health) {
+        Platform.runLater(() -> showStreamHealth(health));
+    }
+
+    private void showStreamHealth(StreamHealth health) {
+        String text = health.isConnected()
+                ? "Live updates (lag " + health.getLag().toMillis() + " ms)"
+                : "Reconnecting to live updates...";
+        if (health.getReconnects() > 0)
+            text += " - reconnected " + health.getReconnects() + " time(s)";
+        connectionLabel.setText(text);
+    }
+
+    private void applySeatsHeld(List<SeatsHeldEvent> events) {
+        if (seatPrefetcher != null) {
+            for (SeatsHeldEvent event : events) {       // şi când nu e nicio cursă deschisă
+                seatPrefetcher.invalidate(event.getTripId());
+            }
+        }
+        if (tripToReserve == null || tripToReserve.getId() == null)
+            return;
+        for (SeatsHeldEvent event : events) {
+            if (event.getTripId() != tripToReserve.getId())
+                continue;
+            for (int i = 0; i < seats.size(); i++) {
+                Seat seat = seats.get(i);
+                if ("-".equals(seat.getClientName()) && event.getSeatNumbers().contains(seat.getSeatNumber())) {
+                    seats.set(i, new Seat(seat.getSeatNumber(), null, event.isHeld()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Updates the rows touched by reservations made at another office, without refetching;
+     * only those rows are redrawn.
+     */
+    private void applySeatsReserved(List<SeatsReservedEvent> events) {
+        for (SeatsReservedEvent event : events) {
+            applySeatsReserved(event);
+        }
+        if (isFiltering())
+            applyFilter();                      // locurile libere pot scoate cursa din filtru
+    }
+
+    private void applySeatsReserved(SeatsReservedEvent event) {
+        logger.debug("Applying {}", event);
+        if (seatPrefetcher != null)
+            seatPrefetcher.invalidate(event.getTripId());
+        if (searchIndex != null)
+            searchIndex.updateSeats(event.getTripId(), event.getAvailableSeats(), event.getVersion());
+        Trip shown = trips.findByKey(event.getTripId());
+        if (shown != null && !event.isStaleFor(shown.getVersion())) {
+            trips.updateByKey(event.getTripId(), trip -> {
+                trip.setAvailableSeats(event.getAvailableSeats());
+                if (event.getVersion() > 0)
+                    trip.setVersion(event.getVersion());
+            });
+        }
+
+        if (tripToReserve == null || tripToReserve.getId() == null || tripToReserve.getId() != event.getTripId())
+            return;
+        if (!event.isStaleFor(tripToReserve.getVersion())) {
+            tripToReserve.setAvailableSeats(event.getAvailableSeats());
+            if (event.getVersion() > 0)
+                tripToReserve.setVersion(event.getVersion());
+        }
+        // locurile rezervate rămân rezervate, deci ele se aplică în orice ordine
+        for (int i = 0; i < seats.size(); i++) {
+            int seatNumber = seats.get(i).getSeatNumber();
+            if (event.getSeatNumbers().contains(seatNumber)) {
+                seats.set(i, new Seat(seatNumber, event.getClientName()));
+            }
+        }
+    }
+
+    public void setServer(IAsyncServices server) {
         this.server = server;
     }
 
+    /**
+     * Sets how long refresh requests are collected before a single refresh runs.
+     */
+    public void setRefreshWindow(Duration window) {
+        if (refreshScheduler != null) {
+            refreshScheduler.close();
+        }
+        refreshScheduler = new RefreshScheduler(window, Platform::runLater, this::refresh);
+    }
+
+    public void setTripsPageSize(int tripsPageSize) {
+        this.tripsPageSize = tripsPageSize;
+    }
+
+    /**
+     * Loads seat maps ahead of Search: those of the selected trip and of the
+     * {@code neighbours} rows below and above it, and that of a row the mouse rests on.
+     */
+    public void setSeatPrefetcher(SeatPrefetcher seatPrefetcher, int neighbours) {
+        this.seatPrefetcher = seatPrefetcher;
+        this.prefetchNeighbours = Math.max(0, neighbours);
+    }
+
+    public void setMetrics(ClientMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * The local snapshot, used to show the saved trips while the first page is loading.
+     */
+    public void setSnapshot(TripSnapshotStore snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * Switches to read-only browsing of the snapshot saved at the given time, for when the
+     * server could not be reached at login: nothing can be held or reserved and logout only
+     * closes the window.
+     */
+    public void setOffline(Instant savedAt) {
+        offline = true;
+        clientNameField.setDisable(true);
+        seatNumbersField.setDisable(true);
+        reserveButton.setDisable(true);
+        connectionLabel.setText("Offline - trips saved at " + DateTimeFormatter.ofLocalizedDateTime(FormatStyle.SHORT)
+                .withZone(ZoneId.systemDefault()).format(savedAt));
+    }
+
     public void setCurrentEmployee(Employee employee) {
         this.currentEmployee = employee;
+        if (seatHoldKeeper != null) {
+            seatHoldKeeper.close();
+        }
+        seatHoldKeeper = new SeatHoldKeeper(server, employee);
+    }
+
+    /**
+     * Fetches the first page of trips in the background and shows it once it arrives; the
+     * following pages are loaded as the user scrolls. Must be called on the FX thread.
+     * The returned future completes after the table was updated. On the first load the trips
+     * saved on this terminal are shown until the server's page arrives.
+     * <p>
+     * The change-log position is read before the page, so later refreshes only ask for what
+     * changed after it (see {@link #syncTrips()}). The first time, the whole catalog is then
+     * indexed for the search fields (see {@link #rebuildSearchIndex(TripChanges)}) and, once it
+     * is saved, the position is saved with it. Later loads, e.g. when the filter is cleared,
+     * keep the position and the index, which the syncs keep current.
+     * <p>
+     * If the snapshot already has a position, the first load starts from the saved catalog
+     * instead and only asks for what changed since (see {@link #resumeFromSnapshot()}).
+     */
+    public CompletableFuture<Void> loadTrips() {
+        return loadTrips(false);
+    }
+
+    /**
+     * @param resync whether the change log could not say what changed, so the position and the
+     *               search index have to be taken anew
+     */
+    private CompletableFuture<Void> loadTrips(boolean resync) {
+        if (!resync && snapshot != null && !resumeTried && trips.isEmpty()) {
+            resumeTried = true;
+            return resumeFromSnapshot();
+        }
+        int generation = ++tripsGeneration;
+        loadingTripsPage = true;
+        if (snapshot != null && trips.isEmpty())
+            showSavedTrips(generation);
+        boolean keepPosition = !resync && lastChanges != null && (searchIndex != null || indexBacklog != null);
+        CompletableFuture<TripChanges> positionLookup = keepPosition
+                ? CompletableFuture.completedFuture(lastChanges)
+                : server.getTripChanges(0, 0).exceptionally(e -> null);   // fără poziţie, reîmprospătările reîncarcă tot
+        return positionLookup
+                .thenCompose(position -> server.getTrips(TripQuery.all(tripsPageSize))
+                        .thenAcceptAsync(page -> {
+                            if (generation != tripsGeneration)
+                                return;
+                            serverTripsGeneration = generation;
+                            if (!isFiltering())
+                                trips.merge(page.getTrips());
+                            nextTripsPageToken = page.getNextPageToken();
+                            loadingTripsPage = false;
+                            if (keepPosition)
+                                return;                 // sincronizările aduc restul de la poziţia avută
+                            lastChanges = position;
+                            rebuildSearchIndex(position);
+                        }, Platform::runLater))
+                .exceptionally(e -> {
+                    logger.error("Error loading trips: {}", FutureUtils.unwrap(e).getMessage());
+                    Platform.runLater(() -> loadingTripsPage = false);
+                    return null;
+                });
+    }
+
+    /**
+     * Applies what changed since the last load or sync to the trips on screen and the open
+     * seat map, so a refresh costs as much as the changes rather than the whole catalog.
+     * Falls back to {@link #loadTrips()} when there is no position yet or the server no
+     * longer has the changes.
+     */
+    private CompletableFuture<Void> syncTrips() {
+        TripChanges since = lastChanges;
+        if (since == null)
+            return loadTrips();
+        int generation = tripsGeneration;
+        return server.getTripChanges(since.getEpoch(), since.getSequence())
+                .thenComposeAsync(changes -> {
+                    if (generation != tripsGeneration)
+                        return CompletableFuture.<Void>completedFuture(null);
+                    if (changes.isSnapshotRequired())
+                        return loadTrips(true);
+                    lastChanges = changes;
+                    applyTripChanges(changes);
+                    if (snapshot != null)
+                        snapshot.savePosition(changes);     // după ce proxy-ul a salvat modificările
+                    return CompletableFuture.<Void>completedFuture(null);
+                }, Platform::runLater)
+                .exceptionally(e -> {
+                    logger.error("Error syncing trips: {}", FutureUtils.unwrap(e).getMessage());
+                    return null;
+                });
+    }
+
+    private void applyTripChanges(TripChanges changes) {
+        logger.debug("Applying {}", changes);
+        for (SeatsReservedEvent event : changes.getSeatChanges()) {
+            applySeatsReserved(event);
+        }
+        for (Trip changed : changes.getTrips()) {
+            if (seatPrefetcher != null)
+                seatPrefetcher.invalidate(changed.getId());
+            trips.updateByKey(changed.getId(), trip -> {
+                trip.setAvailableSeats(changed.getAvailableSeats());
+                trip.setVersion(changed.getVersion());
+            });
+        }
+        trips.removeIf(trip -> changes.getRemovedTripIds().contains(trip.getId()));
+        if (searchIndex != null)
+            searchIndex.apply(changes.getTrips(), changes.getRemovedTripIds());
+        if (indexBacklog != null)
+            indexBacklog.add(changes);          // indexul care se construieşte le primeşte la sosire
+        if (isFiltering())
+            applyFilter();
     }
 
-    public void loadTrips() {
+    /**
+     * The first load when the snapshot has a change-log position: shows the saved trips,
+     * indexes the saved catalog and then only syncs what changed since the position. Falls back
+     * to a full {@link #loadTrips()} when no position is saved, the snapshot cannot be read or
+     * the server no longer has the changes.
+     */
+    private CompletableFuture<Void> resumeFromSnapshot() {
+        int generation = ++tripsGeneration;
+        loadingTripsPage = true;
+        TripQuery query = TripQuery.all(tripsPageSize);
+        return CompletableFuture.supplyAsync(() -> {
+                    try {
+                        Optional<TripChanges> position = snapshot.loadPosition();
+                        if (position.isEmpty())
+                            return null;
+                        return new SavedCatalog(position.get(), snapshot.loadTrips(query),
+                                                TripSearchIndex.build(snapshot.loadAllTrips()));
+                    } catch (SQLException e) {
+                        throw new CompletionException(e);
+                    }
+                })
+                .exceptionally(e -> {
+                    logger.warn("Error reading saved trips: {}", FutureUtils.unwrap(e).getMessage());
+                    return null;
+                })
+                .thenComposeAsync(saved -> {
+                    if (generation != tripsGeneration)
+                        return CompletableFuture.<Void>completedFuture(null);
+                    loadingTripsPage = false;
+                    if (saved == null)
+                        return loadTrips(true);
+                    logger.debug("Resuming from the saved position {}/{}", saved.position().getEpoch(),
+                                 saved.position().getSequence());
+                    lastChanges = saved.position();
+                    searchIndex = saved.index();
+                    if (isFiltering())
+                        applyFilter();
+                    else
+                        trips.merge(saved.page().getTrips());
+                    nextTripsPageToken = saved.page().getNextPageToken();
+                    return syncTrips();
+                }, Platform::runLater);
+    }
+
+    private record SavedCatalog(TripChanges position, TripPage page, TripSearchIndex index) {
+    }
+
+    private void showSavedTrips(int generation) {
+        TripQuery query = TripQuery.all(tripsPageSize);
+        CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return snapshot.loadTrips(query);
+                    } catch (SQLException e) {
+                        throw new CompletionException(e);
+                    }
+                })
+                .thenAcceptAsync(page -> {
+                    if (generation != tripsGeneration || serverTripsGeneration == generation)
+                        return;                         // serverul a fost mai rapid
+                    if (!isFiltering())
+                        trips.merge(page.getTrips());
+                }, Platform::runLater)
+                .exceptionally(e -> {
+                    logger.warn("Error reading saved trips: {}", FutureUtils.unwrap(e).getMessage());
+                    return null;
+                });
+    }
+
+    private void loadNextTripsPage() {
+        if (loadingTripsPage || nextTripsPageToken == null || isFiltering())
+            return;
+        int generation = tripsGeneration;
+        loadingTripsPage = true;
+        server.getTrips(TripQuery.all(tripsPageSize).withPageToken(nextTripsPageToken))
+                .whenCompleteAsync((page, e) -> {
+                    if (generation != tripsGeneration)
+                        return;
+                    loadingTripsPage = false;
+                    if (e != null) {
+                        logger.error("Error loading trips page: {}", FutureUtils.unwrap(e).getMessage());
+                        return;
+                    }
+                    if (!isFiltering())
+                        trips.append(page.getTrips());
+                    nextTripsPageToken = page.getNextPageToken();
+                }, Platform::runLater);
+    }
+
+    /**
+     * Reads the whole catalog in the background and indexes it for the search fields; only on
+     * the first load and when the change log asks for a full load, as the syncs keep the index
+     * current (see {@link TripSearchIndex#apply}). Changes synced while the catalog is read
+     * are applied to the new index before it replaces the old one on the FX thread, and what
+     * was typed meanwhile is applied. The change-log position of the load is saved in the
+     * snapshot once the catalog read here was saved there.
+     */
+    private void rebuildSearchIndex(TripChanges position) {
+        int generation = ++indexGeneration;
+        indexBacklog = new ArrayList<>();
+        server.getAllTrips()
+                .thenApply(TripSearchIndex::build)
+                .thenAcceptAsync(index -> {
+                    if (generation != indexGeneration)
+                        return;
+                    for (TripChanges changes : indexBacklog) {
+                        index.apply(changes.getTrips(), changes.getRemovedTripIds());
+                    }
+                    indexBacklog = null;
+                    searchIndex = index;
+                    logger.debug("Indexed {} trips for searching", index.size());
+                    if (snapshot != null && position != null)
+                        snapshot.savePosition(position);
+                    if (isFiltering())
+                        applyFilter();
+                }, Platform::runLater)
+                .exceptionally(e -> {
+                    logger.warn("Error indexing trips: {}", FutureUtils.unwrap(e).getMessage());
+                    Platform.runLater(() -> {
+                        if (generation == indexGeneration)
+                            indexBacklog = null;
+                    });
+                    return null;
+                });
+    }
+
+    /**
+     * Filters the trips table as the agent types in the search fields: a destination prefix,
+     * the departure date, an hour (<code>8</code>), the start of a time (<code>08:3</code>)
+     * or a whole time, and the least free seats. Destinations are completed under the field.
+     */
+    private void initTripFilter() {
+        destinationSuggestions = new ContextMenu();
+        searchDestinationField.textProperty().addListener((obs, oldText, text) -> {
+            onFilterChanged();
+            suggestDestinations(text);
+        });
+        searchDestinationField.focusedProperty().addListener((obs, wasFocused, focused) -> {
+            if (!focused)
+                destinationSuggestions.hide();
+        });
+        searchDateField.valueProperty().addListener((obs, oldDate, date) -> onFilterChanged());
+        searchTimeField.textProperty().addListener((obs, oldText, text) -> onFilterChanged());
+        minSeatsField.textProperty().addListener((obs, oldText, text) -> onFilterChanged());
+    }
+
+    private boolean isFiltering() {
+        return searchIndex != null && !tripFilter.isEmpty();
+    }
+
+    /**
+     * Shows the trips that pass the typed filter; once every field is cleared the trips are
+     * paged from the server again.
+     */
+    private void onFilterChanged() {
+        if (fillingSearchFields)
+            return;
+        boolean wasFiltering = isFiltering();
+        tripFilter = typedFilter();
+        if (isFiltering())
+            applyFilter();
+        else if (wasFiltering)
+            loadTrips();
+    }
+
+    private void applyFilter() {
+        trips.merge(searchIndex.search(tripFilter, FILTER_LIMIT));
+    }
+
+    private TripFilter typedFilter() {
+        LocalTime[] times = typedTimes(searchTimeField.getText());
+        LocalDate date = searchDateField.getValue();
+        return new TripFilter(searchDestinationField.getText(), date, date, times[0], times[1],
+                              typedSeats(minSeatsField.getText()));
+    }
+
+    /**
+     * The first and last minute matching a time being typed; both {@code null} when nothing
+     * (or nothing valid) was typed.
+     */
+    private static LocalTime[] typedTimes(String text) {
+        String typed = text == null ? "" : text.trim();
         try {
-            List<Trip> trips = server.getAllTrips();
-            tripsTable.setItems(FXCollections.observableArrayList(trips));
+            if (typed.matches("\\d{1,2}:?")) {          // o oră întreagă
+                int hour = Integer.parseInt(typed.replace(":", ""));
+                return new LocalTime[]{LocalTime.of(hour, 0), LocalTime.of(hour, 59)};
+            }
+            if (typed.matches("\\d{1,2}:\\d")) {       // prima cifră a minutelor
+                String[] parts = typed.split(":");
+                int hour = Integer.parseInt(parts[0]);
+                int tens = Integer.parseInt(parts[1]) * 10;
+                return new LocalTime[]{LocalTime.of(hour, tens), LocalTime.of(hour, tens + 9)};
+            }
+            if (!typed.isEmpty()) {
+                LocalTime time = LocalTime.parse(typed);
+                return new LocalTime[]{time, time};
+            }
+        } catch (DateTimeException e) {
+            logger.debug("Not a time yet: {}", typed);
         }
-        catch (Exception e) {
-            logger.error("Error loading trips: {}", e.getMessage());
+        return new LocalTime[]{null, null};
+    }
+
+    private static int typedSeats(String text) {
+        try {
+            return text == null || text.isBlank() ? 0 : Integer.parseInt(text.trim());
+        } catch (NumberFormatException e) {
+            return 0;
         }
     }
 
+    private void suggestDestinations(String typed) {
+        if (fillingSearchFields || searchIndex == null || typed == null || typed.isBlank()
+                || !searchDestinationField.isFocused()) {
+            destinationSuggestions.hide();
+            return;
+        }
+        List<String> names = searchIndex.destinations(typed, SUGGESTION_COUNT);
+        if (names.isEmpty() || names.size() == 1 && names.get(0).equalsIgnoreCase(typed.trim())) {
+            destinationSuggestions.hide();
+            return;
+        }
+        List<MenuItem> items = new ArrayList<>(names.size());
+        for (String name : names) {
+            MenuItem item = new MenuItem(name);
+            item.setOnAction(e -> searchDestinationField.setText(name));
+            items.add(item);
+        }
+        destinationSuggestions.getItems().setAll(items);
+        if (!destinationSuggestions.isShowing())
+            destinationSuggestions.show(searchDestinationField, Side.BOTTOM, 0, 0);
+    }
+
+    private CompletableFuture<?> refresh() {
+        return CompletableFuture.allOf(syncTrips(), reloadOpenSeats());
+    }
+
     private void initTripsTable() {
         destinationColumn.setCellValueFactory(new PropertyValueFactory<>("destination"));
         dateColumn.setCellValueFactory(new PropertyValueFactory<>("departureDate"));
@@ -117,13 +688,62 @@ public class MainAppController implements Initializable, IObserver {
         seatsColumn.setCellValueFactory(new PropertyValueFactory<>("availableSeats"));
 
         tripsTable.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY_FLEX_LAST_COLUMN);
+        // scroll bar-ul există doar după ce skin-ul tabelului a fost creat
+        tripsTable.skinProperty().addListener((obs, oldSkin, newSkin) -> watchTripsScrollBar());
+        tripsTable.setItems(trips);
+        tripsTable.setRowFactory(table -> {
+            TableRow<Trip> row = new TableRow<>();
+            row.setOnMouseEntered(e -> {
+                hoveredTrip = row.getItem();
+                hoverDelay.playFromStart();
+            });
+            row.setOnMouseExited(e -> hoverDelay.stop());
+            return row;
+        });
+    }
+
+    /**
+     * Prefetches the seat maps of the selected row and of its neighbours, nearest first and
+     * the row below before the one above.
+     */
+    private void prefetchAround(int selectedIndex) {
+        if (seatPrefetcher == null || selectedIndex < 0)
+            return;
+        List<Integer> tripIds = new ArrayList<>(2 * prefetchNeighbours + 1);
+        tripIds.add(trips.get(selectedIndex).getId());
+        for (int distance = 1; distance <= prefetchNeighbours; distance++) {
+            if (selectedIndex + distance < trips.size())
+                tripIds.add(trips.get(selectedIndex + distance).getId());
+            if (selectedIndex - distance >= 0)
+                tripIds.add(trips.get(selectedIndex - distance).getId());
+        }
+        seatPrefetcher.prefetch(tripIds);
+    }
+
+    private void prefetchHovered() {
+        if (seatPrefetcher != null && hoveredTrip != null && hoveredTrip.getId() != null)
+            seatPrefetcher.prefetch(List.of(hoveredTrip.getId()));
+    }
+
+    private void watchTripsScrollBar() {
+        for (Node node : tripsTable.lookupAll(".scroll-bar")) {
+            if (node instanceof ScrollBar bar && bar.getOrientation() == Orientation.VERTICAL) {
+                bar.valueProperty().addListener((obs, oldValue, value) -> {
+                    if (value.doubleValue() >= bar.getMax() * NEXT_PAGE_SCROLL_THRESHOLD) {
+                        loadNextTripsPage();
+                    }
+                });
+            }
+        }
     }
 
     private void initSeatsTable() {
         seatNumberColumn.setCellValueFactory(new PropertyValueFactory<>("seatNumber"));
-        clientNameColumn.setCellValueFactory(new PropertyValueFactory<>("clientName"));
+        clientNameColumn.setCellValueFactory(cell -> new ReadOnlyStringWrapper(
+                cell.getValue().isHeld() ? "(held)" : cell.getValue().getClientName()));
 
         seatsTable.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY_FLEX_LAST_COLUMN);
+        seatsTable.setItems(seats);
     }
 
     @FXML
@@ -135,66 +755,195 @@ public class MainAppController implements Initializable, IObserver {
         }
     }
 
-    private void loadSeats() {
-        try {
-            logger.debug("Searching for seats...");
-            String destination = searchDestinationField.getText();
-            if (destination.isEmpty()) {
-                AlertFactory.getInstance().createAlert("Error", "Destination cannot be empty!").showAndWait();
-                return;
-            }
-            LocalDate date = searchDateField.getValue();
-            if (date == null) {
-                AlertFactory.getInstance().createAlert("Error", "Date cannot be empty!").showAndWait();
-                return;
-            }
-            LocalTime time = LocalTime.parse(searchTimeField.getText());
+    /**
+     * Reads the search fields (must run on the FX thread), then fetches the trip and its seats
+     * in one background call, or takes the seat map the {@link SeatPrefetcher} loaded ahead.
+     * The returned future completes after the seats table was updated. Only for the Search
+     * button: refreshes use {@link #reloadOpenSeats()}.
+     */
+    private CompletableFuture<Void> loadSeats() {
+        logger.debug("Searching for seats...");
+        String destination = searchDestinationField.getText();
+        if (destination.isEmpty()) {
+            AlertFactory.getInstance().createAlert("Error", "Destination cannot be empty!").showAndWait();
+            return CompletableFuture.completedFuture(null);
+        }
+        LocalDate date = searchDateField.getValue();
+        if (date == null) {
+            AlertFactory.getInstance().createAlert("Error", "Date cannot be empty!").showAndWait();
+            return CompletableFuture.completedFuture(null);
+        }
+        LocalTime time = LocalTime.parse(searchTimeField.getText());
+
+        Integer tripId = knownTripId(destination, date, time);
+        CompletableFuture<TripWithSeats> prefetched = tripId != null && seatPrefetcher != null
+                ? seatPrefetcher.take(tripId)
+                : null;
+        CompletableFuture<TripWithSeats> lookup = prefetched != null ? prefetched
+                : tripId != null ? server.getTripWithSeatsById(tripId)
+                : server.getTripWithSeats(destination, date, time);
+        return lookup
+                .thenAcceptAsync(found -> {
+                    if (tripToReserve != null && seatHoldKeeper != null
+                            && !tripToReserve.getId().equals(found.getTrip().getId())) {
+                        seatHoldKeeper.release();
+                    }
+                    tripToReserve = found.getTrip();
+                    logger.debug("Trip found: {}", tripToReserve);
+                    logger.debug("Seats found: {}", found.getSeats());
+                    seats.merge(found.getSeats());
+                }, Platform::runLater)
+                .exceptionally(e -> {
+                    logger.error("Error loading seats: {}", FutureUtils.unwrap(e).getMessage());
+                    return null;
+                });
+    }
+
+    /**
+     * Reloads the seat map of the open trip by its id, for refreshes. The search fields are not
+     * read: they filter the trips table as the agent types, so they often hold partial text.
+     * Nothing is loaded while no trip is open.
+     */
+    private CompletableFuture<Void> reloadOpenSeats() {
+        if (tripToReserve == null || tripToReserve.getId() == null)
+            return CompletableFuture.completedFuture(null);
+        int tripId = tripToReserve.getId();
+        return server.getTripWithSeatsById(tripId)
+                .thenAcceptAsync(found -> {
+                    if (tripToReserve == null || tripToReserve.getId() == null || tripToReserve.getId() != tripId)
+                        return;                         // între timp s-a deschis altă cursă
+                    tripToReserve = found.getTrip();
+                    seats.merge(found.getSeats());
+                }, Platform::runLater)
+                .exceptionally(e -> {
+                    logger.error("Error reloading seats: {}", FutureUtils.unwrap(e).getMessage());
+                    return null;
+                });
+    }
 
-            Trip newTrip = server.getTrip(destination, date, time);
-            if (newTrip == null) {
-                AlertFactory.getInstance().createAlert("Error", "This trip don't exists!").showAndWait();
-                return;
+    /**
+     * The id of the selected (or last searched) trip, if it is the one described by the
+     * search fields; lets the lookup go by primary key instead of by name, date and time.
+     */
+    private Integer knownTripId(String destination, LocalDate date, LocalTime time) {
+        for (Trip trip : new Trip[]{tripsTable.getSelectionModel().getSelectedItem(), tripToReserve}) {
+            if (trip != null && trip.getId() != null
+                    && trip.getDestination().getName().equals(destination)
+                    && trip.getDepartureDate().equals(date)
+                    && trip.getDepartureTime().equals(time)) {
+                return trip.getId();
             }
-            tripToReserve = newTrip;
-            logger.debug("Trip found: {}", tripToReserve);
-            List<Seat> seats = server.searchTripSeats(
-                    tripToReserve.getDestination().getName(),
-                    tripToReserve.getDepartureDate(),
-                    tripToReserve.getDepartureTime()
-            );
-            logger.debug("Seats found: {}", seats);
-            seatsTable.setItems(FXCollections.observableArrayList(seats));
-        } catch (ServicesException e) {
-            logger.error("Error loading seats: {}", e.getMessage());
         }
+        return null;
     }
 
     @FXML
     private void onReserveButtonClick(ActionEvent event) {
+        String clientName = clientNameField.getText();
+        List<Integer> seatNumbers = List.of(seatNumbersField.getText().split(","))
+                .stream()
+                .map(Integer::parseInt)
+                .toList();
+
+        Trip reserved = tripToReserve;
+        server.reserveSeats(clientName, seatNumbers, reserved, currentEmployee)
+                .whenCompleteAsync((version, e) -> {
+                    if (FutureUtils.unwrap(e) instanceof SeatsConflictException conflict) {
+                        showConflict(conflict);
+                        return;
+                    }
+                    if (e != null) {
+                        logger.error("Error reserving seats cibidusoewoiiub");
+                        AlertFactory.getInstance().createAlert("Error", FutureUtils.unwrap(e).getMessage()).showAndWait();
+                        return;
+                    }
+                    // următoarea rezervare trimite versiunea la care a ajuns cursa
+                    if (version > 0 && tripToReserve == reserved)
+                        reserved.setVersion(version);
+                    if (seatPrefetcher != null)
+                        seatPrefetcher.invalidate(reserved.getId());
+                    seatHoldKeeper.release();
+                    AlertFactory.getInstance().createAlert("Success", "Seats reserved successfully!").showAndWait();
+                    refreshScheduler.requestRefresh();
+                }, Platform::runLater);
+    }
+
+    /**
+     * Shows the seat map the server sent with the conflict, so the agent can pick other seats
+     * right away instead of searching again.
+     */
+    private void showConflict(SeatsConflictException conflict) {
+        logger.debug("Seats {} were taken meanwhile", conflict.getLostSeats());
+        tripToReserve = conflict.getCurrent().getTrip();
+        seats.merge(conflict.getCurrent().getSeats());
+        if (seatPrefetcher != null)
+            seatPrefetcher.invalidate(tripToReserve.getId());
+        trips.updateByKey(tripToReserve.getId(), trip -> {
+            trip.setAvailableSeats(tripToReserve.getAvailableSeats());
+            trip.setVersion(tripToReserve.getVersion());
+        });
+        if (searchIndex != null && tripToReserve.getAvailableSeats() != null)
+            searchIndex.updateSeats(tripToReserve.getId(), tripToReserve.getAvailableSeats(),
+                                    tripToReserve.getVersion() == null ? 0 : tripToReserve.getVersion());
+        AlertFactory.getInstance().createAlert("Error", "Seats " + conflict.getLostSeats()
+                + " were just reserved or are held by someone else. The seat map was updated.").showAndWait();
+    }
+
+    /**
+     * Holds the seats typed in the reservation form, so another office cannot take them while
+     * the customer decides. Runs once typing pauses; clearing the field lets the seats go.
+     */
+    private void holdTypedSeats() {
+        if (tripToReserve == null || seatHoldKeeper == null)
+            return;
+        List<Integer> seatNumbers;
         try {
-            String clientName = clientNameField.getText();
-            List<Integer> seatNumbers = List.of(seatNumbersField.getText().split(","))
+            seatNumbers = List.of(seatNumbersField.getText().split(","))
                     .stream()
+                    .map(String::trim)
+                    .filter(text -> !text.isEmpty())
                     .map(Integer::parseInt)
+                    .distinct()
                     .toList();
-
-            server.reserveSeats(clientName, seatNumbers, tripToReserve, currentEmployee);
-            AlertFactory.getInstance().createAlert("Success", "Seats reserved successfully!").showAndWait();
-            loadTrips();
-            loadSeats();
-        } catch (ServicesException e) {
-            logger.error("Error reserving seats cibidusoewoiiub");
-            AlertFactory.getInstance().createAlert("Error", e.getMessage()).showAndWait();
+        } catch (NumberFormatException e) {
+            return;                                     // încă se tastează
+        }
+        if (seatNumbers.isEmpty()) {
+            seatHoldKeeper.release();
+            return;
         }
+        seatHoldKeeper.hold(tripToReserve, seatNumbers)
+                .whenCompleteAsync((hold, e) -> {
+                    if (FutureUtils.unwrap(e) instanceof SeatsConflictException conflict) {
+                        showConflict(conflict);
+                    } else if (e != null) {
+                        logger.error("Error holding seats: {}", FutureUtils.unwrap(e).getMessage());
+                    } else {
+                        logger.debug("Holding {}", hold);
+                    }
+                }, Platform::runLater);
     }
 
     public void onLogoutButtonClick(ActionEvent actionEvent) {
-        try {
-            server.logout(currentEmployee);
-            AlertFactory.getInstance().createAlert("Success", "Logged out successfully!").showAndWait();
-        } catch (ServicesException e) {
-            logger.error("Error logging out: {}", e.getMessage());
+        Node source = (Node) actionEvent.getSource();
+        refreshScheduler.close();
+        holdDelay.stop();
+        hoverDelay.stop();
+        if (offline) {
+            source.getScene().getWindow().hide();        // nu există sesiune pe server
+            return;
+        }
+        if (seatHoldKeeper != null) {
+            seatHoldKeeper.close();
         }
-        ((Node) (actionEvent.getSource())).getScene().getWindow().hide();
+        server.logout(currentEmployee)
+                .whenCompleteAsync((ignored, e) -> {
+                    if (e != null) {
+                        logger.error("Error logging out: {}", FutureUtils.unwrap(e).getMessage());
+                    } else {
+                        AlertFactory.getInstance().createAlert("Success", "Logged out successfully!").showAndWait();
+                    }
+                    source.getScene().getWindow().hide();
+                }, Platform::runLater);
     }
 }
\ No newline at end of file
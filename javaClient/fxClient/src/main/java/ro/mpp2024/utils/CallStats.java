@@ -0,0 +1,157 @@
+package ro.mpp2024.utils;
+
+import io.grpc.Status;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and an HDR latency histogram for one RPC method (or for another timed step, such
+ * as applying a notification to the UI). Recording is lock-free; the histogram is copied out
+ * only when it is read.
+ */
+public class CallStats implements CallStatsMBean {
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final String name;
+    private final Recorder recorder = new Recorder(3);
+    private final Histogram total = new Histogram(3);
+    private final Histogram sinceLastReport = new Histogram(3);
+    private Histogram interval;
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder requestBytes = new LongAdder();
+    private final LongAdder responseBytes = new LongAdder();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Map<Status.Code, LongAdder> errorCodes = new ConcurrentHashMap<>();
+
+    public CallStats(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    void started() {
+        inFlight.incrementAndGet();
+    }
+
+    /**
+     * Ends a call started with {@link #started()}; the latency is left out when negative
+     * (streams, whose length says nothing about the server).
+     */
+    void finished(long latencyNanos, Status.Code code) {
+        inFlight.decrementAndGet();
+        calls.increment();
+        if (latencyNanos >= 0)
+            recorder.recordValue(latencyNanos);
+        if (code != Status.Code.OK) {
+            errors.increment();
+            errorCodes.computeIfAbsent(code, c -> new LongAdder()).increment();
+        }
+    }
+
+    /**
+     * Records a step that is not a call, e.g. from a notification to the updated table.
+     */
+    public void record(long latencyNanos) {
+        calls.increment();
+        recorder.recordValue(Math.max(0, latencyNanos));
+    }
+
+    void requestBytes(int bytes) {
+        requestBytes.add(bytes);
+    }
+
+    void responseBytes(int bytes) {
+        responseBytes.add(bytes);
+    }
+
+    /**
+     * The latencies recorded since the previous report, for the periodic log dump; the
+     * returned copy is not shared.
+     */
+    synchronized Histogram takeReport() {
+        drain();
+        Histogram report = sinceLastReport.copy();
+        sinceLastReport.reset();
+        return report;
+    }
+
+    private void drain() {
+        interval = recorder.getIntervalHistogram(interval);
+        total.add(interval);
+        sinceLastReport.add(interval);
+    }
+
+    private synchronized double percentileMillis(double percentile) {
+        drain();
+        return total.getValueAtPercentile(percentile) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    @Override
+    public String getErrorCodes() {
+        Map<Status.Code, Long> counts = new TreeMap<>();
+        errorCodes.forEach((code, count) -> counts.put(code, count.sum()));
+        return counts.toString();
+    }
+
+    @Override
+    public long getRequestBytes() {
+        return requestBytes.sum();
+    }
+
+    @Override
+    public long getResponseBytes() {
+        return responseBytes.sum();
+    }
+
+    @Override
+    public synchronized double getMeanMillis() {
+        drain();
+        return total.getMean() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getP50Millis() {
+        return percentileMillis(50);
+    }
+
+    @Override
+    public double getP90Millis() {
+        return percentileMillis(90);
+    }
+
+    @Override
+    public double getP99Millis() {
+        return percentileMillis(99);
+    }
+
+    @Override
+    public synchronized double getMaxMillis() {
+        drain();
+        return total.getMaxValue() / NANOS_PER_MILLI;
+    }
+}
@@ -0,0 +1,28 @@
+package ro.mpp2024.utils;
+
+/**
+ * JMX view of a {@link CallStats}. Latencies are in milliseconds, since the client started.
+ */
+public interface CallStatsMBean {
+    long getCalls();
+
+    long getErrors();
+
+    int getInFlight();
+
+    String getErrorCodes();
+
+    long getRequestBytes();
+
+    long getResponseBytes();
+
+    double getMeanMillis();
+
+    double getP50Millis();
+
+    double getP90Millis();
+
+    double getP99Millis();
+
+    double getMaxMillis();
+}
@@ -0,0 +1,257 @@
+package ro.mpp2024.utils;
+
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.ManagedChannel;
+import io.grpc.MethodDescriptor;
+import io.grpc.NameResolverRegistry;
+import io.grpc.netty.shaded.io.grpc.netty.NettyChannelBuilder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import ro.mpp2024.proto.TransportCompanyGrpc;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Channel options read from <code>client.properties</code> (keys starting with
+ * <code>grpc.</code>): keepalive, idle timeout, message size, flow-control window, request
+ * compression, a deadline for every unary call, a retry or hedging policy for the
+ * read-only calls, how calls are spread over several server instances and which
+ * {@link ExecutorStrategy} runs the channel's callbacks. Missing or malformed keys fall back
+ * to the defaults below.
+ */
+public class ChannelSettings {
+    private static final Logger logger = LogManager.getLogger(ChannelSettings.class);
+
+    // apelurile care doar citesc pot fi repetate fără efecte secundare
+    private static final List<MethodDescriptor<?, ?>> IDEMPOTENT_READS = List.of(
+            TransportCompanyGrpc.getGetAllTripsMethod(),
+            TransportCompanyGrpc.getGetTripsMethod(),
+            TransportCompanyGrpc.getGetTripMethod(),
+            TransportCompanyGrpc.getGetTripWithSeatsMethod(),
+            TransportCompanyGrpc.getSearchTripSeatsMethod(),
+            TransportCompanyGrpc.getGetTripChangesMethod());
+
+    static {
+        NameResolverRegistry.getDefaultRegistry().register(new EndpointsNameResolverProvider());
+    }
+
+    private final Properties props;
+
+    private final long keepAliveTimeSeconds;
+    private final long keepAliveTimeoutSeconds;
+    private final boolean keepAliveWithoutCalls;
+    private final long idleTimeoutSeconds;
+    private final int maxInboundMessageBytes;
+    private final int flowControlWindowBytes;
+    private final String compression;
+    private final long deadlineMillis;
+    private final int maxAttempts;
+    private final long retryInitialBackoffMillis;
+    private final long retryMaxBackoffMillis;
+    private final long hedgingDelayMillis;
+    private final String loadBalancingPolicy;
+    private final boolean healthCheck;
+    private final ExecutorStrategy executor;               // null: pool-ul implicit al gRPC
+    private final int executorPoolSize;
+    private ExecutorService callbackExecutor;              // unul pentru toate canalele create
+
+    public ChannelSettings(Properties props) {
+        this.props = props;
+        this.keepAliveTimeSeconds = number(props, "grpc.keepalive.time.s", 30);
+        this.keepAliveTimeoutSeconds = number(props, "grpc.keepalive.timeout.s", 10);
+        this.keepAliveWithoutCalls = Boolean.parseBoolean(props.getProperty("grpc.keepalive.without.calls", "false"));
+        this.idleTimeoutSeconds = number(props, "grpc.idle.timeout.s", 300);
+        this.maxInboundMessageBytes = (int) number(props, "grpc.max.inbound.message.bytes", 16 * 1024 * 1024);
+        this.flowControlWindowBytes = (int) number(props, "grpc.flow.control.window.bytes", 1024 * 1024);
+        this.compression = props.getProperty("grpc.compression", "identity").trim();
+        this.deadlineMillis = number(props, "grpc.deadline.ms", 5000);
+        this.maxAttempts = (int) number(props, "grpc.retry.max.attempts", 3);
+        this.retryInitialBackoffMillis = number(props, "grpc.retry.initial.backoff.ms", 200);
+        this.retryMaxBackoffMillis = number(props, "grpc.retry.max.backoff.ms", 2000);
+        this.hedgingDelayMillis = number(props, "grpc.hedging.delay.ms", 0);
+        this.loadBalancingPolicy = props.getProperty("grpc.load.balancing", "pick_first").trim();
+        this.healthCheck = Boolean.parseBoolean(props.getProperty("grpc.health.check", "true"));
+        this.executor = ExecutorStrategy.parse(props.getProperty("grpc.executor"), null);
+        this.executorPoolSize = number(props, "grpc.executor.pool.size", 8, 1, ExecutorStrategy.MAX_POOL_SIZE);
+    }
+
+    /**
+     * A plaintext channel to the server instances with these settings applied. A single
+     * <code>host:port</code> is resolved through DNS, so a name with several addresses also
+     * spreads the calls; several are used as they are. The interceptors see each call once,
+     * after the deadline is set and before any retry.
+     */
+    public ManagedChannel newChannel(List<String> endpoints, ClientInterceptor... interceptors) {
+        String target = endpoints.size() == 1
+                ? "dns:///" + endpoints.get(0)
+                : EndpointsNameResolverProvider.target(endpoints);
+        NettyChannelBuilder builder = NettyChannelBuilder.forTarget(target)
+                .usePlaintext() // pentru localhost, fără TLS
+                .keepAliveTime(keepAliveTimeSeconds, TimeUnit.SECONDS)
+                .keepAliveTimeout(keepAliveTimeoutSeconds, TimeUnit.SECONDS)
+                .keepAliveWithoutCalls(keepAliveWithoutCalls)
+                .idleTimeout(idleTimeoutSeconds, TimeUnit.SECONDS)
+                .maxInboundMessageSize(maxInboundMessageBytes)
+                .flowControlWindow(flowControlWindowBytes)
+                .intercept(interceptors)
+                .intercept(new CallDefaults())          // ultimul adăugat rulează primul
+                .defaultServiceConfig(serviceConfig());
+        if (maxAttempts > 1) {
+            builder.maxRetryAttempts(maxAttempts)
+                   .enableRetry();
+        } else {
+            builder.disableRetry();
+        }
+        if (executor == ExecutorStrategy.DIRECT)
+            builder.directExecutor();
+        else if (executor != null)
+            builder.executor(callbackExecutor());
+        logger.info("Channel to {} with settings {}", target, this);
+        return builder.build();
+    }
+
+    /**
+     * The executor of <code>grpc.executor</code>, shared by every channel made with these
+     * settings so a pool stays bounded however many channels there are.
+     */
+    private synchronized ExecutorService callbackExecutor() {
+        if (callbackExecutor == null)
+            callbackExecutor = executor.newExecutor("grpc-callback", executorPoolSize);
+        return callbackExecutor;
+    }
+
+    /**
+     * Deadline of a unary call: <code>grpc.deadline.&lt;Method&gt;.ms</code> if set, otherwise
+     * <code>grpc.deadline.ms</code>. Zero or less means no deadline.
+     */
+    long deadlineMillis(MethodDescriptor<?, ?> method) {
+        return number(props, "grpc.deadline." + method.getBareMethodName() + ".ms", deadlineMillis);
+    }
+
+    /**
+     * gRPC service config: the load-balancing policy, health checking of the instances and a
+     * retry policy (or a hedging policy, when <code>grpc.hedging.delay.ms</code> is positive)
+     * for the idempotent reads. Writes are never repeated: a reservation that timed out may
+     * still have been applied.
+     * <p>
+     * <code>pick_first</code> sends every call to one instance and moves to the next only when
+     * it cannot be reached; <code>round_robin</code> spreads the calls and, with health
+     * checking, stops using an instance as soon as it reports NOT_SERVING.
+     */
+    Map<String, Object> serviceConfig() {
+        Map<String, Object> config = new LinkedHashMap<>();
+        config.put("loadBalancingConfig", List.of(Map.of(loadBalancingPolicy, Map.of())));
+        if (healthCheck)
+            config.put("healthCheckConfig", Map.of("serviceName", ""));
+        if (maxAttempts > 1)
+            config.put("methodConfig", List.of(methodConfig()));
+        return config;
+    }
+
+    private Map<String, Object> methodConfig() {
+        List<Object> names = new ArrayList<>();
+        for (MethodDescriptor<?, ?> method : IDEMPOTENT_READS) {
+            names.add(Map.of("service", method.getServiceName(), "method", method.getBareMethodName()));
+        }
+
+        Map<String, Object> methodConfig = new LinkedHashMap<>();
+        methodConfig.put("name", names);
+        if (hedgingDelayMillis > 0) {
+            methodConfig.put("hedgingPolicy", Map.of(
+                    "maxAttempts", (double) maxAttempts,
+                    "hedgingDelay", seconds(hedgingDelayMillis),
+                    "nonFatalStatusCodes", List.of("UNAVAILABLE")));
+        } else {
+            methodConfig.put("retryPolicy", Map.of(
+                    "maxAttempts", (double) maxAttempts,
+                    "initialBackoff", seconds(retryInitialBackoffMillis),
+                    "maxBackoff", seconds(retryMaxBackoffMillis),
+                    "backoffMultiplier", 2.0,
+                    "retryableStatusCodes", List.of("UNAVAILABLE")));
+        }
+        return methodConfig;
+    }
+
+    private static String seconds(long millis) {
+        return (millis / 1000.0) + "s";
+    }
+
+    /**
+     * An int property between min and max; a value that is not a number or is out of range is
+     * logged and the default used instead.
+     */
+    private static int number(Properties props, String key, int defaultValue, int min, int max) {
+        String value = props.getProperty(key);
+        if (value == null)
+            return defaultValue;
+        try {
+            int number = Integer.parseInt(value.trim());
+            if (number >= min && number <= max)
+                return number;
+            logger.error("Wrong {} {}, expected {} to {}", key, number, min, max);
+        } catch (NumberFormatException ex) {
+            logger.error("Wrong {} {}", key, ex.getMessage());
+        }
+        logger.debug("Using default {}: {}", key, defaultValue);
+        return defaultValue;
+    }
+
+    private static long number(Properties props, String key, long defaultValue) {
+        String value = props.getProperty(key);
+        if (value == null)
+            return defaultValue;
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException ex) {
+            logger.error("Wrong {} {}", key, ex.getMessage());
+            logger.debug("Using default {}: {}", key, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ChannelSettings{" +
+                "keepAlive=" + keepAliveTimeSeconds + "s/" + keepAliveTimeoutSeconds + "s" +
+                ", keepAliveWithoutCalls=" + keepAliveWithoutCalls +
+                ", idleTimeout=" + idleTimeoutSeconds + "s" +
+                ", maxInboundMessageBytes=" + maxInboundMessageBytes +
+                ", flowControlWindowBytes=" + flowControlWindowBytes +
+                ", compression=" + compression +
+                ", deadline=" + deadlineMillis + "ms" +
+                ", maxAttempts=" + maxAttempts +
+                ", hedgingDelay=" + hedgingDelayMillis + "ms" +
+                ", loadBalancing=" + loadBalancingPolicy +
+                ", healthCheck=" + healthCheck +
+                ", executor=" + (executor == null ? "default" : executor) +
+                '}';
+    }
+
+    /**
+     * Adds the deadline to unary calls that do not already have one (the notification stream
+     * stays open for the whole session, so it gets none) and the request compression.
+     */
+    private class CallDefaults implements ClientInterceptor {
+        @Override
+        public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(MethodDescriptor<ReqT, RespT> method,
+                                                                   CallOptions callOptions, Channel next) {
+            if (method.getType() == MethodDescriptor.MethodType.UNARY && callOptions.getDeadline() == null) {
+                long millis = deadlineMillis(method);
+                if (millis > 0)
+                    callOptions = callOptions.withDeadlineAfter(millis, TimeUnit.MILLISECONDS);
+            }
+            if (!compression.isEmpty() && !"identity".equals(compression))
+                callOptions = callOptions.withCompression(compression);
+            return next.newCall(method, callOptions);
+        }
+    }
+}
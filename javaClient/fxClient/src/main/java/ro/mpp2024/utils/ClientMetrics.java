@@ -0,0 +1,192 @@
+package ro.mpp2024.utils;
+
+import com.google.protobuf.MessageLite;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.ForwardingClientCall;
+import io.grpc.ForwardingClientCallListener;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import org.HdrHistogram.Histogram;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures every call made on the channel it is installed on: latency (HDR histogram, from
+ * start to close as the terminal sees it, retries included), request and response bytes,
+ * status codes and calls in flight. Each call is also traced at debug level. The numbers are
+ * published as JMX beans named <code>ro.mpp2024:type=ClientMetrics,name=&lt;Method&gt;</code>
+ * and, if an interval is given, written to the log periodically. Other components can publish
+ * their own beans next to them (see {@link #publish}).
+ */
+public class ClientMetrics implements ClientInterceptor, AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(ClientMetrics.class);
+
+    /**
+     * From a notification arriving to the table showing it.
+     */
+    public static final String NOTIFICATION_TO_UI = "NotificationToUi";
+
+    private final Map<String, CallStats> stats = new ConcurrentHashMap<>();
+    private final Map<String, Object> published = new ConcurrentHashMap<>();
+    private final Map<String, ObjectName> registered = new ConcurrentHashMap<>();
+    private final boolean jmx;
+    private final ScheduledExecutorService reporter;
+
+    /**
+     * @param reportInterval how often to log the numbers; zero or negative for never
+     * @param jmx            whether to register the JMX beans
+     */
+    public ClientMetrics(Duration reportInterval, boolean jmx) {
+        this.jmx = jmx;
+        if (reportInterval.isZero() || reportInterval.isNegative()) {
+            this.reporter = null;
+        } else {
+            this.reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "client-metrics");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long millis = reportInterval.toMillis();
+            reporter.scheduleAtFixedRate(this::report, millis, millis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public CallStats stats(String name) {
+        return stats.computeIfAbsent(name, this::create);
+    }
+
+    /**
+     * Publishes a bean of another component, e.g. the seat map prefetcher, as
+     * <code>ro.mpp2024:type=ClientMetrics,name=&lt;name&gt;</code>; its {@code toString()} is
+     * logged with every report.
+     */
+    public void publish(String name, Object bean) {
+        published.put(name, bean);
+        register(name, bean);
+    }
+
+    /**
+     * Records how long it took from receiving a notification to applying it on screen.
+     */
+    public void recordNotificationToUi(long receivedNanos) {
+        stats(NOTIFICATION_TO_UI).record(System.nanoTime() - receivedNanos);
+    }
+
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(MethodDescriptor<ReqT, RespT> method,
+                                                               CallOptions callOptions, Channel next) {
+        CallStats methodStats = stats(method.getBareMethodName());
+        boolean unary = method.getType() == MethodDescriptor.MethodType.UNARY;
+        return new ForwardingClientCall.SimpleForwardingClientCall<>(next.newCall(method, callOptions)) {
+            private long startNanos;
+
+            @Override
+            public void start(Listener<RespT> responseListener, Metadata headers) {
+                startNanos = System.nanoTime();
+                methodStats.started();
+                super.start(new ForwardingClientCallListener.SimpleForwardingClientCallListener<>(responseListener) {
+                    @Override
+                    public void onMessage(RespT message) {
+                        methodStats.responseBytes(serializedSize(message));
+                        super.onMessage(message);
+                    }
+
+                    @Override
+                    public void onClose(Status status, Metadata trailers) {
+                        long elapsed = System.nanoTime() - startNanos;
+                        methodStats.finished(unary ? elapsed : -1, status.getCode());
+                        logger.debug("{} {} in {} us", method.getBareMethodName(), status.getCode(),
+                                     TimeUnit.NANOSECONDS.toMicros(elapsed));
+                        super.onClose(status, trailers);
+                    }
+                }, headers);
+            }
+
+            @Override
+            public void sendMessage(ReqT message) {
+                methodStats.requestBytes(serializedSize(message));
+                super.sendMessage(message);
+            }
+        };
+    }
+
+    /**
+     * Logs one line per method that was used since the previous report.
+     */
+    public void report() {
+        for (CallStats methodStats : new TreeMap<>(stats).values()) {
+            Histogram interval = methodStats.takeReport();
+            if (interval.getTotalCount() == 0 && methodStats.getInFlight() == 0)
+                continue;
+            logger.info("{}: {} in interval, p50 {} ms, p99 {} ms, max {} ms; total {} calls, {} errors {}, "
+                                + "{} in flight, {} B sent, {} B received",
+                        methodStats.getName(), interval.getTotalCount(),
+                        millis(interval.getValueAtPercentile(50)), millis(interval.getValueAtPercentile(99)),
+                        millis(interval.getMaxValue()), methodStats.getCalls(), methodStats.getErrors(),
+                        methodStats.getErrorCodes(), methodStats.getInFlight(),
+                        methodStats.getRequestBytes(), methodStats.getResponseBytes());
+        }
+        for (Map.Entry<String, Object> bean : new TreeMap<>(published).entrySet()) {
+            logger.info("{}: {}", bean.getKey(), bean.getValue());
+        }
+    }
+
+    @Override
+    public void close() {
+        if (reporter != null) {
+            reporter.shutdownNow();
+            report();
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName name : registered.values()) {
+            try {
+                server.unregisterMBean(name);
+            } catch (JMException e) {
+                logger.debug("Could not unregister {}: {}", name, e.getMessage());
+            }
+        }
+        registered.clear();
+    }
+
+    private CallStats create(String name) {
+        CallStats created = new CallStats(name);
+        register(name, created);
+        return created;
+    }
+
+    private void register(String name, Object bean) {
+        if (!jmx)
+            return;
+        try {
+            ObjectName objectName = new ObjectName("ro.mpp2024:type=ClientMetrics,name=" + name);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(bean, objectName);
+            registered.put(name, objectName);
+        } catch (JMException e) {
+            logger.warn("Could not publish metrics of {} over JMX: {}", name, e.getMessage());
+        }
+    }
+
+    private static int serializedSize(Object message) {
+        return message instanceof MessageLite lite ? lite.getSerializedSize() : 0;
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.3f", nanos / 1_000_000.0);
+    }
+}
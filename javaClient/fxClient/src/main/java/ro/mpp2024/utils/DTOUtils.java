@@ -1,39 +1,94 @@
 package ro.mpp2024.utils;
 
+import com.google.protobuf.ByteString;
 import ro.mpp2024.Destination;
+import ro.mpp2024.SeatMap;
 import ro.mpp2024.Trip;
+import ro.mpp2024.proto.SeatMapDTO;
 import ro.mpp2024.proto.TripDTO;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class DTOUtils {
 
+    // There are only a handful of destinations, so each name maps to one shared instance
+    // instead of a new object per trip. The bound keeps a misbehaving server from growing it.
+    private static final int MAX_INTERNED_DESTINATIONS = 4096;
+    private static final Map<String, Destination> destinations = new ConcurrentHashMap<>();
+
     // Conversie din TripDTO (clasa generată de Protobuf) în Trip (model aplicație)
     public static Trip convertTripDTOToTrip(TripDTO tripDTO) {
-        // Presupunem că destination este String și corespunde cu un destinatar din aplicația ta, eventual cu un id sau nume
-        Destination destination = new Destination(null, tripDTO.getDestination()); // sau adaptează după modelul tău de Destination
-        LocalDate date = LocalDate.parse(tripDTO.getDate());
-        LocalTime time = LocalTime.parse(tripDTO.getTime());
-        return new Trip(
+        Destination destination = internDestination(tripDTO.getDestination());
+        LocalDate date = tripDTO.hasDepartureEpochDay()
+                ? LocalDate.ofEpochDay(tripDTO.getDepartureEpochDay())
+                : LocalDate.parse(tripDTO.getDate());
+        LocalTime time = tripDTO.hasDepartureSecondOfDay()
+                ? LocalTime.ofSecondOfDay(tripDTO.getDepartureSecondOfDay())
+                : LocalTime.parse(tripDTO.getTime());
+        Trip trip = new Trip(
                 tripDTO.getId(),
                 destination,
                 date,
                 time,
                 tripDTO.getAvailableSeats()
         );
+        if (tripDTO.hasVersion())
+            trip.setVersion(tripDTO.getVersion());
+        return trip;
     }
 
     // Poți adăuga și conversia inversă, dacă e nevoie:
     public static TripDTO convertTripToTripDTO(Trip trip) {
-        return TripDTO.newBuilder()
+        TripDTO.Builder dto = TripDTO.newBuilder()
                 .setId(trip.getId())
                 .setDestination(trip.getDestination().getName()) // adaptează dacă ai id sau altceva
                 .setDate(trip.getDepartureDate().toString())
                 .setTime(trip.getDepartureTime().toString())
-                .setAvailableSeats(trip.getAvailableSeats())
+                .setDepartureEpochDay(trip.getDepartureDate().toEpochDay())
+                .setDepartureSecondOfDay(trip.getDepartureTime().toSecondOfDay())
+                .setAvailableSeats(trip.getAvailableSeats());
+        if (trip.getVersion() != null)
+            dto.setVersion(trip.getVersion());
+        return dto.build();
+    }
+
+    /**
+     * Reads the compact seat map; the bitsets are little-endian bytes, as {@link BitSet} writes them.
+     */
+    public static SeatMap convertSeatMapDTOToSeatMap(SeatMapDTO dto) {
+        List<String> names = dto.getClientNamesList();
+        return new SeatMap(dto.getSeatCount(),
+                           BitSet.valueOf(dto.getReserved().asReadOnlyByteBuffer()).toLongArray(),
+                           BitSet.valueOf(dto.getHeld().asReadOnlyByteBuffer()).toLongArray(),
+                           names.toArray(new String[0]));
+    }
+
+    public static SeatMapDTO convertSeatMapToSeatMapDTO(SeatMap seats) {
+        return SeatMapDTO.newBuilder()
+                .setSeatCount(seats.size())
+                .setReserved(ByteString.copyFrom(BitSet.valueOf(seats.getReservedBits()).toByteArray()))
+                .setHeld(ByteString.copyFrom(BitSet.valueOf(seats.getHeldBits()).toByteArray()))
+                .addAllClientNames(List.of(seats.getClientNames()))
                 .build();
     }
 
+    /**
+     * Returns the shared {@link Destination} for the given name. The instances are shared
+     * between trips, so callers must not modify them.
+     */
+    public static Destination internDestination(String name) {
+        Destination destination = destinations.get(name);
+        if (destination != null)
+            return destination;
+        if (destinations.size() >= MAX_INTERNED_DESTINATIONS)
+            return new Destination(null, name);
+        return destinations.computeIfAbsent(name, n -> new Destination(null, n));
+    }
+
     // ... restul utilitarelor pentru Employee, Seat, etc.
 }
\ No newline at end of file
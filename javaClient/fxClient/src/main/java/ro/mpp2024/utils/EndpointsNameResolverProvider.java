@@ -0,0 +1,72 @@
+package ro.mpp2024.utils;
+
+import io.grpc.EquivalentAddressGroup;
+import io.grpc.NameResolver;
+import io.grpc.NameResolverProvider;
+import io.grpc.Status;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resolves targets such as <code>endpoints:///host1:5000,host2:5001</code> to a fixed list of
+ * server addresses, one per instance, for the load-balancing policy to choose from.
+ */
+public class EndpointsNameResolverProvider extends NameResolverProvider {
+    public static final String SCHEME = "endpoints";
+
+    public static String target(List<String> endpoints) {
+        return SCHEME + ":///" + String.join(",", endpoints);
+    }
+
+    @Override
+    protected boolean isAvailable() {
+        return true;
+    }
+
+    @Override
+    protected int priority() {
+        return 4;       // sub DNS (5), ca dns să rămână schema implicită
+    }
+
+    @Override
+    public String getDefaultScheme() {
+        return SCHEME;
+    }
+
+    @Override
+    public NameResolver newNameResolver(URI targetUri, NameResolver.Args args) {
+        if (!SCHEME.equals(targetUri.getScheme()))
+            return null;
+        String endpoints = targetUri.getPath().startsWith("/") ? targetUri.getPath().substring(1) : targetUri.getPath();
+        return new NameResolver() {
+            @Override
+            public String getServiceAuthority() {
+                return endpoints.split(",")[0].trim();
+            }
+
+            @Override
+            public void start(Listener2 listener) {
+                List<EquivalentAddressGroup> addresses = new ArrayList<>();
+                try {
+                    for (String endpoint : endpoints.split(",")) {
+                        if (endpoint.isBlank())
+                            continue;
+                        URI address = URI.create("//" + endpoint.trim());
+                        addresses.add(new EquivalentAddressGroup(new InetSocketAddress(address.getHost(), address.getPort())));
+                    }
+                } catch (IllegalArgumentException e) {
+                    listener.onError(Status.UNAVAILABLE.withDescription("Bad endpoint list " + endpoints).withCause(e));
+                    return;
+                }
+                listener.onResult(ResolutionResult.newBuilder().setAddresses(addresses).build());
+            }
+
+            @Override
+            public void shutdown() {
+            }
+        };
+    }
+}
@@ -0,0 +1,93 @@
+package ro.mpp2024.utils;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Where blocking work runs: the gRPC channel's callbacks, the {@code IServices} calls made for
+ * the view, the simulated terminals of the load generator. Chosen by name in the properties
+ * (<code>virtual</code>, <code>pool</code> or <code>direct</code>).
+ */
+public enum ExecutorStrategy {
+    /**
+     * A new virtual thread per task, so thousands of blocked calls cost little memory. Virtual
+     * threads need Java 21; on an older JVM this is an unbounded pool of platform threads,
+     * which is what the client used before.
+     */
+    VIRTUAL,
+    /**
+     * A fixed number of platform threads; tasks beyond that wait in a queue.
+     */
+    POOL,
+    /**
+     * The task runs on the thread that submits it. For the channel that is a transport
+     * thread, so callbacks must not block; for service calls made from the UI it freezes the
+     * UI, so it is only meant for headless use.
+     */
+    DIRECT;
+
+    /**
+     * The largest {@link #POOL} the settings accept.
+     */
+    public static final int MAX_POOL_SIZE = 1024;
+
+    private static final Logger logger = LogManager.getLogger(ExecutorStrategy.class);
+
+    /**
+     * The strategy with that name, ignoring case; the default when the value is missing or
+     * not one of the names.
+     */
+    public static ExecutorStrategy parse(String value, ExecutorStrategy defaultValue) {
+        if (value == null || value.isBlank())
+            return defaultValue;
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            logger.error("Wrong executor {}, expected virtual, pool or direct", value);
+            logger.debug("Using default executor: {}", defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * A new executor of this kind. Platform threads are daemons named
+     * <code>threadName-N</code>, so a pending call never keeps the JVM alive.
+     *
+     * @param poolSize threads of a {@link #POOL}; ignored by the others
+     */
+    public ExecutorService newExecutor(String threadName, int poolSize) {
+        switch (this) {
+            case VIRTUAL -> {
+                try {
+                    return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+                } catch (ReflectiveOperationException e) {
+                    logger.info("Virtual threads need Java 21, running Java {}: {} uses a cached thread pool",
+                                Runtime.version().feature(), threadName);
+                    return Executors.newCachedThreadPool(daemonThreads(threadName));
+                }
+            }
+            case POOL -> {
+                return Executors.newFixedThreadPool(Math.max(1, poolSize), daemonThreads(threadName));
+            }
+            default -> {
+                return MoreExecutors.newDirectExecutorService();
+            }
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String threadName) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, threadName + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
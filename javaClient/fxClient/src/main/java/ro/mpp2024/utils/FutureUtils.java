@@ -0,0 +1,19 @@
+package ro.mpp2024.utils;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+public class FutureUtils {
+
+    private FutureUtils() {}
+
+    // Scoate excepţia reală din învelişurile adăugate de CompletableFuture
+    public static Throwable unwrap(Throwable error) {
+        Throwable current = error;
+        while ((current instanceof CompletionException || current instanceof ExecutionException)
+                && current.getCause() != null) {
+            current = current.getCause();
+        }
+        return current;
+    }
+}
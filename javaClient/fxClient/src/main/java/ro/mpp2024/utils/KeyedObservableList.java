@@ -0,0 +1,257 @@
+package ro.mpp2024.utils;
+
+import javafx.collections.ModifiableObservableListBase;
+import ro.mpp2024.Seat;
+import ro.mpp2024.Trip;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Items of a {@code TableView} that are refreshed by key instead of being replaced. A new list
+ * from the server is {@linkplain #merge merged} in: rows whose key is still there keep their
+ * object (and with it the selection and the scroll position), only the rows whose content
+ * changed are reported as updated, and rows are inserted or removed where the keys say so.
+ * The whole merge reaches the table as a single change.
+ * <p>
+ * Keys must not be {@code null} and must be unique; a merged list with a duplicate key is
+ * rejected. Rows are either updated in place, by
+ * copying the new content into the shown object, or, for immutable items (no copy function),
+ * replaced one by one.
+ *
+ * @param <K> the key, e.g. the trip id or the seat number
+ * @param <T> the row
+ */
+public class KeyedObservableList<K, T> extends ModifiableObservableListBase<T> {
+    private final List<T> items = new ArrayList<>();
+    private final Map<K, T> byKey = new HashMap<>();       // rândurile după cheie; vezi byKey()
+    private boolean byKeyStale;
+    private final Function<? super T, ? extends K> key;
+    private final BiPredicate<? super T, ? super T> sameContent;
+    private final BiConsumer<? super T, ? super T> copyInto;
+
+    /**
+     * @param key         the key of a row
+     * @param sameContent whether a shown row and its new version look the same
+     * @param copyInto    copies the new version into the shown row; {@code null} replaces the
+     *                    row with the new version instead
+     */
+    public KeyedObservableList(Function<? super T, ? extends K> key,
+                               BiPredicate<? super T, ? super T> sameContent,
+                               BiConsumer<? super T, ? super T> copyInto) {
+        this.key = key;
+        this.sameContent = sameContent;
+        this.copyInto = copyInto;
+    }
+
+    /**
+     * Trips by id, updated in place: the seat count, version, destination and departure of a
+     * shown trip are overwritten by its new version.
+     */
+    public static KeyedObservableList<Integer, Trip> ofTrips() {
+        return new KeyedObservableList<>(Trip::getId, KeyedObservableList::sameTrip, KeyedObservableList::copyTrip);
+    }
+
+    /**
+     * Seats by seat number; {@link Seat} is immutable, so a changed seat is replaced.
+     */
+    public static KeyedObservableList<Integer, Seat> ofSeats() {
+        return new KeyedObservableList<>(Seat::getSeatNumber,
+                                         (shown, fresh) -> shown.isHeld() == fresh.isHeld()
+                                                 && shown.getClientName().equals(fresh.getClientName()),
+                                         null);
+    }
+
+    /**
+     * Makes the list show {@code fresh}, in its order, touching only what differs.
+     */
+    public void merge(List<? extends T> fresh) {
+        if (sameKeys(fresh)) {                          // cazul obişnuit: aceleaşi rânduri, alte valori
+            beginChange();
+            try {
+                for (int i = 0; i < fresh.size(); i++) {
+                    update(i, fresh.get(i));
+                }
+            } finally {
+                endChange();
+            }
+            return;
+        }
+        Set<K> freshKeys = new HashSet<>(fresh.size() * 2);
+        for (T item : fresh) {
+            if (!freshKeys.add(key.apply(item)))
+                throw new IllegalArgumentException("Duplicate key " + key.apply(item));
+        }
+        beginChange();
+        try {
+            for (int i = items.size() - 1; i >= 0; i--) {
+                if (!freshKeys.contains(key.apply(items.get(i))))
+                    remove(i);
+            }
+            for (int i = 0; i < fresh.size(); i++) {
+                T item = fresh.get(i);
+                K itemKey = key.apply(item);
+                if (i < items.size() && itemKey.equals(key.apply(items.get(i)))) {
+                    update(i, item);
+                } else if (!byKey().containsKey(itemKey)) {
+                    add(i, item);
+                } else {
+                    add(i, remove(indexOf(byKey().get(itemKey), i + 1)));   // mutat mai sus
+                    update(i, item);
+                }
+            }
+        } finally {
+            endChange();
+        }
+    }
+
+    /**
+     * Adds the rows of a further page at the end; rows already shown are updated in place.
+     */
+    public void append(List<? extends T> page) {
+        beginChange();
+        try {
+            for (T item : page) {
+                T shown = byKey().get(key.apply(item));
+                if (shown == null)
+                    add(item);
+                else
+                    update(indexOf(shown, 0), item);
+            }
+        } finally {
+            endChange();
+        }
+    }
+
+    /**
+     * The row with the key, or {@code null}.
+     */
+    public T findByKey(K rowKey) {
+        return byKey().get(rowKey);
+    }
+
+    /**
+     * Changes the row with the key in place and reports it as updated; for changes that come
+     * one row at a time, such as notifications.
+     *
+     * @return whether the row is shown
+     */
+    public boolean updateByKey(K rowKey, Consumer<? super T> change) {
+        T shown = byKey().get(rowKey);
+        if (shown == null)
+            return false;
+        change.accept(shown);
+        int index = indexOf(shown, 0);
+        beginChange();
+        nextUpdate(index);
+        endChange();
+        return true;
+    }
+
+    private void update(int index, T item) {
+        T shown = items.get(index);
+        if (shown == item || sameContent.test(shown, item))
+            return;
+        if (copyInto == null) {
+            set(index, item);
+        } else {
+            copyInto.accept(shown, item);
+            nextUpdate(index);
+        }
+    }
+
+    private static boolean sameTrip(Trip shown, Trip fresh) {
+        return Objects.equals(shown.getAvailableSeats(), fresh.getAvailableSeats())
+                && Objects.equals(shown.getVersion(), fresh.getVersion())
+                && Objects.equals(shown.getDepartureDate(), fresh.getDepartureDate())
+                && Objects.equals(shown.getDepartureTime(), fresh.getDepartureTime())
+                && Objects.equals(shown.getDestination().getName(), fresh.getDestination().getName());
+    }
+
+    private static void copyTrip(Trip shown, Trip fresh) {
+        shown.setDestination(fresh.getDestination());
+        shown.setDepartureDate(fresh.getDepartureDate());
+        shown.setDepartureTime(fresh.getDepartureTime());
+        shown.setAvailableSeats(fresh.getAvailableSeats());
+        shown.setVersion(fresh.getVersion());
+    }
+
+    private boolean sameKeys(List<? extends T> fresh) {
+        if (fresh.size() != items.size())
+            return false;
+        for (int i = 0; i < fresh.size(); i++) {
+            if (!key.apply(items.get(i)).equals(key.apply(fresh.get(i))))
+                return false;
+        }
+        return true;
+    }
+
+    // căutare după identitate: equals() al rândurilor poate să nu existe sau să compare altceva
+    private int indexOf(T item, int from) {
+        for (int i = from; i < items.size(); i++) {
+            if (items.get(i) == item)
+                return i;
+        }
+        throw new IllegalStateException("Row not in the list: " + item);
+    }
+
+    @Override
+    public T get(int index) {
+        return items.get(index);
+    }
+
+    @Override
+    public int size() {
+        return items.size();
+    }
+
+    @Override
+    protected void doAdd(int index, T element) {
+        K elementKey = key.apply(element);
+        if (byKey().putIfAbsent(elementKey, element) != null)
+            throw new IllegalArgumentException("Duplicate key " + elementKey);
+        items.add(index, element);
+    }
+
+    /**
+     * Does not check for duplicates: a sort sets the rows one by one, so a row can be in two
+     * places for a moment. Setting a row with another key leaves the index to be rebuilt.
+     */
+    @Override
+    protected T doSet(int index, T element) {
+        T previous = items.set(index, element);
+        K elementKey = key.apply(element);
+        if (elementKey.equals(key.apply(previous)))
+            byKey.put(elementKey, element);
+        else
+            byKeyStale = true;
+        return previous;
+    }
+
+    @Override
+    protected T doRemove(int index) {
+        T removed = items.remove(index);
+        byKey.remove(key.apply(removed), removed);
+        return removed;
+    }
+
+    private Map<K, T> byKey() {
+        if (byKeyStale) {
+            byKey.clear();
+            for (T item : items) {
+                byKey.put(key.apply(item), item);
+            }
+            byKeyStale = false;
+        }
+        return byKey;
+    }
+}
@@ -0,0 +1,221 @@
+package ro.mpp2024.utils;
+
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.ForwardingClientCall;
+import io.grpc.ForwardingClientCallListener;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import ro.mpp2024.StreamHealth;
+import ro.mpp2024.proto.NotifySeatsReservedReply;
+import ro.mpp2024.proto.NotifySeatsReservedRequest;
+import ro.mpp2024.proto.TransportCompanyGrpc;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the NotifySeatsReserved stream of an employee open. When the stream fails or the
+ * server ends it, it is opened again after an exponential backoff with full jitter, from the
+ * last notification received, so the server replays what was missed instead of the client
+ * reloading everything. Notifications already seen (same epoch, sequence not newer) are
+ * dropped, which makes a replay that overlaps the old stream harmless.
+ */
+public class NotificationStream implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(NotificationStream.class);
+
+    private final TransportCompanyGrpc.TransportCompanyStub asyncStub;
+    private final int employeeId;
+    private final Consumer<NotifySeatsReservedReply> onNotification;
+    private final Consumer<StreamHealth> onHealth;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final ScheduledExecutorService timer;
+
+    private ClientCallStreamObserver<NotifySeatsReservedRequest> call;
+    private long epoch;
+    private long lastSequence;
+    private int failures;                   // eşecuri consecutive, pentru backoff
+    private int reconnects;
+    private Duration lag = Duration.ZERO;
+    private boolean connected;
+    private boolean closed;
+
+    public NotificationStream(TransportCompanyGrpc.TransportCompanyStub asyncStub, int employeeId,
+                              Consumer<NotifySeatsReservedReply> onNotification, Consumer<StreamHealth> onHealth,
+                              Duration initialBackoff, Duration maxBackoff) {
+        this.asyncStub = asyncStub;
+        this.employeeId = employeeId;
+        this.onNotification = onNotification;
+        this.onHealth = onHealth;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "notification-reconnect");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Opens the stream. Called once after login; later openings are done by the stream itself.
+     */
+    public synchronized void open() {
+        if (closed)
+            return;
+        NotifySeatsReservedRequest request = NotifySeatsReservedRequest.newBuilder()
+                                                                       .setEmployeeId(employeeId)
+                                                                       .setEpoch(epoch)
+                                                                       .setAfterSequence(lastSequence)
+                                                                       .build();
+        Observer observer = new Observer();
+        asyncStub.withInterceptors(new HeadersListener(observer)).notifySeatsReserved(request, observer);
+    }
+
+    /**
+     * Cancels the stream for good, e.g. at logout.
+     */
+    @Override
+    public void close() {
+        ClientCallStreamObserver<NotifySeatsReservedRequest> current;
+        synchronized (this) {
+            closed = true;
+            current = call;
+            call = null;
+        }
+        if (current != null)
+            current.cancel("closed by client", null);
+        timer.shutdownNow();
+    }
+
+    private void connected(Observer observer) {
+        synchronized (this) {
+            if (closed || call != observer.call || connected)
+                return;
+            connected = true;
+            failures = 0;
+        }
+        reportHealth();
+    }
+
+    private synchronized boolean accept(Observer observer, NotifySeatsReservedReply reply) {
+        if (closed || call != observer.call)
+            return false;
+        connected = true;
+        failures = 0;
+        if (reply.getEpoch() == epoch && reply.getSequence() <= lastSequence && !reply.getResyncRequired())
+            return false;
+        epoch = reply.getEpoch();
+        lastSequence = reply.getSequence();
+        if (reply.getSentAtUnixMillis() > 0)
+            lag = Duration.ofMillis(Math.max(0, System.currentTimeMillis() - reply.getSentAtUnixMillis()));
+        return true;
+    }
+
+    private void dropped(Observer observer, Throwable error) {
+        long delayMillis;
+        synchronized (this) {
+            if (closed || call != observer.call)
+                return;
+            call = null;
+            connected = false;
+            reconnects++;
+            long ceiling = Math.min(maxBackoff.toMillis(), initialBackoff.toMillis() << Math.min(failures, 20));
+            failures++;
+            delayMillis = ThreadLocalRandom.current().nextLong(ceiling + 1);
+            if (error != null)
+                logger.warn("Notification stream failed ({}), reconnecting in {} ms",
+                            Status.fromThrowable(error), delayMillis);
+            else
+                logger.info("Notification stream ended by the server, reconnecting in {} ms", delayMillis);
+        }
+        reportHealth();
+        try {
+            timer.schedule(this::open, delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // closed meanwhile
+        }
+    }
+
+    private void reportHealth() {
+        StreamHealth health;
+        synchronized (this) {
+            health = new StreamHealth(connected, reconnects, lag);
+        }
+        onHealth.accept(health);
+    }
+
+    /**
+     * The server sends the response headers as soon as the stream is registered, before any
+     * notification, so they tell when the stream is up.
+     */
+    private class HeadersListener implements ClientInterceptor {
+        private final Observer observer;
+
+        private HeadersListener(Observer observer) {
+            this.observer = observer;
+        }
+
+        @Override
+        public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(MethodDescriptor<ReqT, RespT> method,
+                                                                   CallOptions callOptions, Channel next) {
+            return new ForwardingClientCall.SimpleForwardingClientCall<>(next.newCall(method, callOptions)) {
+                @Override
+                public void start(Listener<RespT> responseListener, Metadata headers) {
+                    super.start(new ForwardingClientCallListener.SimpleForwardingClientCallListener<>(responseListener) {
+                        @Override
+                        public void onHeaders(Metadata responseHeaders) {
+                            connected(observer);
+                            super.onHeaders(responseHeaders);
+                        }
+                    }, headers);
+                }
+            };
+        }
+    }
+
+    private class Observer implements ClientResponseObserver<NotifySeatsReservedRequest, NotifySeatsReservedReply> {
+        private ClientCallStreamObserver<NotifySeatsReservedRequest> call;
+
+        @Override
+        public void beforeStart(ClientCallStreamObserver<NotifySeatsReservedRequest> requestStream) {
+            synchronized (NotificationStream.this) {
+                call = requestStream;
+                NotificationStream.this.call = requestStream;
+            }
+        }
+
+        @Override
+        public void onNext(NotifySeatsReservedReply reply) {
+            if (!accept(this, reply))
+                return;
+            try {
+                onNotification.accept(reply);
+            } finally {
+                reportHealth();
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            dropped(this, t);
+        }
+
+        @Override
+        public void onCompleted() {
+            dropped(this, null);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package ro.mpp2024.utils;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Collapses the refresh requests that arrive within a short window into a single refresh,
+ * and never starts a refresh while the previous one is still running. Requests received
+ * during a running refresh are served by one more refresh after it completes. Once closed,
+ * requests are ignored, as notifications may still arrive while the stream is shut down.
+ */
+public class RefreshScheduler {
+    private static final Logger logger = LogManager.getLogger(RefreshScheduler.class);
+
+    private final Duration window;
+    private final Executor startExecutor;
+    private final Supplier<CompletableFuture<?>> refresh;
+    private final ScheduledExecutorService timer;
+
+    private boolean scheduled;      // un refresh aşteaptă închiderea ferestrei
+    private boolean running;
+    private boolean pendingAfterRun;
+    private boolean closed;
+    private int batchSize;
+
+    private long requested;
+    private long executed;
+    private long coalesced;
+
+    /**
+     * @param window        how long to wait for more requests before refreshing
+     * @param startExecutor where the refresh is started (e.g. {@code Platform::runLater})
+     * @param refresh       the refresh itself; the returned future marks its end
+     */
+    public RefreshScheduler(Duration window, Executor startExecutor, Supplier<CompletableFuture<?>> refresh) {
+        this.window = window;
+        this.startExecutor = startExecutor;
+        this.refresh = refresh;
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "refresh-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public synchronized void requestRefresh() {
+        if (closed)
+            return;
+        requested++;
+        batchSize++;
+        if (scheduled || pendingAfterRun) {
+            coalesced++;
+            return;
+        }
+        if (running) {
+            pendingAfterRun = true;
+            return;
+        }
+        schedule();
+    }
+
+    public synchronized long getRequested() {
+        return requested;
+    }
+
+    public synchronized long getExecuted() {
+        return executed;
+    }
+
+    public synchronized long getCoalesced() {
+        return coalesced;
+    }
+
+    public void close() {
+        synchronized (this) {
+            closed = true;
+        }
+        timer.shutdownNow();
+        logger.info("Refresh stats: requested={}, executed={}, coalesced={}",
+                    getRequested(), getExecuted(), getCoalesced());
+    }
+
+    private void schedule() {
+        scheduled = true;
+        timer.schedule(this::fire, window.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void fire() {
+        synchronized (this) {
+            scheduled = false;
+            running = true;
+            executed++;
+            logger.debug("Refreshing for {} request(s)", batchSize);
+            batchSize = 0;
+        }
+        startExecutor.execute(() -> {
+            CompletableFuture<?> future;
+            try {
+                future = refresh.get();
+            } catch (RuntimeException e) {
+                logger.error("Refresh failed: {}", e.getMessage());
+                future = CompletableFuture.completedFuture(null);
+            }
+            future.whenComplete((ignored, e) -> onRefreshDone());
+        });
+    }
+
+    private synchronized void onRefreshDone() {
+        running = false;
+        if (pendingAfterRun && !closed) {
+            pendingAfterRun = false;
+            schedule();
+        }
+    }
+}
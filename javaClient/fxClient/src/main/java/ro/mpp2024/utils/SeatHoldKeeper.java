@@ -0,0 +1,149 @@
+package ro.mpp2024.utils;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import ro.mpp2024.Employee;
+import ro.mpp2024.IAsyncServices;
+import ro.mpp2024.SeatHold;
+import ro.mpp2024.Trip;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the seats typed into the reservation form held on the server. The hold is placed
+ * when the seats are chosen, renewed at a third of its lease while the form stays open and
+ * released when the seats or the trip change, or when the form is done. If the client goes
+ * away the server lets the hold expire on its own.
+ */
+public class SeatHoldKeeper implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(SeatHoldKeeper.class);
+
+    private final IAsyncServices server;
+    private final Employee employee;
+    private final ScheduledExecutorService timer;
+
+    private SeatHold current;
+    private ScheduledFuture<?> renewal;
+    private int generation;                 // creşte la fiecare schimbare; răspunsurile vechi sunt ignorate
+
+    public SeatHoldKeeper(IAsyncServices server, Employee employee) {
+        this.server = server;
+        this.employee = employee;
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "seat-hold-renewal");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Holds the given seats of the trip instead of whatever was held before. A hold on the
+     * same trip is renewed with the new seats, so seats chosen in both are never let go.
+     * Fails with {@link ro.mpp2024.SeatsConflictException} when some seat is reserved or held
+     * by another office; the previous hold is kept in that case.
+     */
+    public synchronized CompletableFuture<SeatHold> hold(Trip trip, List<Integer> seatNumbers) {
+        if (current != null && Objects.equals(current.getTrip().getId(), trip.getId())
+                && current.getSeatNumbers().equals(seatNumbers)) {
+            return CompletableFuture.completedFuture(current);
+        }
+        int requestGeneration = ++generation;
+        CompletableFuture<SeatHold> request;
+        if (current != null && Objects.equals(current.getTrip().getId(), trip.getId())) {
+            request = server.renewHold(current, seatNumbers, employee);
+        } else {
+            releaseCurrent();
+            request = server.holdSeats(trip, seatNumbers, employee);
+        }
+        return request.whenComplete((hold, e) -> {
+            if (hold != null)
+                accept(requestGeneration, hold);
+        });
+    }
+
+    /**
+     * Lets go of the held seats, if any.
+     */
+    public synchronized void release() {
+        generation++;
+        releaseCurrent();
+    }
+
+    /**
+     * Forgets the hold without telling the server, e.g. after its seats were reserved (the
+     * server drops the reserved seats from the hold itself).
+     */
+    public synchronized void forget() {
+        generation++;
+        cancelRenewal();
+        current = null;
+    }
+
+    @Override
+    public void close() {
+        release();
+        timer.shutdownNow();
+    }
+
+    private synchronized void accept(int requestGeneration, SeatHold hold) {
+        if (requestGeneration != generation) {
+            // the form changed while the request was in flight
+            server.releaseHold(hold, employee);
+            return;
+        }
+        current = hold;
+        scheduleRenewal(hold.getLease());
+    }
+
+    private void scheduleRenewal(Duration lease) {
+        cancelRenewal();
+        long delay = Math.max(1, lease.toMillis() / 3);
+        renewal = timer.schedule(this::renew, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void renew() {
+        if (current == null)
+            return;
+        int renewGeneration = generation;
+        SeatHold hold = current;
+        server.renewHold(hold, hold.getSeatNumbers(), employee).whenComplete((renewed, e) -> {
+            synchronized (this) {
+                if (renewGeneration != generation)
+                    return;
+                if (e != null) {
+                    logger.warn("Could not renew {}: {}", hold, FutureUtils.unwrap(e).getMessage());
+                    current = null;
+                    return;
+                }
+                current = renewed;
+                scheduleRenewal(renewed.getLease());
+            }
+        });
+    }
+
+    private void releaseCurrent() {
+        cancelRenewal();
+        if (current != null) {
+            SeatHold hold = current;
+            current = null;
+            server.releaseHold(hold, employee).exceptionally(e -> {
+                logger.debug("Could not release {}: {}", hold, FutureUtils.unwrap(e).getMessage());
+                return null;
+            });
+        }
+    }
+
+    private void cancelRenewal() {
+        if (renewal != null) {
+            renewal.cancel(false);
+            renewal = null;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package ro.mpp2024.utils;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import ro.mpp2024.IAsyncServices;
+import ro.mpp2024.TripWithSeats;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Loads the seat maps of the trips the agent is likely to open next (the selected row and its
+ * neighbours, or the row under the mouse) in the background, so Search can show them without
+ * waiting for the server. At most {@code maxInFlight} loads run at once; the trips asked for
+ * meanwhile wait in a queue that every new request replaces, as the agent has moved on.
+ * <p>
+ * The last {@code capacity} maps (loaded or still loading) are kept, the least recently asked
+ * for dropped first. A map is handed out once, by {@link #take}, and is dropped when the seats
+ * of its trip change, so a stale one is never shown. Maps that are dropped without being
+ * handed out are counted as wasted.
+ */
+public class SeatPrefetcher implements SeatPrefetcherMBean {
+    private static final Logger logger = LogManager.getLogger(SeatPrefetcher.class);
+
+    private final IAsyncServices server;
+    private final int maxInFlight;
+    private final Map<Integer, CompletableFuture<TripWithSeats>> prefetched;
+    private final Deque<Integer> waiting = new ArrayDeque<>();
+    private volatile int inFlight;
+
+    private final LongAdder prefetches = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder wasted = new LongAdder();
+
+    public SeatPrefetcher(IAsyncServices server, int maxInFlight, int capacity) {
+        if (maxInFlight < 1 || capacity < 1)
+            throw new IllegalArgumentException("Prefetching needs at least one load and one cached map");
+        this.server = server;
+        this.maxInFlight = maxInFlight;
+        this.prefetched = new LinkedHashMap<>(capacity * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, CompletableFuture<TripWithSeats>> eldest) {
+                if (size() <= capacity)
+                    return false;
+                wasted.increment();
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Loads the seat maps of the trips, most likely first, instead of those still waiting.
+     * Maps already kept (or loading) are not loaded again.
+     */
+    public synchronized void prefetch(List<Integer> tripIds) {
+        waiting.clear();
+        for (Integer tripId : tripIds) {
+            if (tripId != null && prefetched.get(tripId) == null)      // get: recent din nou
+                waiting.add(tripId);
+        }
+        startWaiting();
+    }
+
+    /**
+     * The prefetched seat map of the trip, loaded or still loading, or {@code null} when
+     * there is none and it must be loaded now.
+     */
+    public synchronized CompletableFuture<TripWithSeats> take(int tripId) {
+        CompletableFuture<TripWithSeats> found = prefetched.remove(tripId);
+        if (found == null || found.isCompletedExceptionally()) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return found;
+    }
+
+    /**
+     * Drops the map of a trip whose seats changed.
+     */
+    public synchronized void invalidate(int tripId) {
+        if (prefetched.remove(tripId) != null)
+            wasted.increment();
+    }
+
+    private void startWaiting() {
+        while (inFlight < maxInFlight && !waiting.isEmpty()) {
+            int tripId = waiting.poll();
+            if (prefetched.containsKey(tripId))
+                continue;
+            CompletableFuture<TripWithSeats> load = server.getTripWithSeatsById(tripId);
+            prefetched.put(tripId, load);
+            prefetches.increment();
+            inFlight++;
+            load.whenComplete((found, e) -> loaded(tripId, load, e));
+        }
+    }
+
+    private synchronized void loaded(int tripId, CompletableFuture<TripWithSeats> load, Throwable error) {
+        inFlight--;
+        if (error != null) {
+            logger.debug("Could not prefetch the seats of trip {}: {}", tripId, FutureUtils.unwrap(error).getMessage());
+            if (prefetched.remove(tripId, load))
+                wasted.increment();
+        }
+        startWaiting();
+    }
+
+    @Override
+    public long getPrefetches() {
+        return prefetches.sum();
+    }
+
+    @Override
+    public long getHits() {
+        return hits.sum();
+    }
+
+    @Override
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    @Override
+    public long getWasted() {
+        return wasted.sum();
+    }
+
+    @Override
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long lookups = hitCount + misses.sum();
+        return lookups == 0 ? 0 : (double) hitCount / lookups;
+    }
+
+    @Override
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d prefetched, %d hits, %d misses (hit rate %.0f%%), %d wasted, %d in flight",
+                             getPrefetches(), getHits(), getMisses(), getHitRate() * 100, getWasted(), getInFlight());
+    }
+}
@@ -0,0 +1,18 @@
+package ro.mpp2024.utils;
+
+/**
+ * JMX view of a {@link SeatPrefetcher}, counted since the client started.
+ */
+public interface SeatPrefetcherMBean {
+    long getPrefetches();
+
+    long getHits();
+
+    long getMisses();
+
+    long getWasted();
+
+    double getHitRate();
+
+    int getInFlight();
+}
@@ -0,0 +1,72 @@
+package ro.mpp2024.utils;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * What the trips table is filtered by while the agent types, answered locally by a
+ * {@link TripSearchIndex}. {@code null} (or 0 for the seat count) means the filter is not
+ * applied; the bounds are inclusive.
+ */
+public class TripFilter {
+    private final String destinationPrefix;
+    private final LocalDate dateFrom;
+    private final LocalDate dateTo;
+    private final LocalTime timeFrom;
+    private final LocalTime timeTo;
+    private final int minAvailableSeats;
+
+    public TripFilter(String destinationPrefix, LocalDate dateFrom, LocalDate dateTo,
+                      LocalTime timeFrom, LocalTime timeTo, int minAvailableSeats) {
+        this.destinationPrefix = destinationPrefix == null || destinationPrefix.isBlank() ? null : destinationPrefix.trim();
+        this.dateFrom = dateFrom;
+        this.dateTo = dateTo;
+        this.timeFrom = timeFrom;
+        this.timeTo = timeTo;
+        this.minAvailableSeats = Math.max(0, minAvailableSeats);
+    }
+
+    /**
+     * Whether nothing is filtered.
+     */
+    public boolean isEmpty() {
+        return destinationPrefix == null && dateFrom == null && dateTo == null
+                && timeFrom == null && timeTo == null && minAvailableSeats == 0;
+    }
+
+    public String getDestinationPrefix() {
+        return destinationPrefix;
+    }
+
+    public LocalDate getDateFrom() {
+        return dateFrom;
+    }
+
+    public LocalDate getDateTo() {
+        return dateTo;
+    }
+
+    public LocalTime getTimeFrom() {
+        return timeFrom;
+    }
+
+    public LocalTime getTimeTo() {
+        return timeTo;
+    }
+
+    public int getMinAvailableSeats() {
+        return minAvailableSeats;
+    }
+
+    @Override
+    public String toString() {
+        return "TripFilter{" +
+                "destinationPrefix='" + destinationPrefix + '\'' +
+                ", dateFrom=" + dateFrom +
+                ", dateTo=" + dateTo +
+                ", timeFrom=" + timeFrom +
+                ", timeTo=" + timeTo +
+                ", minAvailableSeats=" + minAvailableSeats +
+                '}';
+    }
+}
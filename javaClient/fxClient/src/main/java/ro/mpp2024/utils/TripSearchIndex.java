@@ -0,0 +1,434 @@
+package ro.mpp2024.utils;
+
+import ro.mpp2024.Destination;
+import ro.mpp2024.Trip;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntToLongFunction;
+
+/**
+ * The whole trip catalog kept in memory, so the trips table can be filtered and destinations
+ * completed as the agent types, without a call per keystroke.
+ * <p>
+ * Trips are kept sorted by destination (ignoring case), then departure, so the trips of a
+ * destination prefix are one contiguous range found by binary search. Two more sorted
+ * orders cover departure ranges and departure times of day. A query walks the smallest of the
+ * ranges its filters select and checks the other filters on each trip there; seat counts are
+ * only checked, as they change with every reservation.
+ * <p>
+ * The index can be built on any thread; after that it is used from one thread (the FX
+ * thread). Seat counts are kept current with {@link #updateSeats}, and added, removed or
+ * rescheduled trips with {@link #apply}, so a change log keeps it current without reading the
+ * catalog again.
+ */
+public class TripSearchIndex {
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    // poziţiile 0..n-1 sunt în ordinea destinaţiei, apoi a plecării
+    private Trip[] trips;
+    private String[] destinationKeys;
+    private long[] departures;                              // minute de la 1970-01-01
+    private int[] availableSeats;
+    private Map<Integer, Integer> positionsById;
+
+    private int[] byDeparture;
+    private long[] sortedDepartures;
+    private int[] byTimeOfDay;
+    private int[] sortedTimesOfDay;
+
+    private TripSearchIndex(Trip[] trips, String[] destinationKeys, long[] departures) {
+        int count = trips.length;
+        install(trips, destinationKeys, departures,
+                sortedPositions(count, Comparator.comparingLong(position -> departures[position])),
+                sortedPositions(count, Comparator.comparingInt(position -> timeOfDay(departures[position]))));
+    }
+
+    private void install(Trip[] trips, String[] destinationKeys, long[] departures, int[] byDeparture, int[] byTimeOfDay) {
+        int count = trips.length;
+        this.trips = trips;
+        this.destinationKeys = destinationKeys;
+        this.departures = departures;
+        this.availableSeats = new int[count];
+        this.positionsById = new HashMap<>(count * 2);
+        for (int position = 0; position < count; position++) {
+            Integer seats = trips[position].getAvailableSeats();
+            availableSeats[position] = seats == null ? 0 : seats;
+            positionsById.put(trips[position].getId(), position);
+        }
+
+        this.byDeparture = byDeparture;
+        this.byTimeOfDay = byTimeOfDay;
+        sortedDepartures = new long[count];
+        sortedTimesOfDay = new int[count];
+        for (int i = 0; i < count; i++) {
+            sortedDepartures[i] = departures[byDeparture[i]];
+            sortedTimesOfDay[i] = timeOfDay(departures[byTimeOfDay[i]]);
+        }
+    }
+
+    /**
+     * An index over copies of the trips, so later changes to the catalog's objects (e.g. by a
+     * cache) do not reach it unnoticed.
+     */
+    public static TripSearchIndex build(List<Trip> catalog) {
+        int count = catalog.size();
+        Trip[] copies = new Trip[count];
+        String[] keys = new String[count];
+        long[] minutes = new long[count];
+        for (int i = 0; i < count; i++) {
+            copies[i] = copy(catalog.get(i));
+            keys[i] = destinationKey(copies[i]);
+            minutes[i] = departure(copies[i]);
+        }
+        int[] order = sortedPositions(count, Comparator.<Integer, String>comparing(i -> keys[i])
+                                                       .thenComparingLong(i -> minutes[i])
+                                                       .thenComparing(i -> copies[i].getId()));
+        Trip[] trips = new Trip[count];
+        String[] destinationKeys = new String[count];
+        long[] departures = new long[count];
+        for (int position = 0; position < count; position++) {
+            trips[position] = copies[order[position]];
+            destinationKeys[position] = keys[order[position]];
+            departures[position] = minutes[order[position]];
+        }
+        return new TripSearchIndex(trips, destinationKeys, departures);
+    }
+
+    public int size() {
+        return trips.length;
+    }
+
+    public boolean contains(int tripId) {
+        return positionsById.containsKey(tripId);
+    }
+
+    /**
+     * The trips that pass the filter, by destination and then departure; at most
+     * {@code limit} of them. The trips are copies, free to be changed by the caller.
+     */
+    public List<Trip> search(TripFilter filter, int limit) {
+        int fromPosition = 0;
+        int toPosition = trips.length;
+        if (filter.getDestinationPrefix() != null) {
+            String prefix = filter.getDestinationPrefix().toLowerCase(Locale.ROOT);
+            fromPosition = lowerBound(destinationKeys, prefix);
+            toPosition = lowerBound(destinationKeys, prefix + Character.MAX_VALUE);
+        }
+        long departureFrom = filter.getDateFrom() == null ? Long.MIN_VALUE : filter.getDateFrom().toEpochDay() * MINUTES_PER_DAY;
+        long departureTo = filter.getDateTo() == null ? Long.MAX_VALUE : (filter.getDateTo().toEpochDay() + 1) * MINUTES_PER_DAY - 1;
+        int timeFrom = filter.getTimeFrom() == null ? 0 : filter.getTimeFrom().toSecondOfDay() / 60;
+        int timeTo = filter.getTimeTo() == null ? MINUTES_PER_DAY - 1 : filter.getTimeTo().toSecondOfDay() / 60;
+        Query query = new Query(fromPosition, toPosition, departureFrom, departureTo, timeFrom, timeTo,
+                                filter.getMinAvailableSeats());
+
+        int[] candidates = null;                    // null: intervalul de destinaţii
+        int candidatesFrom = fromPosition;
+        int candidatesTo = toPosition;
+        if (filter.getDateFrom() != null || filter.getDateTo() != null) {
+            int from = lowerBound(sortedDepartures, departureFrom);
+            int to = Math.max(from, lowerBound(sortedDepartures, departureTo == Long.MAX_VALUE ? departureTo : departureTo + 1));
+            if (to - from < candidatesTo - candidatesFrom) {
+                candidates = byDeparture;
+                candidatesFrom = from;
+                candidatesTo = to;
+            }
+        }
+        if (filter.getTimeFrom() != null || filter.getTimeTo() != null) {
+            int from = lowerBound(sortedTimesOfDay, timeFrom);
+            int to = Math.max(from, lowerBound(sortedTimesOfDay, timeTo + 1));   // capete inversate: nimic
+            if (to - from < candidatesTo - candidatesFrom) {
+                candidates = byTimeOfDay;
+                candidatesFrom = from;
+                candidatesTo = to;
+            }
+        }
+
+        List<Trip> found = new ArrayList<>(Math.min(limit, candidatesTo - candidatesFrom));
+        if (candidates == null) {
+            for (int position = candidatesFrom; position < candidatesTo && found.size() < limit; position++) {
+                if (query.matches(position))
+                    found.add(copy(trips[position]));
+            }
+            return found;
+        }
+        // în altă ordine decât cea a rezultatului: le sortăm, apoi tăiem
+        int[] matches = new int[candidatesTo - candidatesFrom];
+        int matchCount = 0;
+        for (int i = candidatesFrom; i < candidatesTo; i++) {
+            if (query.matches(candidates[i]))
+                matches[matchCount++] = candidates[i];
+        }
+        Arrays.sort(matches, 0, matchCount);
+        for (int i = 0; i < Math.min(matchCount, limit); i++) {
+            found.add(copy(trips[matches[i]]));
+        }
+        return found;
+    }
+
+    /**
+     * The destinations starting with the prefix (ignoring case), in order, at most
+     * {@code limit} of them; for completing the destination field.
+     */
+    public List<String> destinations(String prefix, int limit) {
+        String key = prefix == null ? "" : prefix.trim().toLowerCase(Locale.ROOT);
+        int to = lowerBound(destinationKeys, key + Character.MAX_VALUE);
+        List<String> names = new ArrayList<>();
+        for (int position = lowerBound(destinationKeys, key); position < to && names.size() < limit;
+             position = lowerBound(destinationKeys, destinationKeys[position] + '\0')) {   // următoarea destinaţie
+            names.add(trips[position].getDestination().getName());
+        }
+        return names;
+    }
+
+    /**
+     * Records a new seat count (and version, when positive) of a trip. A count whose version is
+     * not newer than the one indexed is ignored: it arrived after a later change.
+     *
+     * @return whether the trip is in the index
+     */
+    public boolean updateSeats(int tripId, int seats, long version) {
+        Integer position = positionsById.get(tripId);
+        if (position == null)
+            return false;
+        Long indexed = trips[position].getVersion();
+        if (version > 0 && indexed != null && version <= indexed)
+            return true;
+        availableSeats[position] = seats;
+        trips[position].setAvailableSeats(seats);
+        if (version > 0)
+            trips[position].setVersion(version);
+        return true;
+    }
+
+    /**
+     * Brings the index up to date with what a change log reported: trips it does not hold are
+     * inserted, removed ones dropped and the seat counts of the others updated. A trip whose
+     * destination or departure changed is moved to its new place. The sorted orders are merged
+     * rather than sorted again, so this costs one pass over the index plus the changes.
+     *
+     * @param changed    the current state of the changed trips
+     * @param removedIds the trips no longer in the catalog
+     */
+    public void apply(List<Trip> changed, Collection<Integer> removedIds) {
+        Set<Integer> removed = new HashSet<>(removedIds);
+        boolean[] dropped = new boolean[trips.length];
+        boolean anyDropped = false;
+        for (Integer tripId : removed) {
+            Integer position = positionsById.get(tripId);
+            if (position != null) {
+                dropped[position] = true;
+                anyDropped = true;
+            }
+        }
+        Map<Integer, Trip> inserted = new LinkedHashMap<>();
+        for (Trip trip : changed) {
+            if (removed.contains(trip.getId()))
+                continue;
+            Integer position = positionsById.get(trip.getId());
+            if (position != null && !dropped[position] && destinationKeys[position].equals(destinationKey(trip))
+                    && departures[position] == departure(trip)) {
+                if (trip.getAvailableSeats() != null)
+                    updateSeats(trip.getId(), trip.getAvailableSeats(), trip.getVersion() == null ? 0 : trip.getVersion());
+                continue;
+            }
+            if (position != null) {             // altă destinaţie sau plecare: o mutăm
+                dropped[position] = true;
+                anyDropped = true;
+            }
+            inserted.put(trip.getId(), copy(trip));
+        }
+        if (anyDropped || !inserted.isEmpty())
+            merge(dropped, new ArrayList<>(inserted.values()));
+    }
+
+    // rândurile rămase sunt deja în ordine; cele noi se sortează şi se interclasează cu ele
+    private void merge(boolean[] dropped, List<Trip> inserted) {
+        inserted.sort(Comparator.comparing(TripSearchIndex::destinationKey)
+                                .thenComparingLong(TripSearchIndex::departure)
+                                .thenComparing(Trip::getId));
+        int kept = 0;
+        for (boolean isDropped : dropped) {
+            if (!isDropped)
+                kept++;
+        }
+        int count = kept + inserted.size();
+        Trip[] newTrips = new Trip[count];
+        String[] newKeys = new String[count];
+        long[] newDepartures = new long[count];
+        int[] movedTo = new int[trips.length];          // poziţia nouă a fiecărei poziţii vechi; -1 = scoasă
+        Arrays.fill(movedTo, -1);
+        int[] insertedAt = new int[inserted.size()];
+        int old = 0;
+        int added = 0;
+        for (int position = 0; position < count; position++) {
+            while (old < trips.length && dropped[old])
+                old++;
+            if (added == inserted.size() || old < trips.length && before(old, inserted.get(added))) {
+                newTrips[position] = trips[old];
+                newKeys[position] = destinationKeys[old];
+                newDepartures[position] = departures[old];
+                movedTo[old++] = position;
+            } else {
+                Trip trip = inserted.get(added);
+                newTrips[position] = trip;
+                newKeys[position] = destinationKey(trip);
+                newDepartures[position] = departure(trip);
+                insertedAt[added++] = position;
+            }
+        }
+        install(newTrips, newKeys, newDepartures,
+                mergeOrder(byDeparture, movedTo, insertedAt, count, position -> newDepartures[position]),
+                mergeOrder(byTimeOfDay, movedTo, insertedAt, count, position -> timeOfDay(newDepartures[position])));
+    }
+
+    private boolean before(int position, Trip trip) {
+        int byDestination = destinationKeys[position].compareTo(destinationKey(trip));
+        if (byDestination != 0)
+            return byDestination < 0;
+        int byDeparture = Long.compare(departures[position], departure(trip));
+        if (byDeparture != 0)
+            return byDeparture < 0;
+        return trips[position].getId() <= trip.getId();
+    }
+
+    /**
+     * An order of the new positions by {@code value}: the old order with the positions moved
+     * and the dropped ones left out, interleaved with the inserted positions.
+     */
+    private static int[] mergeOrder(int[] oldOrder, int[] movedTo, int[] insertedAt, int count, IntToLongFunction value) {
+        int[] fresh = Arrays.stream(insertedAt).boxed()
+                            .sorted(Comparator.comparingLong(value::applyAsLong))
+                            .mapToInt(Integer::intValue)
+                            .toArray();
+        int[] merged = new int[count];
+        int old = 0;
+        int added = 0;
+        for (int i = 0; i < count; i++) {
+            while (old < oldOrder.length && movedTo[oldOrder[old]] < 0)
+                old++;
+            if (added == fresh.length
+                    || old < oldOrder.length && value.applyAsLong(movedTo[oldOrder[old]]) <= value.applyAsLong(fresh[added]))
+                merged[i] = movedTo[oldOrder[old++]];
+            else
+                merged[i] = fresh[added++];
+        }
+        return merged;
+    }
+
+    private class Query {
+        private final int fromPosition;
+        private final int toPosition;
+        private final long departureFrom;
+        private final long departureTo;
+        private final int timeFrom;
+        private final int timeTo;
+        private final int minAvailableSeats;
+
+        private Query(int fromPosition, int toPosition, long departureFrom, long departureTo,
+                      int timeFrom, int timeTo, int minAvailableSeats) {
+            this.fromPosition = fromPosition;
+            this.toPosition = toPosition;
+            this.departureFrom = departureFrom;
+            this.departureTo = departureTo;
+            this.timeFrom = timeFrom;
+            this.timeTo = timeTo;
+            this.minAvailableSeats = minAvailableSeats;
+        }
+
+        private boolean matches(int position) {
+            long departure = departures[position];
+            int time = timeOfDay(departure);
+            return position >= fromPosition && position < toPosition
+                    && departure >= departureFrom && departure <= departureTo
+                    && time >= timeFrom && time <= timeTo
+                    && availableSeats[position] >= minAvailableSeats;
+        }
+    }
+
+    private static Trip copy(Trip trip) {
+        Trip copy = new Trip(trip.getId(), trip.getDestination(), trip.getDepartureDate(), trip.getDepartureTime(),
+                             trip.getAvailableSeats());
+        copy.setVersion(trip.getVersion());
+        return copy;
+    }
+
+    private static String destinationKey(Trip trip) {
+        Destination destination = trip.getDestination();
+        return destination == null || destination.getName() == null ? "" : destination.getName().toLowerCase(Locale.ROOT);
+    }
+
+    private static long departure(Trip trip) {
+        LocalDate date = trip.getDepartureDate();
+        LocalTime time = trip.getDepartureTime();
+        return (date == null ? 0 : date.toEpochDay() * MINUTES_PER_DAY) + (time == null ? 0 : time.toSecondOfDay() / 60);
+    }
+
+    private static int timeOfDay(long departure) {
+        return (int) Math.floorMod(departure, (long) MINUTES_PER_DAY);
+    }
+
+    private static int[] sortedPositions(int count, Comparator<Integer> order) {
+        Integer[] positions = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            positions[i] = i;
+        }
+        Arrays.sort(positions, order);
+        int[] sorted = new int[count];
+        for (int i = 0; i < count; i++) {
+            sorted[i] = positions[i];
+        }
+        return sorted;
+    }
+
+    // primul index cu valoarea >= key
+    private static int lowerBound(String[] sorted, String key) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sorted[middle].compareTo(key) < 0)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+
+    private static int lowerBound(long[] sorted, long key) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sorted[middle] < key)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+
+    private static int lowerBound(int[] sorted, int key) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sorted[middle] < key)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+}
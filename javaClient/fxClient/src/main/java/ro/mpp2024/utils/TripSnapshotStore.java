@@ -0,0 +1,413 @@
+package ro.mpp2024.utils;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import ro.mpp2024.Destination;
+import ro.mpp2024.Seat;
+import ro.mpp2024.SeatMap;
+import ro.mpp2024.SeatsReservedEvent;
+import ro.mpp2024.Trip;
+import ro.mpp2024.TripChanges;
+import ro.mpp2024.TripPage;
+import ro.mpp2024.TripQuery;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The last trips and seat maps the client saw, kept in a local SQLite file so the next start
+ * can show them before the server answers and the terminal can still browse them while the
+ * server is unreachable. Writes are queued on a background thread, so saving never slows
+ * down a call; reads run on the caller's thread.
+ * <p>
+ * It also keeps the change-log position the stored trips are up to date with (see
+ * {@link #savePosition(TripChanges)}), so the next start only asks the server for what changed
+ * after it.
+ */
+public class TripSnapshotStore implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(TripSnapshotStore.class);
+    private static final int SCHEMA_VERSION = 2;     // 2: locuri libere opţionale, poziţia în jurnal
+
+    private final Connection connection;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "trip-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private TripSnapshotStore(Connection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Opens (or creates) the snapshot file. Returns empty when it cannot be used, e.g. no
+     * SQLite driver or a read-only home directory; the client then simply works without it.
+     */
+    public static Optional<TripSnapshotStore> open(Path file) {
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null)
+                Files.createDirectories(parent);
+            Connection connection = DriverManager.getConnection("jdbc:sqlite:" + file.toAbsolutePath());
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("PRAGMA journal_mode=WAL");
+                statement.execute("PRAGMA busy_timeout=2000");   // alt client de pe acelaşi calculator poate scrie
+                try (ResultSet version = statement.executeQuery("PRAGMA user_version")) {
+                    if (version.next() && version.getInt(1) < SCHEMA_VERSION) {
+                        // e doar o copie locală: o luăm de la capăt în loc să migrăm
+                        statement.execute("DROP TABLE IF EXISTS trips");
+                        statement.execute("DROP TABLE IF EXISTS seats");
+                        statement.execute("PRAGMA user_version=" + SCHEMA_VERSION);
+                    }
+                }
+                statement.execute("CREATE TABLE IF NOT EXISTS trips (" +
+                                  "id INTEGER PRIMARY KEY, destination TEXT NOT NULL, " +
+                                  "epoch_day INTEGER NOT NULL, second_of_day INTEGER NOT NULL, " +
+                                  "available_seats INTEGER, version INTEGER, saved_at INTEGER NOT NULL)");
+                statement.execute("CREATE TABLE IF NOT EXISTS seats (" +
+                                  "trip_id INTEGER NOT NULL, seat_number INTEGER NOT NULL, client_name TEXT, " +
+                                  "PRIMARY KEY (trip_id, seat_number))");
+                statement.execute("CREATE TABLE IF NOT EXISTS sync_position (" +
+                                  "id INTEGER PRIMARY KEY CHECK (id = 0), epoch INTEGER NOT NULL, sequence INTEGER NOT NULL)");
+                statement.execute("CREATE INDEX IF NOT EXISTS trips_by_key ON trips (destination, epoch_day, second_of_day)");
+            }
+            logger.info("Trip snapshot at {}", file.toAbsolutePath());
+            return Optional.of(new TripSnapshotStore(connection));
+        } catch (Exception e) {
+            logger.warn("Trip snapshot disabled: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /* ======================== SCRIERE ======================== */
+
+    public void saveTrips(List<Trip> trips) {
+        if (trips.isEmpty())
+            return;
+        List<Trip> copy = List.copyOf(trips);
+        write(() -> insertTrips(copy));
+    }
+
+    /**
+     * Replaces the stored catalog with the given one, the whole list of trips: trips no longer
+     * in it are dropped together with their seat maps.
+     */
+    public void replaceTrips(List<Trip> trips) {
+        List<Trip> copy = List.copyOf(trips);
+        write(() -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("DELETE FROM trips");
+                insertTrips(copy);
+                statement.execute("DELETE FROM seats WHERE trip_id NOT IN (SELECT id FROM trips)");
+            }
+        });
+    }
+
+    /**
+     * Replaces the stored seat map of a trip. Holds are not stored: they are short and would be
+     * stale by the time the snapshot is read.
+     */
+    public void saveSeats(int tripId, List<Seat> seats) {
+        List<Seat> copy = List.copyOf(seats);
+        write(() -> {
+            try (PreparedStatement delete = connection.prepareStatement("DELETE FROM seats WHERE trip_id = ?");
+                 PreparedStatement insert = connection.prepareStatement(
+                         "INSERT INTO seats (trip_id, seat_number, client_name) VALUES (?, ?, ?)")) {
+                delete.setInt(1, tripId);
+                delete.executeUpdate();
+                for (Seat seat : copy) {
+                    insert.setInt(1, tripId);
+                    insert.setInt(2, seat.getSeatNumber());
+                    insert.setString(3, seat.isHeld() || seat.getClientName() == null ? "-" : seat.getClientName());
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+        });
+    }
+
+    /**
+     * Applies a reservation delta to the stored trip and, if it is stored, its seat map. The
+     * seat count is left alone when the stored trip is already at the event's version or later.
+     */
+    public void applyEvent(SeatsReservedEvent event) {
+        write(() -> {
+            try (PreparedStatement trip = connection.prepareStatement(
+                         "UPDATE trips SET available_seats = ?, version = COALESCE(?, version) " +
+                         "WHERE id = ? AND (? IS NULL OR version IS NULL OR version < ?)");
+                 PreparedStatement seat = connection.prepareStatement(
+                         "UPDATE seats SET client_name = ? WHERE trip_id = ? AND seat_number = ?")) {
+                trip.setInt(1, event.getAvailableSeats());
+                if (event.getVersion() > 0)
+                    trip.setLong(2, event.getVersion());
+                else
+                    trip.setNull(2, Types.INTEGER);
+                trip.setInt(3, event.getTripId());
+                if (event.getVersion() > 0) {
+                    trip.setLong(4, event.getVersion());
+                    trip.setLong(5, event.getVersion());
+                } else {
+                    trip.setNull(4, Types.INTEGER);
+                    trip.setNull(5, Types.INTEGER);
+                }
+                trip.executeUpdate();               // un eveniment mai vechi decât rândul salvat nu schimbă nimic
+                for (int seatNumber : event.getSeatNumbers()) {
+                    seat.setString(1, event.getClientName());
+                    seat.setInt(2, event.getTripId());
+                    seat.setInt(3, seatNumber);
+                    seat.addBatch();
+                }
+                seat.executeBatch();
+            }
+        });
+    }
+
+    public void removeTrips(List<Integer> tripIds) {
+        if (tripIds.isEmpty())
+            return;
+        List<Integer> copy = List.copyOf(tripIds);
+        write(() -> {
+            try (PreparedStatement trips = connection.prepareStatement("DELETE FROM trips WHERE id = ?");
+                 PreparedStatement seats = connection.prepareStatement("DELETE FROM seats WHERE trip_id = ?")) {
+                for (int tripId : copy) {
+                    trips.setInt(1, tripId);
+                    trips.addBatch();
+                    seats.setInt(1, tripId);
+                    seats.addBatch();
+                }
+                trips.executeBatch();
+                seats.executeBatch();
+            }
+        });
+    }
+
+    /**
+     * Remembers the change-log position the stored trips are up to date with. Queued after the
+     * writes already requested, so it only becomes visible once the trips it covers are saved.
+     */
+    public void savePosition(TripChanges position) {
+        long epoch = position.getEpoch();
+        long sequence = position.getSequence();
+        write(() -> {
+            try (PreparedStatement upsert = connection.prepareStatement(
+                    "INSERT OR REPLACE INTO sync_position (id, epoch, sequence) VALUES (0, ?, ?)")) {
+                upsert.setLong(1, epoch);
+                upsert.setLong(2, sequence);
+                upsert.executeUpdate();
+            }
+        });
+    }
+
+    /* ======================== CITIRE ======================== */
+
+    /**
+     * A page of stored trips, filtered and ordered by id like the server's listing.
+     */
+    public synchronized TripPage loadTrips(TripQuery query) throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT * FROM trips WHERE id > ?");
+        List<Object> args = new ArrayList<>();
+        args.add(query.getPageToken() == null ? 0 : Integer.parseInt(query.getPageToken()));
+        if (query.getMinAvailableSeats() > 0) {      // fără prag, şi cursele cu locuri necunoscute
+            sql.append(" AND available_seats >= ?");
+            args.add(query.getMinAvailableSeats());
+        }
+        if (query.getDestinationPrefix() != null && !query.getDestinationPrefix().isEmpty()) {
+            sql.append(" AND destination LIKE ? ESCAPE '\\'");
+            args.add(query.getDestinationPrefix().replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%");
+        }
+        if (query.getDateFrom() != null) {
+            sql.append(" AND epoch_day >= ?");
+            args.add(query.getDateFrom().toEpochDay());
+        }
+        if (query.getDateTo() != null) {
+            sql.append(" AND epoch_day <= ?");
+            args.add(query.getDateTo().toEpochDay());
+        }
+        int pageSize = query.getPageSize() > 0 ? query.getPageSize() : 100;
+        sql.append(" ORDER BY id LIMIT ?");
+        args.add(pageSize + 1);                 // unul în plus ca să ştim dacă mai urmează o pagină
+
+        try (PreparedStatement select = connection.prepareStatement(sql.toString())) {
+            for (int i = 0; i < args.size(); i++) {
+                select.setObject(i + 1, args.get(i));
+            }
+            List<Trip> trips = readTrips(select);
+            if (trips.size() <= pageSize)
+                return new TripPage(trips, null);
+            List<Trip> page = new ArrayList<>(trips.subList(0, pageSize));
+            return new TripPage(page, String.valueOf(page.get(pageSize - 1).getId()));
+        }
+    }
+
+    public synchronized List<Trip> loadAllTrips() throws SQLException {
+        try (PreparedStatement select = connection.prepareStatement("SELECT * FROM trips ORDER BY id")) {
+            return readTrips(select);
+        }
+    }
+
+    public synchronized Optional<Trip> loadTrip(int tripId) throws SQLException {
+        try (PreparedStatement select = connection.prepareStatement("SELECT * FROM trips WHERE id = ?")) {
+            select.setInt(1, tripId);
+            return readTrips(select).stream().findFirst();
+        }
+    }
+
+    public synchronized Optional<Trip> loadTrip(String destination, LocalDate date, LocalTime time) throws SQLException {
+        try (PreparedStatement select = connection.prepareStatement(
+                "SELECT * FROM trips WHERE destination = ? AND epoch_day = ? AND second_of_day = ?")) {
+            select.setString(1, destination);
+            select.setLong(2, date.toEpochDay());
+            select.setInt(3, time.toSecondOfDay());
+            return readTrips(select).stream().findFirst();
+        }
+    }
+
+    /**
+     * The stored seat map of a trip, or empty if it was never opened on this terminal.
+     */
+    public synchronized Optional<List<Seat>> loadSeats(int tripId) throws SQLException {
+        try (PreparedStatement select = connection.prepareStatement(
+                "SELECT seat_number, client_name FROM seats WHERE trip_id = ? ORDER BY seat_number")) {
+            select.setInt(1, tripId);
+            List<Seat> seats = new ArrayList<>();
+            try (ResultSet rows = select.executeQuery()) {
+                while (rows.next()) {
+                    seats.add(new Seat(rows.getInt(1), rows.getString(2)));
+                }
+            }
+            return seats.isEmpty() ? Optional.empty() : Optional.of(SeatMap.of(seats));
+        }
+    }
+
+    /**
+     * The position saved by {@link #savePosition(TripChanges)}, as changes with nothing in them,
+     * or empty if no position was saved yet.
+     */
+    public synchronized Optional<TripChanges> loadPosition() throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("SELECT epoch, sequence FROM sync_position WHERE id = 0")) {
+            if (!rows.next())
+                return Optional.empty();
+            return Optional.of(new TripChanges(rows.getLong(1), rows.getLong(2), false, List.of(), List.of(), List.of()));
+        }
+    }
+
+    /**
+     * When the stored catalog was last written, or empty if nothing is stored.
+     */
+    public synchronized Optional<Instant> savedAt() throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("SELECT MAX(saved_at) FROM trips")) {
+            long millis = rows.next() ? rows.getLong(1) : 0;
+            return millis == 0 ? Optional.empty() : Optional.of(Instant.ofEpochMilli(millis));
+        }
+    }
+
+    @Override
+    public void close() {
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(5, TimeUnit.SECONDS))
+                logger.warn("Trip snapshot writes still pending at close");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                logger.debug("Could not close trip snapshot: {}", e.getMessage());
+            }
+        }
+    }
+
+    private interface Write {
+        void run() throws SQLException;
+    }
+
+    private void write(Write write) {
+        writer.execute(() -> {
+            synchronized (this) {
+                try {
+                    connection.setAutoCommit(false);
+                    write.run();
+                    connection.commit();
+                } catch (SQLException e) {
+                    logger.warn("Could not update trip snapshot: {}", e.getMessage());
+                    try {
+                        connection.rollback();
+                    } catch (SQLException ignored) {
+                        // conexiunea e deja într-o stare proastă; următoarea scriere reîncearcă
+                    }
+                } finally {
+                    try {
+                        connection.setAutoCommit(true);
+                    } catch (SQLException ignored) {
+                    }
+                }
+            }
+        });
+    }
+
+    private void insertTrips(List<Trip> trips) throws SQLException {
+        long now = Instant.now().toEpochMilli();
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT OR REPLACE INTO trips (id, destination, epoch_day, second_of_day, available_seats, version, saved_at) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?)")) {
+            for (Trip trip : trips) {
+                insert.setInt(1, trip.getId());
+                insert.setString(2, trip.getDestination().getName());
+                insert.setLong(3, trip.getDepartureDate().toEpochDay());
+                insert.setInt(4, trip.getDepartureTime().toSecondOfDay());
+                if (trip.getAvailableSeats() != null)
+                    insert.setInt(5, trip.getAvailableSeats());
+                else
+                    insert.setNull(5, Types.INTEGER);
+                if (trip.getVersion() != null)
+                    insert.setLong(6, trip.getVersion());
+                else
+                    insert.setNull(6, Types.INTEGER);
+                insert.setLong(7, now);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+    }
+
+    private static List<Trip> readTrips(PreparedStatement select) throws SQLException {
+        List<Trip> trips = new ArrayList<>();
+        try (ResultSet rows = select.executeQuery()) {
+            while (rows.next()) {
+                Trip trip = new Trip(rows.getInt("id"),
+                                     new Destination(null, rows.getString("destination")),
+                                     LocalDate.ofEpochDay(rows.getLong("epoch_day")),
+                                     LocalTime.ofSecondOfDay(rows.getInt("second_of_day")),
+                                     null);
+                int availableSeats = rows.getInt("available_seats");
+                if (!rows.wasNull())
+                    trip.setAvailableSeats(availableSeats);
+                long version = rows.getLong("version");
+                if (!rows.wasNull())
+                    trip.setVersion(version);
+                trips.add(trip);
+            }
+        }
+        return trips;
+    }
+}
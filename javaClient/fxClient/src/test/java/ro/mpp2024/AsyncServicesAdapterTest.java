@@ -0,0 +1,69 @@
+package ro.mpp2024;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The calling thread (the FX thread in the client) must not wait for a slow service call.
+ */
+class AsyncServicesAdapterTest {
+    private static final Duration MAX_STALL = Duration.ofMillis(100);
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void releaseCalls() {
+        release.countDown();
+    }
+
+    @Test
+    void callerReturnsWhileTheServiceBlocks() throws Exception {
+        IAsyncServices services = new AsyncServicesAdapter(blockingServices(List.of()));
+
+        long started = System.nanoTime();
+        CompletableFuture<List<Trip>> trips = services.getAllTrips();
+        CompletableFuture<TripPage> page = services.getTrips(TripQuery.all(10));
+        long stall = System.nanoTime() - started;
+
+        assertTrue(stall < MAX_STALL.toNanos(), "calling thread stalled for " + TimeUnit.NANOSECONDS.toMillis(stall) + " ms");
+        assertFalse(trips.isDone());
+        assertFalse(page.isDone());
+
+        release.countDown();
+        assertEquals(List.of(), trips.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void serviceErrorsFailTheFuture() {
+        release.countDown();
+        IAsyncServices services = new AsyncServicesAdapter(blockingServices(new ServicesException("down")));
+
+        ExecutionException error = assertThrows(ExecutionException.class,
+                                                () -> services.getTripById(1).get(5, TimeUnit.SECONDS));
+        assertInstanceOf(ServicesException.class, error.getCause());
+    }
+
+    /**
+     * Services whose every call waits for {@link #release}, then returns (or throws) the given
+     * answer.
+     */
+    private IServices blockingServices(Object answer) {
+        return (IServices) Proxy.newProxyInstance(IServices.class.getClassLoader(), new Class<?>[]{IServices.class},
+                (proxy, method, args) -> {
+                    release.await();
+                    if (answer instanceof Throwable error)
+                        throw error;
+                    return method.getReturnType().isInstance(answer) ? answer : null;
+                });
+    }
+}
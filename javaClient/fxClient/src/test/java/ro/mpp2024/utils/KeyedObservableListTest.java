@@ -0,0 +1,152 @@
+package ro.mpp2024.utils;
+
+import javafx.collections.ListChangeListener;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ro.mpp2024.Destination;
+import ro.mpp2024.Seat;
+import ro.mpp2024.Trip;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Merging keeps the shown rows, touches only what changed and reaches the table as one change.
+ */
+class KeyedObservableListTest {
+    private final KeyedObservableList<Integer, Trip> trips = KeyedObservableList.ofTrips();
+    private final List<ListChangeListener.Change<? extends Trip>> changes = new ArrayList<>();
+
+    @BeforeEach
+    void listen() {
+        trips.merge(List.of(trip(1, 10), trip(2, 20), trip(3, 30)));
+        trips.addListener((ListChangeListener<Trip>) change -> changes.add(change));
+    }
+
+    @Test
+    void mergeUpdatesChangedRowsInPlace() {
+        Trip first = trips.get(0);
+        Trip second = trips.get(1);
+
+        trips.merge(List.of(trip(1, 10), trip(2, 19), trip(3, 30)));
+
+        assertSame(first, trips.get(0));
+        assertSame(second, trips.get(1));
+        assertEquals(19, second.getAvailableSeats());
+        assertEquals(1, changes.size());
+        assertEquals(List.of(1), updatedRows(changes.get(0)));
+    }
+
+    @Test
+    void mergeWithoutChangesReportsNothing() {
+        trips.merge(List.of(trip(1, 10), trip(2, 20), trip(3, 30)));
+
+        assertTrue(changes.isEmpty());
+    }
+
+    @Test
+    void mergeInsertsAndRemovesByKey() {
+        Trip third = trips.get(2);
+
+        trips.merge(List.of(trip(1, 10), trip(4, 40), trip(3, 30)));
+
+        assertEquals(List.of(1, 4, 3), ids());
+        assertSame(third, trips.get(2));
+        assertEquals(1, changes.size());
+    }
+
+    @Test
+    void mergeMovesRowsKeepingTheirObjects() {
+        Trip first = trips.get(0);
+        Trip third = trips.get(2);
+
+        trips.merge(List.of(trip(3, 29), trip(2, 20), trip(1, 10)));
+
+        assertEquals(List.of(3, 2, 1), ids());
+        assertSame(third, trips.get(0));
+        assertSame(first, trips.get(2));
+        assertEquals(29, third.getAvailableSeats());
+        assertEquals(1, changes.size());
+    }
+
+    @Test
+    void mergeRejectsDuplicateKeys() {
+        assertThrows(IllegalArgumentException.class, () -> trips.merge(List.of(trip(1, 10), trip(1, 11))));
+        assertEquals(List.of(1, 2, 3), ids());
+    }
+
+    @Test
+    void appendAddsNewRowsAndUpdatesShownOnes() {
+        Trip second = trips.get(1);
+
+        trips.append(List.of(trip(2, 18), trip(4, 40), trip(5, 50)));
+
+        assertEquals(List.of(1, 2, 3, 4, 5), ids());
+        assertSame(second, trips.get(1));
+        assertEquals(18, second.getAvailableSeats());
+        assertEquals(1, changes.size());
+    }
+
+    @Test
+    void addRejectsDuplicateKeys() {
+        assertThrows(IllegalArgumentException.class, () -> trips.add(trip(2, 20)));
+        assertEquals(3, trips.size());
+    }
+
+    @Test
+    void updateByKeyChangesOneRow() {
+        assertTrue(trips.updateByKey(3, trip -> trip.setAvailableSeats(25)));
+        assertFalse(trips.updateByKey(9, trip -> fail("no row with key 9")));
+
+        assertEquals(25, trips.findByKey(3).getAvailableSeats());
+        assertEquals(1, changes.size());
+        assertEquals(List.of(2), updatedRows(changes.get(0)));
+    }
+
+    @Test
+    void removedRowsCanBeFoundNoLonger() {
+        trips.removeIf(trip -> trip.getId() == 2);
+
+        assertNull(trips.findByKey(2));
+        assertEquals(List.of(1, 3), ids());
+    }
+
+    @Test
+    void immutableRowsAreReplaced() {
+        KeyedObservableList<Integer, Seat> seats = KeyedObservableList.ofSeats();
+        seats.merge(List.of(new Seat(1, "-"), new Seat(2, "-")));
+        Seat free = seats.get(0);
+
+        seats.merge(List.of(new Seat(1, "Ana"), new Seat(2, "-")));
+
+        assertNotSame(free, seats.get(0));
+        assertEquals("Ana", seats.findByKey(1).getClientName());
+    }
+
+    private List<Integer> ids() {
+        return trips.stream().map(Trip::getId).toList();
+    }
+
+    private static List<Integer> updatedRows(ListChangeListener.Change<? extends Trip> change) {
+        List<Integer> rows = new ArrayList<>();
+        change.reset();
+        while (change.next()) {
+            assertTrue(change.wasUpdated(), "expected only updates");
+            for (int i = change.getFrom(); i < change.getTo(); i++) {
+                rows.add(i);
+            }
+        }
+        return rows;
+    }
+
+    private static Trip trip(int id, int availableSeats) {
+        Trip trip = new Trip(id, new Destination(null, "Cluj"), LocalDate.of(2025, 6, 1), LocalTime.of(8, id),
+                             availableSeats);
+        trip.setVersion((long) (100 - availableSeats));
+        return trip;
+    }
+}
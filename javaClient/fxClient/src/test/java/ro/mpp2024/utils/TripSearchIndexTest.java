@@ -0,0 +1,239 @@
+package ro.mpp2024.utils;
+
+import org.junit.jupiter.api.Test;
+import ro.mpp2024.Destination;
+import ro.mpp2024.Trip;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The index answers like a scan of the whole catalog, in the order of the trips table.
+ */
+class TripSearchIndexTest {
+    private static final LocalDate DAY = LocalDate.of(2025, 6, 1);
+    private static final String[] DESTINATIONS = {"Cluj", "Constanta", "Craiova", "Brasov", "Bucuresti", "Iasi", "cluj-Sud"};
+
+    private final TripSearchIndex index = TripSearchIndex.build(List.of(
+            trip(1, "Iasi", DAY, "08:00", 10),
+            trip(2, "Cluj", DAY.plusDays(1), "08:30", 0),
+            trip(3, "Cluj", DAY, "17:45", 5),
+            trip(4, "Constanta", DAY, "08:15", 20),
+            trip(5, "Brasov", DAY.plusDays(2), "06:00", 3)));
+
+    @Test
+    void destinationPrefixIgnoresCaseAndOrdersByDeparture() {
+        assertEquals(List.of(3, 2, 4), ids(index.search(filter("c", null, null, null, null, 0), 10)));
+        assertEquals(List.of(3, 2), ids(index.search(filter("CLUJ", null, null, null, null, 0), 10)));
+        assertEquals(List.of(), ids(index.search(filter("Sibiu", null, null, null, null, 0), 10)));
+    }
+
+    @Test
+    void dateTimeAndSeatFilters() {
+        assertEquals(List.of(3, 4, 1), ids(index.search(filter(null, DAY, DAY, null, null, 0), 10)));
+        assertEquals(List.of(2, 4, 1), ids(index.search(filter(null, null, null, "08:00", "08:59", 0), 10)));
+        assertEquals(List.of(3, 4, 1), ids(index.search(filter(null, null, null, null, null, 5), 10)));
+        assertEquals(List.of(4), ids(index.search(filter("co", DAY, DAY, "08:00", "09:00", 1), 10)));
+    }
+
+    @Test
+    void invertedRangesMatchNothing() {
+        assertEquals(List.of(), ids(index.search(filter(null, DAY.plusDays(1), DAY, null, null, 0), 10)));
+        assertEquals(List.of(), ids(index.search(filter(null, null, null, "09:00", "08:00", 0), 10)));
+    }
+
+    @Test
+    void limitKeepsTheFirstTrips() {
+        assertEquals(List.of(5, 3), ids(index.search(filter(null, null, null, null, null, 0), 2)));
+        assertEquals(List.of(3), ids(index.search(filter(null, DAY, DAY, null, null, 0), 1)));
+    }
+
+    @Test
+    void completesDestinationsOnce() {
+        assertEquals(List.of("Cluj", "Constanta"), index.destinations("c", 10));
+        assertEquals(List.of("Brasov"), index.destinations("", 1));
+        assertEquals(List.of(), index.destinations("x", 10));
+    }
+
+    @Test
+    void seatUpdatesReachFiltersAndResults() {
+        assertTrue(index.updateSeats(2, 7, 42));
+        assertFalse(index.updateSeats(99, 7, 42));
+
+        List<Trip> found = index.search(filter(null, null, null, null, null, 6), 10);
+        assertEquals(List.of(2, 4, 1), ids(found));
+        assertEquals(7, found.get(0).getAvailableSeats());
+        assertEquals(42L, found.get(0).getVersion());
+    }
+
+    @Test
+    void olderSeatCountsAreIgnored() {
+        index.updateSeats(2, 7, 42);
+        assertTrue(index.updateSeats(2, 9, 41));
+
+        Trip found = index.search(filter(null, DAY.plusDays(1), DAY.plusDays(1), null, null, 0), 1).get(0);
+        assertEquals(7, found.getAvailableSeats());
+        assertEquals(42L, found.getVersion());
+    }
+
+    @Test
+    void appliesInsertedRemovedAndMovedTrips() {
+        index.apply(List.of(trip(6, "Cluj", DAY, "06:00", 8),          // nouă
+                            trip(1, "Bacau", DAY, "08:00", 10),        // altă destinaţie
+                            trip(4, "Constanta", DAY, "08:15", 12)),   // doar locurile
+                    List.of(5));
+
+        assertEquals(5, index.size());
+        assertFalse(index.contains(5));
+        assertEquals(List.of(1, 6, 3, 2, 4), ids(index.search(filter(null, null, null, null, null, 0), 10)));
+        assertEquals(List.of(1, 6, 4), ids(index.search(filter(null, null, null, "06:00", "08:59", 1), 10)));
+        assertEquals(List.of("Bacau"), index.destinations("b", 10));
+        assertEquals(12, index.search(filter("Constanta", null, null, null, null, 0), 1).get(0).getAvailableSeats());
+    }
+
+    @Test
+    void appliedChangesMatchARebuiltIndex() {
+        Random random = new Random(7);
+        List<Trip> catalog = new ArrayList<>(randomCatalog(random, 1000));
+        TripSearchIndex updated = TripSearchIndex.build(catalog);
+        int nextId = catalog.size() + 1;
+
+        for (int round = 0; round < 50; round++) {
+            List<Trip> changed = new ArrayList<>();
+            List<Integer> removed = new ArrayList<>();
+            for (int change = random.nextInt(20); change > 0; change--) {
+                int kind = random.nextInt(4);
+                if (kind == 0 || catalog.isEmpty()) {
+                    Trip trip = randomTrip(random, nextId++);
+                    catalog.add(trip);
+                    changed.add(trip);
+                } else {
+                    Trip trip = catalog.get(random.nextInt(catalog.size()));
+                    if (kind == 1) {
+                        catalog.remove(trip);
+                        removed.add(trip.getId());
+                    } else {
+                        Trip current = kind == 2 ? randomTrip(random, trip.getId()) : copyWithSeats(trip, random.nextInt(19));
+                        catalog.set(catalog.indexOf(trip), current);
+                        changed.add(current);
+                    }
+                }
+            }
+            updated.apply(changed, removed);
+
+            assertEquals(catalog.size(), updated.size());
+            for (int query = 0; query < 20; query++) {
+                TripFilter filter = randomFilter(random);
+                assertEquals(ids(scan(catalog, filter, 100)), ids(updated.search(filter, 100)), filter.toString());
+            }
+        }
+    }
+
+    @Test
+    void resultsAreCopies() {
+        Trip found = index.search(filter("Iasi", null, null, null, null, 0), 1).get(0);
+        found.setAvailableSeats(0);
+
+        assertEquals(10, index.search(filter("Iasi", null, null, null, null, 0), 1).get(0).getAvailableSeats());
+    }
+
+    @Test
+    void matchesAScanOfTheCatalog() {
+        Random random = new Random(2024);
+        List<Trip> catalog = randomCatalog(random, 3000);
+        TripSearchIndex large = TripSearchIndex.build(catalog);
+
+        for (int query = 0; query < 500; query++) {
+            TripFilter filter = randomFilter(random);
+            int limit = 1 + random.nextInt(200);
+            assertEquals(ids(scan(catalog, filter, limit)), ids(large.search(filter, limit)), filter.toString());
+        }
+    }
+
+    private static List<Trip> scan(List<Trip> catalog, TripFilter filter, int limit) {
+        List<Trip> sorted = new ArrayList<>(catalog);
+        sorted.sort(Comparator.comparing((Trip trip) -> trip.getDestination().getName().toLowerCase(Locale.ROOT))
+                              .thenComparing(Trip::getDepartureDate)
+                              .thenComparing(Trip::getDepartureTime));
+        String prefix = filter.getDestinationPrefix() == null ? null : filter.getDestinationPrefix().toLowerCase(Locale.ROOT);
+        return sorted.stream()
+                     .filter(trip -> prefix == null || trip.getDestination().getName().toLowerCase(Locale.ROOT).startsWith(prefix))
+                     .filter(trip -> filter.getDateFrom() == null || !trip.getDepartureDate().isBefore(filter.getDateFrom()))
+                     .filter(trip -> filter.getDateTo() == null || !trip.getDepartureDate().isAfter(filter.getDateTo()))
+                     .filter(trip -> filter.getTimeFrom() == null || !trip.getDepartureTime().isBefore(filter.getTimeFrom()))
+                     .filter(trip -> filter.getTimeTo() == null || !trip.getDepartureTime().isAfter(filter.getTimeTo()))
+                     .filter(trip -> trip.getAvailableSeats() >= filter.getMinAvailableSeats())
+                     .limit(limit)
+                     .toList();
+    }
+
+    // plecări distincte, ca ordinea rezultatelor să fie unică
+    private static List<Trip> randomCatalog(Random random, int count) {
+        List<Integer> slots = new ArrayList<>();
+        for (int slot = 0; slot < count; slot++) {
+            slots.add(slot);
+        }
+        Collections.shuffle(slots, random);
+        List<Trip> catalog = new ArrayList<>();
+        for (int id = 1; id <= count; id++) {
+            LocalDateTime departure = DAY.atStartOfDay().plusMinutes(slots.get(id - 1) * 17L);
+            catalog.add(new Trip(id, new Destination(null, DESTINATIONS[random.nextInt(DESTINATIONS.length)]),
+                                 departure.toLocalDate(), departure.toLocalTime(), random.nextInt(19)));
+        }
+        return catalog;
+    }
+
+    // plecări pe minute impare, ca să nu se suprapună cu cele din randomCatalog
+    private static Trip randomTrip(Random random, int id) {
+        LocalDateTime departure = DAY.atStartOfDay().plusMinutes(random.nextInt(50_000) * 2L + 1);
+        return new Trip(id, new Destination(null, DESTINATIONS[random.nextInt(DESTINATIONS.length)]),
+                        departure.toLocalDate(), departure.toLocalTime(), random.nextInt(19));
+    }
+
+    private static Trip copyWithSeats(Trip trip, int availableSeats) {
+        return new Trip(trip.getId(), trip.getDestination(), trip.getDepartureDate(), trip.getDepartureTime(),
+                        availableSeats);
+    }
+
+    private static TripFilter randomFilter(Random random) {
+        String prefix = null;
+        if (random.nextBoolean()) {
+            String destination = DESTINATIONS[random.nextInt(DESTINATIONS.length)];
+            prefix = destination.substring(0, 1 + random.nextInt(destination.length()));
+        }
+        LocalDate dateFrom = random.nextInt(3) == 0 ? DAY.plusDays(random.nextInt(36)) : null;
+        LocalDate dateTo = random.nextInt(3) == 0 ? DAY.plusDays(random.nextInt(36)) : null;
+        LocalTime timeFrom = null;
+        LocalTime timeTo = null;
+        if (random.nextInt(3) == 0) {
+            timeFrom = LocalTime.of(random.nextInt(24), 0);
+            timeTo = timeFrom.plusMinutes(random.nextInt(180));
+            if (timeTo.isBefore(timeFrom))
+                timeTo = LocalTime.MAX;
+        }
+        return new TripFilter(prefix, dateFrom, dateTo, timeFrom, timeTo, random.nextInt(4) == 0 ? random.nextInt(19) : 0);
+    }
+
+    private static TripFilter filter(String prefix, LocalDate dateFrom, LocalDate dateTo, String timeFrom, String timeTo,
+                                     int minAvailableSeats) {
+        return new TripFilter(prefix, dateFrom, dateTo, timeFrom == null ? null : LocalTime.parse(timeFrom),
+                              timeTo == null ? null : LocalTime.parse(timeTo), minAvailableSeats);
+    }
+
+    private static List<Integer> ids(List<Trip> trips) {
+        return trips.stream().map(Trip::getId).toList();
+    }
+
+    private static Trip trip(int id, String destination, LocalDate date, String time, int availableSeats) {
+        return new Trip(id, new Destination(null, destination), date, LocalTime.parse(time), availableSeats);
+    }
+}
@@ -0,0 +1,22 @@
+package ro.mpp2024.loadgen;
+
+/**
+ * What a simulated employee can do between two pauses; the names are the keys of the
+ * <code>mix.*</code> weights.
+ */
+enum Action {
+    GET_ALL_TRIPS("getAllTrips"),
+    GET_TRIP("getTrip"),
+    SEARCH_TRIP_SEATS("searchTripSeats"),
+    RESERVE_SEATS("reserveSeats");
+
+    private final String key;
+
+    Action(String key) {
+        this.key = key;
+    }
+
+    String getKey() {
+        return key;
+    }
+}
@@ -0,0 +1,111 @@
+package ro.mpp2024.loadgen;
+
+import io.grpc.ManagedChannel;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import ro.mpp2024.GrpcServicesProxy;
+import ro.mpp2024.benchmarks.StandInServer;
+import ro.mpp2024.benchmarks.StandInTransportCompany;
+import ro.mpp2024.proto.TransportCompanyGrpc;
+import ro.mpp2024.utils.ChannelSettings;
+import ro.mpp2024.utils.ExecutorStrategy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Headless load generator: a fleet of simulated employees working against a server the way
+ * the JavaFX terminals do, each through its own {@link GrpcServicesProxy}. Settings come from
+ * <code>loadgen.properties</code>; every <code>key=value</code> argument overrides one. With
+ * <code>target=standin</code> (the default) the server is the stand-in used by the benchmarks,
+ * started in this JVM, so the run needs nothing else, e.g. in CI.
+ */
+public class LoadGenerator {
+    private static final Logger logger = LogManager.getLogger(LoadGenerator.class);
+
+    // după termen, cât aşteptăm apelurile pornite şi logout-urile
+    private static final long DRAIN_SECONDS = 30;
+
+    public static void main(String[] args) throws Exception {
+        LoadSettings settings = new LoadSettings(properties(args));
+        logger.info("Starting {}", settings);
+
+        StandInServer standIn = null;
+        Supplier<ManagedChannel> channels;
+        if (settings.isStandIn()) {
+            standIn = StandInServer.start(new StandInTransportCompany(settings.getStandInTrips(), settings.getStandInSeats()),
+                                          settings.isStandInLoopback()
+                                                  ? StandInServer.Transport.LOOPBACK
+                                                  : StandInServer.Transport.IN_PROCESS);
+            StandInServer server = standIn;
+            Executor callbackExecutor = settings.newCallbackExecutor();
+            channels = () -> server.newChannel(callbackExecutor);
+        } else {
+            ChannelSettings channelSettings = new ChannelSettings(settings.getProperties());
+            List<String> endpoints = settings.getEndpoints();
+            channels = () -> channelSettings.newChannel(endpoints);
+        }
+
+        LoadReport report = new LoadReport();
+        try {
+            double elapsedSeconds = run(settings, channels, report);
+            report.print(System.out, settings, elapsedSeconds);
+        } finally {
+            if (standIn != null)
+                standIn.close();
+        }
+    }
+
+    /**
+     * Starts the terminals evenly over the ramp-up and waits for all of them to log out.
+     *
+     * @return the seconds from the first start to the last logout
+     */
+    private static double run(LoadSettings settings, Supplier<ManagedChannel> channels, LoadReport report)
+            throws InterruptedException {
+        int terminals = settings.getTerminals();
+        long startNanos = System.nanoTime();
+        long rampUpNanos = settings.getRampUp().toNanos();
+        long deadlineNanos = startNanos + rampUpNanos + settings.getDuration().toNanos();
+
+        // fiecare terminal blochează în apeluri şi pauze, deci are nevoie de firul lui
+        ExecutorService executor = (settings.isVirtualThreads() ? ExecutorStrategy.VIRTUAL : ExecutorStrategy.POOL)
+                .newExecutor("terminal", terminals);
+        try {
+            for (int number = 1; number <= terminals; number++) {
+                long startAt = startNanos + rampUpNanos * (number - 1) / terminals;
+                TimeUnit.NANOSECONDS.sleep(Math.max(0, startAt - System.nanoTime()));
+                GrpcServicesProxy services = new GrpcServicesProxy(TransportCompanyGrpc.newBlockingStub(channels.get()));
+                executor.execute(new Terminal(number, services, settings, report, deadlineNanos));
+            }
+            executor.shutdown();
+            long waitNanos = deadlineNanos - System.nanoTime() + TimeUnit.SECONDS.toNanos(DRAIN_SECONDS);
+            if (!executor.awaitTermination(waitNanos, TimeUnit.NANOSECONDS))
+                logger.warn("Some terminals were still busy {} s after the end of the run", DRAIN_SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        return (System.nanoTime() - startNanos) / 1e9;
+    }
+
+    private static Properties properties(String[] args) throws IOException {
+        Properties props = new Properties();
+        try (InputStream defaults = LoadGenerator.class.getResourceAsStream("/loadgen.properties")) {
+            if (defaults != null)
+                props.load(defaults);
+        }
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (equals <= 0)
+                throw new IllegalArgumentException("Expected key=value, got " + arg);
+            props.setProperty(arg.substring(0, equals).trim(), arg.substring(equals + 1).trim());
+        }
+        return props;
+    }
+}
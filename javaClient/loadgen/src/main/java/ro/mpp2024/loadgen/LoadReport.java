@@ -0,0 +1,112 @@
+package ro.mpp2024.loadgen;
+
+import ro.mpp2024.utils.CallStats;
+
+import java.io.PrintStream;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * What the terminals measured, shared by all of them. Latencies go into the same lock-free
+ * {@link CallStats} histograms the client uses for its RPC metrics.
+ * <p>
+ * Notification lag is measured inside this JVM: each terminal reserves under its own client
+ * name and remembers when it sent the reservation, so when another terminal is notified of
+ * that name the lag is the time since the reservation left, including the reservation itself.
+ */
+class LoadReport {
+    private final Map<Action, CallStats> latencies = new EnumMap<>(Action.class);
+    private final Map<Action, LongAdder> errors = new EnumMap<>(Action.class);
+    private final LongAdder logins = new LongAdder();
+    private final LongAdder failedLogins = new LongAdder();
+    private final LongAdder reservedSeats = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder fullTrips = new LongAdder();
+    private final LongAdder notifications = new LongAdder();
+    private final CallStats notificationLag = new CallStats("NotificationLag");
+    private final Map<String, Long> reservationSentNanos = new ConcurrentHashMap<>();
+
+    LoadReport() {
+        for (Action action : Action.values()) {
+            latencies.put(action, new CallStats(action.getKey()));
+            errors.put(action, new LongAdder());
+        }
+    }
+
+    void loggedIn(boolean success) {
+        (success ? logins : failedLogins).increment();
+    }
+
+    void succeeded(Action action, long latencyNanos) {
+        latencies.get(action).record(latencyNanos);
+    }
+
+    void failed(Action action) {
+        errors.get(action).increment();
+    }
+
+    /**
+     * A reservation turned down because a seat was taken first; it counts as a served call.
+     */
+    void conflict(long latencyNanos) {
+        conflicts.increment();
+        succeeded(Action.RESERVE_SEATS, latencyNanos);
+    }
+
+    void reserved(int seats) {
+        reservedSeats.add(seats);
+    }
+
+    /**
+     * A reservation skipped because the trip the terminal looked at had no free seat.
+     */
+    void tripFull() {
+        fullTrips.increment();
+    }
+
+    void reservationSent(String clientName) {
+        reservationSentNanos.put(clientName, System.nanoTime());
+    }
+
+    void notified(String clientName) {
+        long receivedNanos = System.nanoTime();
+        notifications.increment();
+        Long sentNanos = clientName == null ? null : reservationSentNanos.get(clientName);
+        if (sentNanos != null)
+            notificationLag.record(receivedNanos - sentNanos);
+    }
+
+    void print(PrintStream out, LoadSettings settings, double elapsedSeconds) {
+        long actions = 0;
+        long failures = 0;
+        for (Action action : Action.values()) {
+            actions += latencies.get(action).getCalls();
+            failures += errors.get(action).sum();
+        }
+        long reservations = latencies.get(Action.RESERVE_SEATS).getCalls();
+
+        out.printf("%n%s%n", settings);
+        out.printf("%d terminals logged in (%d failed), %.1f s including the ramp-up%n",
+                   logins.sum(), failedLogins.sum(), elapsedSeconds);
+        out.printf("%d actions, %.1f per second, %d failed%n", actions, actions / elapsedSeconds, failures);
+        out.printf("%-18s %9s %9s %9s %9s %9s %7s%n", "action", "calls", "p50 ms", "p90 ms", "p99 ms", "max ms", "errors");
+        for (Action action : Action.values()) {
+            print(out, latencies.get(action), errors.get(action).sum());
+        }
+        out.printf("reservations: %d, %d conflicts (%.1f%%), %d seats reserved, %d skipped on full trips%n",
+                   reservations, conflicts.sum(), reservations == 0 ? 0.0 : 100.0 * conflicts.sum() / reservations,
+                   reservedSeats.sum(), fullTrips.sum());
+        out.printf("notifications: %d received, %d matched to a reservation of this run%n",
+                   notifications.sum(), notificationLag.getCalls());
+        print(out, notificationLag, 0);
+    }
+
+    private static void print(PrintStream out, CallStats stats, long errors) {
+        if (stats.getCalls() == 0 && errors == 0)
+            return;
+        out.printf("%-18s %9d %9.2f %9.2f %9.2f %9.2f %7d%n", stats.getName(), stats.getCalls(),
+                   stats.getP50Millis(), stats.getP90Millis(), stats.getP99Millis(), stats.getMaxMillis(), errors);
+    }
+}
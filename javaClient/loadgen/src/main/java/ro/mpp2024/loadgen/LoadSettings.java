@@ -0,0 +1,199 @@
+package ro.mpp2024.loadgen;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import ro.mpp2024.utils.ExecutorStrategy;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.Executor;
+
+/**
+ * The run described by <code>loadgen.properties</code>, with <code>key=value</code> arguments
+ * taking precedence over the file.
+ */
+class LoadSettings {
+    private static final Logger logger = LogManager.getLogger(LoadSettings.class);
+
+    static final String STAND_IN = "standin";
+
+    private final Properties props;
+
+    private final int terminals;
+    private final Duration duration;
+    private final Duration rampUp;
+    private final long thinkMillis;
+    private final Map<Action, Integer> mix = new EnumMap<>(Action.class);
+    private final int totalWeight;
+    private final int reserveMaxSeats;
+    private final String target;
+    private final String usernamePattern;
+    private final String password;
+    private final int standInTrips;
+    private final int standInSeats;
+    private final boolean standInLoopback;
+    private final boolean virtualThreads;
+    private final ExecutorStrategy callbackExecutor;
+    private final int callbackPoolSize;
+
+    LoadSettings(Properties props) {
+        this.props = props;
+        this.terminals = (int) number(props, "terminals", 50);
+        this.duration = Duration.ofSeconds(number(props, "duration.s", 60));
+        this.rampUp = Duration.ofSeconds(number(props, "ramp.up.s", 5));
+        this.thinkMillis = number(props, "think.ms", 500);
+        int weights = 0;
+        for (Action action : Action.values()) {
+            int weight = (int) Math.max(0, number(props, "mix." + action.getKey(), 0));
+            mix.put(action, weight);
+            weights += weight;
+        }
+        if (weights == 0)
+            throw new IllegalArgumentException("All mix.* weights are zero");
+        this.totalWeight = weights;
+        this.reserveMaxSeats = (int) Math.max(1, number(props, "reserve.max.seats", 3));
+        this.target = props.getProperty("target", STAND_IN).trim();
+        this.usernamePattern = props.getProperty("username.pattern", "employee%d").trim();
+        this.password = props.getProperty("password", "");
+        this.standInTrips = (int) number(props, "standin.trips", 2000);
+        this.standInSeats = (int) number(props, "standin.seats", 60);
+        this.standInLoopback = !"in_process".equalsIgnoreCase(props.getProperty("standin.transport", "loopback").trim());
+        this.virtualThreads = !"platform".equalsIgnoreCase(props.getProperty("threads", "virtual").trim());
+        this.callbackExecutor = ExecutorStrategy.parse(props.getProperty("grpc.executor"), null);
+        this.callbackPoolSize = number(props, "grpc.executor.pool.size", 8, 1, ExecutorStrategy.MAX_POOL_SIZE);
+    }
+
+    /**
+     * The properties as given, for the channel settings of a real target.
+     */
+    Properties getProperties() {
+        return props;
+    }
+
+    int getTerminals() {
+        return terminals;
+    }
+
+    Duration getDuration() {
+        return duration;
+    }
+
+    Duration getRampUp() {
+        return rampUp;
+    }
+
+    /**
+     * A pause drawn uniformly between half and one and a half times <code>think.ms</code>.
+     */
+    long thinkMillis(Random random) {
+        return thinkMillis <= 0 ? 0 : thinkMillis / 2 + (long) (random.nextDouble() * thinkMillis);
+    }
+
+    Action nextAction(Random random) {
+        int pick = random.nextInt(totalWeight);
+        for (Map.Entry<Action, Integer> entry : mix.entrySet()) {
+            pick -= entry.getValue();
+            if (pick < 0)
+                return entry.getKey();
+        }
+        throw new IllegalStateException("Weights changed");
+    }
+
+    int getReserveMaxSeats() {
+        return reserveMaxSeats;
+    }
+
+    boolean isStandIn() {
+        return STAND_IN.equalsIgnoreCase(target);
+    }
+
+    List<String> getEndpoints() {
+        List<String> endpoints = new ArrayList<>();
+        for (String endpoint : target.split(",")) {
+            if (!endpoint.isBlank())
+                endpoints.add(endpoint.trim());
+        }
+        return endpoints;
+    }
+
+    String username(int terminal) {
+        return String.format(usernamePattern, terminal);
+    }
+
+    String getPassword() {
+        return password;
+    }
+
+    int getStandInTrips() {
+        return standInTrips;
+    }
+
+    int getStandInSeats() {
+        return standInSeats;
+    }
+
+    boolean isStandInLoopback() {
+        return standInLoopback;
+    }
+
+    boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * An executor for the callbacks of the stand-in channels, as <code>grpc.executor</code>
+     * sets it for the channels to a real server; {@code null} when it is not set.
+     */
+    Executor newCallbackExecutor() {
+        return callbackExecutor == null ? null : callbackExecutor.newExecutor("grpc-callback", callbackPoolSize);
+    }
+
+    /**
+     * An int property between min and max; a value that is not a number or is out of range is
+     * logged and the default used instead.
+     */
+    private static int number(Properties props, String key, int defaultValue, int min, int max) {
+        String value = props.getProperty(key);
+        if (value == null)
+            return defaultValue;
+        try {
+            int number = Integer.parseInt(value.trim());
+            if (number >= min && number <= max)
+                return number;
+            logger.error("Wrong {} {}, expected {} to {}", key, number, min, max);
+        } catch (NumberFormatException ex) {
+            logger.error("Wrong {} {}", key, ex.getMessage());
+        }
+        logger.debug("Using default {}: {}", key, defaultValue);
+        return defaultValue;
+    }
+
+    private static long number(Properties props, String key, long defaultValue) {
+        try {
+            return Long.parseLong(props.getProperty(key, String.valueOf(defaultValue)).trim());
+        } catch (NumberFormatException ex) {
+            logger.error("Wrong {} {}", key, ex.getMessage());
+            logger.debug("Using default {}: {}", key, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "LoadSettings{" +
+                "terminals=" + terminals +
+                ", duration=" + duration +
+                ", rampUp=" + rampUp +
+                ", thinkMillis=" + thinkMillis +
+                ", mix=" + mix +
+                ", target='" + target + '\'' +
+                ", virtualThreads=" + virtualThreads +
+                ", callbackExecutor=" + (callbackExecutor == null ? "default" : callbackExecutor) +
+                '}';
+    }
+}
@@ -0,0 +1,233 @@
+package ro.mpp2024.loadgen;
+
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import ro.mpp2024.Employee;
+import ro.mpp2024.GrpcServicesProxy;
+import ro.mpp2024.IObserver;
+import ro.mpp2024.Seat;
+import ro.mpp2024.SeatsConflictException;
+import ro.mpp2024.SeatsReservedEvent;
+import ro.mpp2024.ServicesException;
+import ro.mpp2024.Trip;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One simulated employee: logs in with its own {@link GrpcServicesProxy} (so its own channel
+ * and notification stream), loads the trips, then picks actions from the configured mix with
+ * a pause before each one until the deadline, and logs out.
+ * <p>
+ * Like the real view it keeps the trip versions current from the notifications, and it only
+ * reserves seats it saw free in the last seat map it searched.
+ */
+class Terminal implements Runnable, IObserver {
+    private static final Logger logger = LogManager.getLogger(Terminal.class);
+
+    private final int number;
+    private final GrpcServicesProxy services;
+    private final LoadSettings settings;
+    private final LoadReport report;
+    private final long deadlineNanos;
+    private final String clientName;
+    private final Map<Integer, Long> versions = new ConcurrentHashMap<>();   // scrise şi de fluxul de notificări
+
+    private Employee employee;
+    private List<Trip> trips = List.of();
+    private Trip current;
+    private List<Seat> currentSeats;
+
+    Terminal(int number, GrpcServicesProxy services, LoadSettings settings, LoadReport report, long deadlineNanos) {
+        this.number = number;
+        this.services = services;
+        this.settings = settings;
+        this.report = report;
+        this.deadlineNanos = deadlineNanos;
+        this.clientName = "LoadGen " + number;
+    }
+
+    @Override
+    public void run() {
+        try {
+            employee = services.login(settings.username(number), settings.getPassword(), this);
+            report.loggedIn(true);
+        } catch (ServicesException | RuntimeException e) {
+            report.loggedIn(false);
+            logger.warn("Terminal {} could not log in: {}", number, e.getMessage());
+            return;
+        }
+        try {
+            loadTrips();
+            Random random = ThreadLocalRandom.current();
+            while (pause(settings.thinkMillis(random))) {
+                act(settings.nextAction(random), random);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            try {
+                services.logout(employee);
+            } catch (ServicesException | RuntimeException e) {
+                logger.debug("Terminal {} logout: {}", number, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Sleeps, but not past the deadline.
+     *
+     * @return whether there is time left for another action
+     */
+    private boolean pause(long millis) throws InterruptedException {
+        long left = deadlineNanos - System.nanoTime();
+        if (left <= 0)
+            return false;
+        TimeUnit.NANOSECONDS.sleep(Math.min(left, TimeUnit.MILLISECONDS.toNanos(millis)));
+        return System.nanoTime() < deadlineNanos;
+    }
+
+    private void act(Action action, Random random) {
+        if (action == Action.GET_ALL_TRIPS || trips.isEmpty()) {
+            loadTrips();
+            return;
+        }
+        switch (action) {
+            case GET_TRIP -> {
+                Trip trip = randomTrip(random);
+                Trip found = call(Action.GET_TRIP, () -> services.getTrip(trip.getDestination().getName(),
+                                                                          trip.getDepartureDate(),
+                                                                          trip.getDepartureTime()));
+                if (found != null && found.getVersion() != null)
+                    versions.merge(found.getId(), found.getVersion(), Math::max);
+            }
+            case SEARCH_TRIP_SEATS -> searchSeats(randomTrip(random));
+            case RESERVE_SEATS -> reserve(random);
+            default -> throw new IllegalStateException("Unhandled " + action);
+        }
+    }
+
+    private void loadTrips() {
+        List<Trip> loaded = call(Action.GET_ALL_TRIPS, services::getAllTrips);
+        if (loaded == null)
+            return;
+        trips = loaded;
+        for (Trip trip : loaded) {
+            if (trip.getVersion() != null)
+                versions.merge(trip.getId(), trip.getVersion(), Math::max);
+        }
+    }
+
+    private void searchSeats(Trip trip) {
+        current = trip;
+        currentSeats = call(Action.SEARCH_TRIP_SEATS, () -> services.searchTripSeats(trip.getDestination().getName(),
+                                                                                      trip.getDepartureDate(),
+                                                                                      trip.getDepartureTime()));
+    }
+
+    /**
+     * Reserves a few of the free seats of the trip searched last, searching a random trip
+     * first if the last seat map was already used, the way an employee looks before booking.
+     */
+    private void reserve(Random random) {
+        if (currentSeats == null)
+            searchSeats(randomTrip(random));
+        if (currentSeats == null)
+            return;
+
+        List<Integer> free = new ArrayList<>();
+        for (Seat seat : currentSeats) {
+            if (isFree(seat))
+                free.add(seat.getSeatNumber());
+        }
+        currentSeats = null;                            // după rezervare harta nu mai e actuală
+        if (free.isEmpty()) {
+            report.tripFull();
+            return;
+        }
+        Collections.shuffle(free, random);
+        List<Integer> seatNumbers = List.copyOf(free.subList(0, 1 + random.nextInt(Math.min(free.size(),
+                                                                                             settings.getReserveMaxSeats()))));
+        Trip trip = current;
+        trip.setVersion(versions.get(trip.getId()));
+
+        report.reservationSent(clientName);
+        long start = System.nanoTime();
+        try {
+            long version = services.reserveSeats(clientName, seatNumbers, trip, employee);
+            report.succeeded(Action.RESERVE_SEATS, System.nanoTime() - start);
+            report.reserved(seatNumbers.size());
+            if (version > 0)
+                versions.merge(trip.getId(), version, Math::max);
+        } catch (ServicesException | RuntimeException e) {
+            if (isConflict(e)) {
+                report.conflict(System.nanoTime() - start);
+            } else {
+                report.failed(Action.RESERVE_SEATS);
+                logger.debug("Terminal {} reserveSeats: {}", number, e.getMessage());
+            }
+        }
+    }
+
+    private Trip randomTrip(Random random) {
+        return trips.get(random.nextInt(trips.size()));
+    }
+
+    private static boolean isFree(Seat seat) {
+        String name = seat.getClientName();
+        return !seat.isHeld() && (name == null || name.isEmpty() || "-".equals(name));
+    }
+
+    /**
+     * A seat taken first: the conflict reply, or the plain <code>FAILED_PRECONDITION</code>
+     * of a server that does not check versions.
+     */
+    private static boolean isConflict(Throwable error) {
+        if (error instanceof SeatsConflictException)
+            return true;
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof StatusRuntimeException status)
+                return status.getStatus().getCode() == Status.Code.FAILED_PRECONDITION;
+        }
+        return false;
+    }
+
+    private interface Call<T> {
+        T call() throws ServicesException;
+    }
+
+    private <T> T call(Action action, Call<T> call) {
+        long start = System.nanoTime();
+        try {
+            T result = call.call();
+            report.succeeded(action, System.nanoTime() - start);
+            return result;
+        } catch (ServicesException | RuntimeException e) {
+            report.failed(action);
+            logger.debug("Terminal {} {}: {}", number, action.getKey(), e.getMessage());
+            return null;
+        }
+    }
+
+    /* ======================== NOTIFICĂRI ======================== */
+
+    @Override
+    public void seatsReserved() {
+        report.notified(null);
+    }
+
+    @Override
+    public void seatsReserved(SeatsReservedEvent event) {
+        report.notified(event.getClientName());
+        if (event.getVersion() > 0)
+            versions.merge(event.getTripId(), event.getVersion(), Math::max);
+    }
+}
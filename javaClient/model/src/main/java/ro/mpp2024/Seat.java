@@ -3,10 +3,16 @@ package ro.mpp2024;
 public class Seat {
     private final int seatNumber;
     private final String clientName;
+    private final boolean held;
 
     public Seat(int seatNumber, String clientName) {
+        this(seatNumber, clientName, false);
+    }
+
+    public Seat(int seatNumber, String clientName, boolean held) {
         this.seatNumber = seatNumber;
         this.clientName = clientName;
+        this.held = held;
     }
 
     public int getSeatNumber() {
@@ -16,4 +22,11 @@ public class Seat {
     public String getClientName() {
         return clientName == null ? "-" : clientName;
     }
+
+    /**
+     * Free, but held by another office for a reservation in progress.
+     */
+    public boolean isHeld() {
+        return held;
+    }
 }
\ No newline at end of file
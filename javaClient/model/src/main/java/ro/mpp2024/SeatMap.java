@@ -0,0 +1,258 @@
+package ro.mpp2024;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * Seat map of one trip kept as two bitsets and the names of the clients of the reserved seats,
+ * instead of one {@link Seat} object per seat. Bit <code>n - 1</code> of the reserved (held)
+ * bits describes seat <code>n</code>; the client names follow the reserved seats in seat order.
+ * <p>
+ * It is a {@code List<Seat>} of seats 1 to {@link #size()}, so it can be handed to code that
+ * expects one; each {@link Seat} is created only when it is read. {@link #set} updates the
+ * bits, so a table backed by the map can patch single seats in place.
+ */
+public class SeatMap extends AbstractList<Seat> implements RandomAccess {
+    private static final String[] NO_NAMES = new String[0];
+
+    private final int seatCount;
+    private final long[] reserved;
+    private final long[] held;
+    private String[] clientNames;
+
+    /**
+     * An empty map: every seat free.
+     */
+    public SeatMap(int seatCount) {
+        this(seatCount, new long[words(seatCount)], new long[words(seatCount)], NO_NAMES);
+    }
+
+    /**
+     * @param reserved    bit <code>n - 1</code> set when seat <code>n</code> is reserved
+     * @param held        bit <code>n - 1</code> set when seat <code>n</code> is free but held
+     * @param clientNames one per reserved seat, in seat order
+     */
+    public SeatMap(int seatCount, long[] reserved, long[] held, String[] clientNames) {
+        if (seatCount < 0)
+            throw new IllegalArgumentException("Negative seat count " + seatCount);
+        this.seatCount = seatCount;
+        this.reserved = Arrays.copyOf(reserved, words(seatCount));
+        this.held = Arrays.copyOf(held, words(seatCount));
+        clearAbove(this.reserved, seatCount);
+        clearAbove(this.held, seatCount);
+        for (int i = 0; i < this.held.length; i++) {
+            this.held[i] &= ~this.reserved[i];          // un loc rezervat nu mai poate fi ţinut
+        }
+        int reservedCount = count(this.reserved);
+        if (clientNames.length != reservedCount)
+            throw new IllegalArgumentException(reservedCount + " reserved seats but " + clientNames.length + " names");
+        this.clientNames = clientNames.clone();
+    }
+
+    /**
+     * The seats as a map. Seat numbers outside 1..highest are ignored; missing seats are free.
+     * A {@code SeatMap} is copied.
+     */
+    public static SeatMap of(List<Seat> seats) {
+        if (seats instanceof SeatMap map)
+            return map.copy();
+        int seatCount = 0;
+        for (Seat seat : seats) {
+            seatCount = Math.max(seatCount, seat.getSeatNumber());
+        }
+        SeatMap map = new SeatMap(seatCount);
+        for (Seat seat : seats) {
+            if (seat.getSeatNumber() >= 1)
+                map.set(seat.getSeatNumber() - 1, seat);
+        }
+        return map;
+    }
+
+    public SeatMap copy() {
+        return new SeatMap(seatCount, reserved, held, clientNames);
+    }
+
+    @Override
+    public int size() {
+        return seatCount;
+    }
+
+    /**
+     * Seat <code>index + 1</code>, created on each call.
+     */
+    @Override
+    public Seat get(int index) {
+        Objects.checkIndex(index, seatCount);
+        if (isSet(reserved, index))
+            return new Seat(index + 1, clientNames[rank(index)]);
+        return new Seat(index + 1, null, isSet(held, index));
+    }
+
+    /**
+     * Replaces seat <code>index + 1</code>: a seat with a client name other than
+     * <code>"-"</code> becomes reserved, any other becomes free (and held if the seat says so).
+     */
+    @Override
+    public Seat set(int index, Seat seat) {
+        Seat previous = get(index);
+        if (seat.getSeatNumber() != index + 1)
+            throw new IllegalArgumentException("Seat " + seat.getSeatNumber() + " at index " + index);
+        if ("-".equals(seat.getClientName())) {
+            free(index);
+            assign(held, index, seat.isHeld());
+        } else {
+            reserve(index, seat.getClientName());
+        }
+        return previous;
+    }
+
+    public boolean isReserved(int seatNumber) {
+        return inRange(seatNumber) && isSet(reserved, seatNumber - 1);
+    }
+
+    public boolean isHeld(int seatNumber) {
+        return inRange(seatNumber) && isSet(held, seatNumber - 1);
+    }
+
+    /**
+     * The client of a reserved seat, or <code>"-"</code> for a free one.
+     */
+    public String getClientName(int seatNumber) {
+        return isReserved(seatNumber) ? clientNames[rank(seatNumber - 1)] : "-";
+    }
+
+    public int getReservedCount() {
+        return clientNames.length;
+    }
+
+    public int getFreeCount() {
+        return seatCount - clientNames.length;
+    }
+
+    /**
+     * Marks the seats as reserved by the client; seat numbers outside the map are ignored.
+     */
+    public void reserve(List<Integer> seatNumbers, String clientName) {
+        for (int seatNumber : seatNumbers) {
+            if (inRange(seatNumber))
+                reserve(seatNumber - 1, clientName);
+        }
+    }
+
+    /**
+     * Marks free seats as held or not held; reserved seats are left alone.
+     */
+    public void hold(List<Integer> seatNumbers, boolean isHeld) {
+        for (int seatNumber : seatNumbers) {
+            if (inRange(seatNumber) && !isSet(reserved, seatNumber - 1))
+                assign(held, seatNumber - 1, isHeld);
+        }
+    }
+
+    public long[] getReservedBits() {
+        return reserved.clone();
+    }
+
+    public long[] getHeldBits() {
+        return held.clone();
+    }
+
+    public String[] getClientNames() {
+        return clientNames.clone();
+    }
+
+    private void reserve(int index, String clientName) {
+        int rank = rank(index);
+        if (isSet(reserved, index)) {
+            clientNames[rank] = clientName;
+            return;
+        }
+        String[] names = new String[clientNames.length + 1];
+        System.arraycopy(clientNames, 0, names, 0, rank);
+        names[rank] = clientName;
+        System.arraycopy(clientNames, rank, names, rank + 1, clientNames.length - rank);
+        clientNames = names;
+        assign(reserved, index, true);
+        assign(held, index, false);
+    }
+
+    private void free(int index) {
+        if (!isSet(reserved, index))
+            return;
+        int rank = rank(index);
+        String[] names = new String[clientNames.length - 1];
+        System.arraycopy(clientNames, 0, names, 0, rank);
+        System.arraycopy(clientNames, rank + 1, names, rank, names.length - rank);
+        clientNames = names;
+        assign(reserved, index, false);
+    }
+
+    // câte locuri rezervate sunt înaintea locului de la index
+    private int rank(int index) {
+        int word = index >>> 6;
+        int rank = 0;
+        for (int i = 0; i < word; i++) {
+            rank += Long.bitCount(reserved[i]);
+        }
+        return rank + Long.bitCount(reserved[word] & ((1L << index) - 1));
+    }
+
+    private boolean inRange(int seatNumber) {
+        return seatNumber >= 1 && seatNumber <= seatCount;
+    }
+
+    private static boolean isSet(long[] bits, int index) {
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    private static void assign(long[] bits, int index, boolean value) {
+        if (value)
+            bits[index >>> 6] |= 1L << index;
+        else
+            bits[index >>> 6] &= ~(1L << index);
+    }
+
+    private static int count(long[] bits) {
+        int count = 0;
+        for (long word : bits) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    private static void clearAbove(long[] bits, int seatCount) {
+        if (seatCount % 64 != 0)
+            bits[bits.length - 1] &= (1L << seatCount) - 1;
+    }
+
+    private static int words(int seatCount) {
+        return (seatCount + 63) >>> 6;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof SeatMap other))
+            return super.equals(o);
+        return seatCount == other.seatCount
+                && Arrays.equals(reserved, other.reserved)
+                && Arrays.equals(held, other.held)
+                && Arrays.equals(clientNames, other.clientNames);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(seatCount, Arrays.hashCode(reserved), Arrays.hashCode(held), Arrays.hashCode(clientNames));
+    }
+
+    @Override
+    public String toString() {
+        return "SeatMap{" +
+                "seatCount=" + seatCount +
+                ", reserved=" + clientNames.length +
+                ", held=" + count(held) +
+                '}';
+    }
+}
@@ -9,6 +9,7 @@ public class Trip extends Entity<Integer> {
     private LocalDate departureDate;
     private LocalTime departureTime;
     private Integer availableSeats;
+    private Long version;                   // null când serverul nu o trimite
 
     public Trip() {
         super();
@@ -59,6 +60,27 @@ public class Trip extends Entity<Integer> {
         this.availableSeats = availableSeats;
     }
 
+    /**
+     * Changes every time seats of the trip are reserved; sent back with a reservation so the
+     * server can tell the client exactly which seats it lost.
+     */
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    /**
+     * A trip with the same fields, for code that keeps its own instances (caches, indexes).
+     */
+    public Trip copy() {
+        Trip copy = new Trip(getId(), destination, departureDate, departureTime, availableSeats);
+        copy.setVersion(version);
+        return copy;
+    }
+
     @Override
     public String toString() {
         return "Trip{" +
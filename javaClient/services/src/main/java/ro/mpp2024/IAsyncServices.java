@@ -0,0 +1,29 @@
+package ro.mpp2024;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking counterpart of {@link IServices}, meant for the UI thread. Every call returns
+ * immediately; failures complete the future exceptionally with a {@link ServicesException}.
+ */
+public interface IAsyncServices {
+    public CompletableFuture<Employee> login(String username, String password, IObserver client);
+    public CompletableFuture<Void> logout(Employee employee);
+    public CompletableFuture<List<Trip>> getAllTrips();
+    public CompletableFuture<TripPage> getTrips(TripQuery query);
+    public CompletableFuture<List<Seat>> searchTripSeats(String destination, LocalDate date, LocalTime time);
+    public CompletableFuture<Long> reserveSeats(String clientName, List<Integer> seatNumbers, Trip trip, Employee employee);
+    public CompletableFuture<SeatHold> holdSeats(Trip trip, List<Integer> seatNumbers, Employee employee);
+    public CompletableFuture<SeatHold> renewHold(SeatHold hold, List<Integer> seatNumbers, Employee employee);
+    public CompletableFuture<Void> releaseHold(SeatHold hold, Employee employee);
+    public CompletableFuture<List<ReservationResult>> reserveSeatsBatch(List<ReservationRequest> reservations, Employee employee);
+    public CompletableFuture<Trip> getTrip(String destination, LocalDate date, LocalTime time);
+    public CompletableFuture<TripWithSeats> getTripWithSeats(String destination, LocalDate date, LocalTime time);
+    public CompletableFuture<Trip> getTripById(int tripId);
+    public CompletableFuture<List<Seat>> searchTripSeatsById(int tripId);
+    public CompletableFuture<TripWithSeats> getTripWithSeatsById(int tripId);
+    public CompletableFuture<TripChanges> getTripChanges(long epoch, long sinceSequence);
+}
@@ -1,6 +1,39 @@
 package ro.mpp2024;
 
+import java.util.List;
+
 public interface IObserver {
 
     void seatsReserved() throws ServicesException;
+
+    /**
+     * Called with the reservation delta when the server sends one. Observers that cannot
+     * apply it in place fall back to the full refresh done by {@link #seatsReserved()}.
+     */
+    default void seatsReserved(SeatsReservedEvent event) throws ServicesException {
+        seatsReserved();
+    }
+
+    /**
+     * Called once for all the deltas of a batch reservation, in the order they were applied.
+     */
+    default void seatsReserved(List<SeatsReservedEvent> events) throws ServicesException {
+        for (SeatsReservedEvent event : events) {
+            seatsReserved(event);
+        }
+    }
+
+    /**
+     * Called when seats are held by another office or become free again. Holds do not change
+     * the trip, so observers that do not show them can ignore the call.
+     */
+    default void seatsHeld(List<SeatsHeldEvent> events) throws ServicesException {
+    }
+
+    /**
+     * Called when the notification stream connects, drops or reports a new lag. While it is
+     * down the stream reconnects on its own and replays what was missed.
+     */
+    default void streamHealthChanged(StreamHealth health) {
+    }
 }
@@ -7,10 +7,24 @@ import java.util.List;
 public interface IServices {
     public Employee login(String username, String password, IObserver client) throws ServicesException;
     public void logout(Employee employee) throws ServicesException;
+    public SeatHold holdSeats(Trip trip, List<Integer> seatNumbers, Employee employee) throws ServicesException;
+    public SeatHold renewHold(SeatHold hold, List<Integer> seatNumbers, Employee employee) throws ServicesException;
+    public void releaseHold(SeatHold hold, Employee employee) throws ServicesException;
+    public List<ReservationResult> reserveSeatsBatch(List<ReservationRequest> reservations, Employee employee) throws ServicesException;
     public List<Trip> getAllTrips() throws ServicesException;
+    public TripPage getTrips(TripQuery query) throws ServicesException;
     public List<Seat> searchTripSeats(String destination, LocalDate date, LocalTime time) throws ServicesException;
-    public void reserveSeats(String clientName, List<Integer> seatNumbers, Trip trip, Employee employee) throws ServicesException;
+    /**
+     * Reserves the seats and returns the trip version they produced, or 0 when the server does not
+     * send one. The given trip is only read.
+     */
+    public long reserveSeats(String clientName, List<Integer> seatNumbers, Trip trip, Employee employee) throws ServicesException;
     public Trip getTrip(String destination, LocalDate date, LocalTime time) throws ServicesException;
+    public TripWithSeats getTripWithSeats(String destination, LocalDate date, LocalTime time) throws ServicesException;
+    public Trip getTripById(int tripId) throws ServicesException;
+    public List<Seat> searchTripSeatsById(int tripId) throws ServicesException;
+    public TripWithSeats getTripWithSeatsById(int tripId) throws ServicesException;
+    public TripChanges getTripChanges(long epoch, long sinceSequence) throws ServicesException;
     void subscribeToUpdates(int employeeId, IObserver observer);
 
 }
@@ -0,0 +1,39 @@
+package ro.mpp2024;
+
+import java.util.List;
+
+/**
+ * One item of a batch reservation: seats of a single trip for a single client.
+ */
+public class ReservationRequest {
+    private final String clientName;
+    private final Trip trip;
+    private final List<Integer> seatNumbers;
+
+    public ReservationRequest(String clientName, Trip trip, List<Integer> seatNumbers) {
+        this.clientName = clientName;
+        this.trip = trip;
+        this.seatNumbers = List.copyOf(seatNumbers);
+    }
+
+    public String getClientName() {
+        return clientName;
+    }
+
+    public Trip getTrip() {
+        return trip;
+    }
+
+    public List<Integer> getSeatNumbers() {
+        return seatNumbers;
+    }
+
+    @Override
+    public String toString() {
+        return "ReservationRequest{" +
+                "clientName='" + clientName + '\'' +
+                ", trip=" + trip +
+                ", seatNumbers=" + seatNumbers +
+                '}';
+    }
+}
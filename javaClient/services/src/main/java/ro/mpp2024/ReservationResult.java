@@ -0,0 +1,48 @@
+package ro.mpp2024;
+
+/**
+ * Outcome of one {@link ReservationRequest} of a batch. A failed item does not affect the
+ * other items of the same batch.
+ */
+public class ReservationResult {
+    private final ReservationRequest request;
+    private final boolean success;
+    private final String message;
+    private final int availableSeats;
+
+    public ReservationResult(ReservationRequest request, boolean success, String message, int availableSeats) {
+        this.request = request;
+        this.success = success;
+        this.message = message;
+        this.availableSeats = availableSeats;
+    }
+
+    public ReservationRequest getRequest() {
+        return request;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Seats left on the trip right after this item was applied.
+     */
+    public int getAvailableSeats() {
+        return availableSeats;
+    }
+
+    @Override
+    public String toString() {
+        return "ReservationResult{" +
+                "request=" + request +
+                ", success=" + success +
+                ", message='" + message + '\'' +
+                ", availableSeats=" + availableSeats +
+                '}';
+    }
+}
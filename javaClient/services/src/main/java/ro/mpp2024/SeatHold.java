@@ -0,0 +1,51 @@
+package ro.mpp2024;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * A time-limited hold on seats of a trip, placed while a reservation is being filled in.
+ * The server drops it when the lease runs out, unless it is renewed first.
+ */
+public class SeatHold {
+    private final String holdId;
+    private final Trip trip;
+    private final List<Integer> seatNumbers;
+    private final Duration lease;
+
+    public SeatHold(String holdId, Trip trip, List<Integer> seatNumbers, Duration lease) {
+        this.holdId = holdId;
+        this.trip = trip;
+        this.seatNumbers = List.copyOf(seatNumbers);
+        this.lease = lease;
+    }
+
+    public String getHoldId() {
+        return holdId;
+    }
+
+    public Trip getTrip() {
+        return trip;
+    }
+
+    public List<Integer> getSeatNumbers() {
+        return seatNumbers;
+    }
+
+    /**
+     * How long the hold lasts, counted from when the server granted or renewed it.
+     */
+    public Duration getLease() {
+        return lease;
+    }
+
+    @Override
+    public String toString() {
+        return "SeatHold{" +
+                "holdId='" + holdId + '\'' +
+                ", tripId=" + trip.getId() +
+                ", seatNumbers=" + seatNumbers +
+                ", lease=" + lease +
+                '}';
+    }
+}
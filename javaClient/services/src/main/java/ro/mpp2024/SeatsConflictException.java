@@ -0,0 +1,27 @@
+package ro.mpp2024;
+
+import java.util.List;
+
+/**
+ * Thrown by a reservation when some of the requested seats were taken since the client read
+ * the trip. Carries the lost seats and the current state of the trip, so the view can be
+ * updated without reading it again.
+ */
+public class SeatsConflictException extends ServicesException {
+    private final List<Integer> lostSeats;
+    private final TripWithSeats current;
+
+    public SeatsConflictException(String message, List<Integer> lostSeats, TripWithSeats current) {
+        super(message);
+        this.lostSeats = List.copyOf(lostSeats);
+        this.current = current;
+    }
+
+    public List<Integer> getLostSeats() {
+        return lostSeats;
+    }
+
+    public TripWithSeats getCurrent() {
+        return current;
+    }
+}
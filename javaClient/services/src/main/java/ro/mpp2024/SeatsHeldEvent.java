@@ -0,0 +1,43 @@
+package ro.mpp2024;
+
+import java.util.List;
+
+/**
+ * Pushed to the observers when another office holds seats of a trip, or when such a hold
+ * ends without a reservation (released or expired).
+ */
+public class SeatsHeldEvent {
+    private final int tripId;
+    private final List<Integer> seatNumbers;
+    private final boolean held;
+
+    public SeatsHeldEvent(int tripId, List<Integer> seatNumbers, boolean held) {
+        this.tripId = tripId;
+        this.seatNumbers = List.copyOf(seatNumbers);
+        this.held = held;
+    }
+
+    public int getTripId() {
+        return tripId;
+    }
+
+    public List<Integer> getSeatNumbers() {
+        return seatNumbers;
+    }
+
+    /**
+     * {@code true} if the seats became held, {@code false} if they are free again.
+     */
+    public boolean isHeld() {
+        return held;
+    }
+
+    @Override
+    public String toString() {
+        return "SeatsHeldEvent{" +
+                "tripId=" + tripId +
+                ", seatNumbers=" + seatNumbers +
+                ", held=" + held +
+                '}';
+    }
+}
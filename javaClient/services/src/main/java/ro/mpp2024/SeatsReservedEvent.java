@@ -0,0 +1,67 @@
+package ro.mpp2024;
+
+import java.util.List;
+
+/**
+ * Delta pushed to the observers when seats of a trip are reserved from another office.
+ * Carries enough information to update the trip and its seat map without a new fetch.
+ */
+public class SeatsReservedEvent {
+    private final int tripId;
+    private final List<Integer> seatNumbers;
+    private final String clientName;
+    private final int availableSeats;
+    private final long version;
+
+    public SeatsReservedEvent(int tripId, List<Integer> seatNumbers, String clientName, int availableSeats,
+                              long version) {
+        this.tripId = tripId;
+        this.seatNumbers = List.copyOf(seatNumbers);
+        this.clientName = clientName;
+        this.availableSeats = availableSeats;
+        this.version = version;
+    }
+
+    public int getTripId() {
+        return tripId;
+    }
+
+    public List<Integer> getSeatNumbers() {
+        return seatNumbers;
+    }
+
+    public String getClientName() {
+        return clientName;
+    }
+
+    public int getAvailableSeats() {
+        return availableSeats;
+    }
+
+    /**
+     * The trip version after the reservation, or 0 when the server does not send versions.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Whether a trip at the given version already includes this reservation, e.g. because the
+     * event arrived after a later change; the seat count it carries is then older than the
+     * trip's. An event or trip without a version is never stale.
+     */
+    public boolean isStaleFor(Long tripVersion) {
+        return version > 0 && tripVersion != null && version <= tripVersion;
+    }
+
+    @Override
+    public String toString() {
+        return "SeatsReservedEvent{" +
+                "tripId=" + tripId +
+                ", seatNumbers=" + seatNumbers +
+                ", clientName='" + clientName + '\'' +
+                ", availableSeats=" + availableSeats +
+                ", version=" + version +
+                '}';
+    }
+}
@@ -0,0 +1,24 @@
+package ro.mpp2024;
+
+import java.time.Instant;
+
+/**
+ * Thrown when the server cannot be reached and the call has no local answer: a login, a
+ * reservation or a hold, or a read of a trip that was never seen on this terminal. Carries
+ * when the local snapshot of trips was last saved, so the view can still offer to browse it.
+ */
+public class ServerUnavailableException extends ServicesException {
+    private final Instant snapshotSavedAt;
+
+    public ServerUnavailableException(String message, Instant snapshotSavedAt, Throwable cause) {
+        super(message, cause);
+        this.snapshotSavedAt = snapshotSavedAt;
+    }
+
+    /**
+     * When the local snapshot was last written, or {@code null} if there is none.
+     */
+    public Instant getSnapshotSavedAt() {
+        return snapshotSavedAt;
+    }
+}
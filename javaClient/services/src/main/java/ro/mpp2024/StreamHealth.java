@@ -0,0 +1,45 @@
+package ro.mpp2024;
+
+import java.time.Duration;
+
+/**
+ * State of the notification stream, passed to the observers whenever it changes: whether it
+ * is connected, how many times it had to reconnect since login and how late the last
+ * notification arrived after the server sent it.
+ */
+public class StreamHealth {
+    private final boolean connected;
+    private final int reconnects;
+    private final Duration lag;
+
+    public StreamHealth(boolean connected, int reconnects, Duration lag) {
+        this.connected = connected;
+        this.reconnects = reconnects;
+        this.lag = lag;
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+
+    public int getReconnects() {
+        return reconnects;
+    }
+
+    /**
+     * Receive time of the last notification minus its send time on the server, or
+     * {@link Duration#ZERO} before the first one. Includes any clock skew between the two.
+     */
+    public Duration getLag() {
+        return lag;
+    }
+
+    @Override
+    public String toString() {
+        return "StreamHealth{" +
+                "connected=" + connected +
+                ", reconnects=" + reconnects +
+                ", lag=" + lag +
+                '}';
+    }
+}
@@ -0,0 +1,64 @@
+package ro.mpp2024;
+
+import java.util.List;
+
+/**
+ * What changed since a position returned by {@link IServices#getTripChanges(long, long)}: the
+ * current state of the changed trips, the ones removed and the reservations made, in order.
+ * When {@link #isSnapshotRequired()} the changes are no longer known and the caller has to
+ * load the trips in full; the position is then the one to continue from after that load.
+ */
+public class TripChanges {
+    private final long epoch;
+    private final long sequence;
+    private final boolean snapshotRequired;
+    private final List<Trip> trips;
+    private final List<Integer> removedTripIds;
+    private final List<SeatsReservedEvent> seatChanges;
+
+    public TripChanges(long epoch, long sequence, boolean snapshotRequired, List<Trip> trips,
+                       List<Integer> removedTripIds, List<SeatsReservedEvent> seatChanges) {
+        this.epoch = epoch;
+        this.sequence = sequence;
+        this.snapshotRequired = snapshotRequired;
+        this.trips = List.copyOf(trips);
+        this.removedTripIds = List.copyOf(removedTripIds);
+        this.seatChanges = List.copyOf(seatChanges);
+    }
+
+    public long getEpoch() {
+        return epoch;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public boolean isSnapshotRequired() {
+        return snapshotRequired;
+    }
+
+    public List<Trip> getTrips() {
+        return trips;
+    }
+
+    public List<Integer> getRemovedTripIds() {
+        return removedTripIds;
+    }
+
+    public List<SeatsReservedEvent> getSeatChanges() {
+        return seatChanges;
+    }
+
+    @Override
+    public String toString() {
+        return "TripChanges{" +
+                "epoch=" + epoch +
+                ", sequence=" + sequence +
+                ", snapshotRequired=" + snapshotRequired +
+                ", trips=" + trips.size() +
+                ", removedTripIds=" + removedTripIds +
+                ", seatChanges=" + seatChanges.size() +
+                '}';
+    }
+}
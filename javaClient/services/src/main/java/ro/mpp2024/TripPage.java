@@ -0,0 +1,31 @@
+package ro.mpp2024;
+
+import java.util.List;
+
+/**
+ * One page of trips returned by {@link IServices#getTrips(TripQuery)}.
+ */
+public class TripPage {
+    private final List<Trip> trips;
+    private final String nextPageToken;
+
+    public TripPage(List<Trip> trips, String nextPageToken) {
+        this.trips = trips;
+        this.nextPageToken = nextPageToken;
+    }
+
+    public List<Trip> getTrips() {
+        return trips;
+    }
+
+    /**
+     * Token for {@link TripQuery#withPageToken(String)}, or {@code null} on the last page.
+     */
+    public String getNextPageToken() {
+        return nextPageToken;
+    }
+
+    public boolean hasNextPage() {
+        return nextPageToken != null;
+    }
+}
@@ -0,0 +1,76 @@
+package ro.mpp2024;
+
+import java.time.LocalDate;
+
+/**
+ * Filters and paging position for {@link IServices#getTrips(TripQuery)}.
+ * {@code null} (or 0 for the seat count) means the filter is not applied.
+ */
+public class TripQuery {
+    private final String destinationPrefix;
+    private final LocalDate dateFrom;
+    private final LocalDate dateTo;
+    private final int minAvailableSeats;
+    private final int pageSize;
+    private final String pageToken;
+
+    public TripQuery(String destinationPrefix, LocalDate dateFrom, LocalDate dateTo,
+                     int minAvailableSeats, int pageSize, String pageToken) {
+        this.destinationPrefix = destinationPrefix;
+        this.dateFrom = dateFrom;
+        this.dateTo = dateTo;
+        this.minAvailableSeats = minAvailableSeats;
+        this.pageSize = pageSize;
+        this.pageToken = pageToken;
+    }
+
+    /**
+     * First page of the whole catalog.
+     */
+    public static TripQuery all(int pageSize) {
+        return new TripQuery(null, null, null, 0, pageSize, null);
+    }
+
+    /**
+     * The same filters, positioned at the given page.
+     */
+    public TripQuery withPageToken(String pageToken) {
+        return new TripQuery(destinationPrefix, dateFrom, dateTo, minAvailableSeats, pageSize, pageToken);
+    }
+
+    public String getDestinationPrefix() {
+        return destinationPrefix;
+    }
+
+    public LocalDate getDateFrom() {
+        return dateFrom;
+    }
+
+    public LocalDate getDateTo() {
+        return dateTo;
+    }
+
+    public int getMinAvailableSeats() {
+        return minAvailableSeats;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public String getPageToken() {
+        return pageToken;
+    }
+
+    @Override
+    public String toString() {
+        return "TripQuery{" +
+                "destinationPrefix='" + destinationPrefix + '\'' +
+                ", dateFrom=" + dateFrom +
+                ", dateTo=" + dateTo +
+                ", minAvailableSeats=" + minAvailableSeats +
+                ", pageSize=" + pageSize +
+                ", pageToken='" + pageToken + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,24 @@
+package ro.mpp2024;
+
+import java.util.List;
+
+/**
+ * A trip together with its seat map, as read in a single server call.
+ */
+public class TripWithSeats {
+    private final Trip trip;
+    private final List<Seat> seats;
+
+    public TripWithSeats(Trip trip, List<Seat> seats) {
+        this.trip = trip;
+        this.seats = seats;
+    }
+
+    public Trip getTrip() {
+        return trip;
+    }
+
+    public List<Seat> getSeats() {
+        return seats;
+    }
+}